@@ -0,0 +1,32 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.benchmarks;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark with the GC profiler for each number of consumer
+ * threads. Any command-line arguments are handed to the regular JMH
+ * command line instead.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class BenchmarkSuite
+{
+    private static final int[] THREADS = {1, 2, 4};
+
+    public static void main(String[] args) throws Exception {
+        if ( args.length > 0 ){
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        for ( int threads : THREADS ){
+            Options options = new OptionsBuilder()
+                .include(BenchmarkSuite.class.getPackage().getName() + ".*Benchmark")
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
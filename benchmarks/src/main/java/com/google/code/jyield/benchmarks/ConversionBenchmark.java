@@ -0,0 +1,139 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.benchmarks;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.Yieldable;
+import com.google.code.jyield.utils.Range;
+import com.google.code.jyield.utils.TransformedGenerator;
+import com.google.code.jyield.utils.TransformedIterable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cost of consuming a whole sequence through each of the
+ * conversion paths, against a plain iterator over a list.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark
+{
+    /**
+     * The number of elements in each sequence.
+     */
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    /**
+     * The CPU tokens burned by the generator for each element.
+     */
+    @Param({"0", "10", "100"})
+    public long cost;
+
+    private List<Integer> _list;
+    private Generator<Integer> _generator;
+    private Iterable<Integer> _iterable;
+    private Generator<Integer> _listGenerator;
+    private Range _range;
+    private Generator<Integer> _nestedGenerator;
+    private Iterable<Integer> _nestedIterable;
+
+    @Setup
+    public void setUp(){
+        _list = Sequences.list(size);
+        _generator = Sequences.counting(size, cost);
+        _iterable = YieldUtils.toIterable(_generator);
+        _listGenerator = YieldUtils.toGenerator(_list);
+        _range = new Range(size);
+        Generator<Integer> generator = _generator;
+        Iterable<Integer> iterable = _list;
+        for ( int i = 0; i < Sequences.DEPTH; i++ ){
+            generator = new TransformedGenerator<Integer>(generator, Sequences.INCREMENT);
+            iterable = new TransformedIterable<Integer>(iterable, Sequences.INCREMENT);
+        }
+        _nestedGenerator = generator;
+        _nestedIterable = iterable;
+    }
+
+    @Benchmark
+    public void iteratorBaseline(Blackhole blackhole){
+        Iterator<Integer> iterator = _list.iterator();
+        while ( iterator.hasNext() ){
+            if ( cost > 0 ){
+                Blackhole.consumeCPU(cost);
+            }
+            blackhole.consume(iterator.next());
+        }
+    }
+
+    @Benchmark
+    public void toIterable(Blackhole blackhole){
+        for ( Integer value : _iterable ){
+            blackhole.consume(value);
+        }
+    }
+
+    @Benchmark
+    public void toGenerator(Blackhole blackhole){
+        _listGenerator.generate(sink(blackhole));
+    }
+
+    @Benchmark
+    public Object toArrayList(){
+        return YieldUtils.toArrayList(_generator);
+    }
+
+    @Benchmark
+    public Object toLinkedList(){
+        return YieldUtils.toLinkedList(_generator);
+    }
+
+    @Benchmark
+    public void rangeIteration(Blackhole blackhole){
+        for ( Integer value : _range ){
+            blackhole.consume(value);
+        }
+    }
+
+    @Benchmark
+    public void rangeGeneration(Blackhole blackhole){
+        _range.generate(sink(blackhole));
+    }
+
+    @Benchmark
+    public void nestedTransformedGenerator(Blackhole blackhole){
+        _nestedGenerator.generate(sink(blackhole));
+    }
+
+    @Benchmark
+    public void nestedTransformedIterable(Blackhole blackhole){
+        for ( Integer value : _nestedIterable ){
+            blackhole.consume(value);
+        }
+    }
+
+    private static Yieldable<Integer> sink(final Blackhole blackhole){
+        return new Yieldable<Integer>(){
+            public void yield(Integer obj){
+                blackhole.consume(obj);
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.benchmarks;
+import com.google.code.jyield.CloseableIterator;
+import com.google.code.jyield.YieldOptions;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.utils.Range;
+import com.google.code.jyield.utils.TransformedIterable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of taking one element from an open iterator, so that
+ * sample mode reports the distribution of a single next() call.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElementLatencyBenchmark
+{
+    /**
+     * The CPU tokens burned by the generator for each element.
+     */
+    @Param({"0", "10", "100"})
+    public long cost;
+
+    private static final int SIZE = 1 << 16;
+
+    private CloseableIterator<Integer> _generated;
+    private List<Integer> _list;
+    private Iterator<Integer> _listIterator;
+    private Range _range;
+    private Iterator<Integer> _rangeIterator;
+    private Iterable<Integer> _nested;
+    private Iterator<Integer> _nestedIterator;
+
+    @Setup
+    public void setUp(){
+        _generated = YieldUtils.toIterable(Sequences.endless(cost),
+            new YieldOptions().setCapacity(Sequences.CAPACITY)).iterator();
+        _list = Sequences.list(SIZE);
+        _listIterator = _list.iterator();
+        _range = new Range(SIZE);
+        _rangeIterator = _range.iterator();
+        Iterable<Integer> nested = _list;
+        for ( int i = 0; i < Sequences.DEPTH; i++ ){
+            nested = new TransformedIterable<Integer>(nested, Sequences.INCREMENT);
+        }
+        _nested = nested;
+        _nestedIterator = _nested.iterator();
+    }
+
+    @TearDown
+    public void tearDown(){
+        _generated.close();
+    }
+
+    @Benchmark
+    public Integer iteratorBaseline(){
+        if ( !_listIterator.hasNext() ){
+            _listIterator = _list.iterator();
+        }
+        return _listIterator.next();
+    }
+
+    @Benchmark
+    public Integer toIterable(){
+        return _generated.next();
+    }
+
+    @Benchmark
+    public Integer rangeIteration(){
+        if ( !_rangeIterator.hasNext() ){
+            _rangeIterator = _range.iterator();
+        }
+        return _rangeIterator.next();
+    }
+
+    @Benchmark
+    public Integer nestedTransformedIterable(){
+        if ( !_nestedIterator.hasNext() ){
+            _nestedIterator = _nested.iterator();
+        }
+        return _nestedIterator.next();
+    }
+}
@@ -0,0 +1,82 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.benchmarks;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.Yieldable;
+import com.google.code.jyield.utils.Transformation;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Sources and transformations shared by the benchmarks.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+final class Sequences
+{
+    /**
+     * The number of transformations stacked in the nested benchmarks.
+     */
+    static final int DEPTH = 4;
+
+    /**
+     * The capacity of the buffer between an endless generator and its
+     * iterator, which keeps the generator from filling the heap.
+     */
+    static final int CAPACITY = 1024;
+
+    /**
+     * Creates a generator of the integers in [0, size) that burns the
+     * given number of CPU tokens before yielding each element.
+     */
+    static Generator<Integer> counting(final int size, final long cost){
+        return new Generator<Integer>(){
+            public void generate(Yieldable<Integer> yieldable){
+                for ( int i = 0; i < size; i++ ){
+                    if ( cost > 0 ){
+                        Blackhole.consumeCPU(cost);
+                    }
+                    yieldable.yield(i);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates an endless generator that burns the given number of CPU
+     * tokens before yielding each element.
+     */
+    static Generator<Integer> endless(final long cost){
+        return new Generator<Integer>(){
+            public void generate(Yieldable<Integer> yieldable){
+                for ( int i = 0; ; i++ ){
+                    if ( cost > 0 ){
+                        Blackhole.consumeCPU(cost);
+                    }
+                    yieldable.yield(i);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a list of the integers in [0, size).
+     */
+    static List<Integer> list(int size){
+        List<Integer> result = new ArrayList<Integer>(size);
+        for ( int i = 0; i < size; i++ ){
+            result.add(i);
+        }
+        return result;
+    }
+
+    /**
+     * A cheap transformation for building nested chains.
+     */
+    static final Transformation<Integer> INCREMENT = new Transformation<Integer>(){
+        public Integer transform(Integer obj){
+            return obj + 1;
+        }
+    };
+
+    private Sequences(){}
+}
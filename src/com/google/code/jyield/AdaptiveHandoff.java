@@ -0,0 +1,118 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A handoff that lets the producer run ahead of the consumer by a window
+ * that adapts to their relative speed. Whenever the consumer has to wait
+ * for a value, the producer could not stay far enough ahead, so the window
+ * doubles. Whenever the producer has repeatedly waited on a full window
+ * without the consumer waiting in between, the consumer is the bottleneck
+ * and a large window only holds memory, so the window halves. The window
+ * stays between the configured minimum and maximum.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class AdaptiveHandoff<T> extends Handoff<T>
+{
+    public AdaptiveHandoff(int minWindow, int maxWindow){
+        _minWindow = minWindow;
+        _maxWindow = maxWindow;
+        _window = minWindow;
+    }
+
+    public synchronized void yield(T obj){
+        checkCancelled();
+        while ( _queue.size() >= _window ){
+            if ( (++_producerStalls >= SHRINK_AFTER) && (_window > _minWindow) ){
+                _window = Math.max(_minWindow, _window / 2);
+                _producerStalls = 0;
+            }
+            _producerWaiting = true;
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                throw interruptedProducer(ex);
+            } finally {
+                _producerWaiting = false;
+            }
+            checkCancelled();
+        }
+        _queue.addLast(mask(obj));
+        if ( _consumerWaiting ){
+            notifyAll();
+        }
+    }
+
+    synchronized void finish(Throwable failure){
+        _failure = failure;
+        _done = true;
+        notifyAll();
+    }
+
+    public synchronized boolean awaitNext(long deadline) throws InterruptedException, TimeoutException {
+        if ( _queue.isEmpty() && !_done && !isCancelled() ){
+            _producerStalls = 0;
+            if ( _window < _maxWindow ){
+                _window = (int) Math.min(_maxWindow, 2L * _window);
+                notifyAll();
+            }
+            _consumerWaiting = true;
+            try {
+                while ( _queue.isEmpty() && !_done && !isCancelled() ){
+                    waitUntil(this, deadline);
+                }
+            } finally {
+                _consumerWaiting = false;
+            }
+        }
+        if ( isCancelled() ){
+            return false;
+        }
+        if ( !_queue.isEmpty() ){
+            return true;
+        }
+        if ( _failure != null ){
+            Throwable failure = _failure;
+            _failure = null;
+            rethrow(failure);
+        }
+        return false;
+    }
+
+    public synchronized boolean ready(){
+        return _done || !_queue.isEmpty() || isCancelled();
+    }
+
+    synchronized void onCancel(){
+        _queue.clear();
+        notifyAll();
+    }
+
+    public synchronized T take(){
+        T result = unmask(_queue.removeFirst());
+        if ( _producerWaiting ){
+            notifyAll();
+        }
+        return result;
+    }
+
+    /**
+     * Reports the current size of the window.
+     */
+    synchronized int window(){
+        return _window;
+    }
+
+    private static final int SHRINK_AFTER = 8;
+
+    private final ArrayDeque<Object> _queue = new ArrayDeque<Object>();
+    private final int _minWindow;
+    private final int _maxWindow;
+    private int _window;
+    private int _producerStalls = 0;
+    private boolean _producerWaiting = false;
+    private boolean _consumerWaiting = false;
+    private boolean _done = false;
+    private Throwable _failure = null;
+}
@@ -0,0 +1,79 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A handoff that collects values into a chunk on the producer's side and
+ * passes whole chunks through another handoff, as ChunkedHandoff describes.
+ * The consumer then drains each chunk without any synchronization.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class BatchingHandoff<T> extends Handoff<T>
+{
+    public BatchingHandoff(Handoff<Object[]> chunks, int batchSize, long maxDelayNanos){
+        _chunks = new ObjectChunks(chunks, batchSize, maxDelayNanos);
+    }
+
+    public void yield(T obj){
+        _chunks.beforeStore();
+        _chunks.producerChunk[_chunks.count++] = obj;
+        _chunks.afterStore();
+    }
+
+    void finish(Throwable failure){
+        _chunks.finish(failure);
+    }
+
+    public boolean awaitNext(long deadline) throws InterruptedException, TimeoutException {
+        return _chunks.awaitNext(deadline);
+    }
+
+    public boolean ready(){
+        return _chunks.ready();
+    }
+
+    long dropped(){
+        return _chunks.dropped();
+    }
+
+    void onCancel(){
+        _chunks.chunks().cancel();
+    }
+
+    @SuppressWarnings("unchecked")
+    public T take(){
+        Object[] chunk = _chunks.consumerChunk;
+        int position = _chunks.position++;
+        T result = (T) chunk[position];
+        chunk[position] = null;
+        return result;
+    }
+
+    /**
+     * The chunks of objects, whose slots are cleared once passed on or
+     * taken so that the chunks do not keep the values reachable.
+     */
+    private static class ObjectChunks extends ChunkedHandoff<Object[]>
+    {
+        public ObjectChunks(Handoff<Object[]> chunks, int batchSize, long maxDelayNanos){
+            super(chunks, batchSize, maxDelayNanos);
+        }
+
+        Object[] newChunk(int length){
+            return new Object[length];
+        }
+
+        Object[] copyOf(Object[] chunk, int count){
+            Object[] result = Arrays.copyOf(chunk, count);
+            Arrays.fill(chunk, 0, count, null);
+            return result;
+        }
+
+        int length(Object[] chunk){
+            return chunk.length;
+        }
+    }
+
+    private final ObjectChunks _chunks;
+}
@@ -0,0 +1,18 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * A yieldable object that can report that it wants no further values.
+ * Once it does, its yield method throws a GeneratorCancelledException, but
+ * a generator that does expensive work between yields can check first
+ * and stop early. See YieldUtils.isCancelled.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface CancellableYieldable<T> extends Yieldable<T>
+{
+    /**
+     * Reports whether this object wants no further values.
+     * @return True if yielding another value would throw a GeneratorCancelledException.
+     */
+    public boolean isCancelled();
+}
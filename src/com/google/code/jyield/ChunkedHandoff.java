@@ -0,0 +1,278 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The chunk protocol shared by the handoffs that pass values in arrays of
+ * type C. The producer stores values into its chunk between beforeStore and
+ * afterStore, and whole chunks are passed through another handoff, so the
+ * consumer drains each chunk without any synchronization. A partial chunk
+ * is passed on when the consumer is waiting for values or the maximum delay
+ * has passed. With a maximum delay, the producer fills its chunk under a
+ * lock, so that a consumer kept waiting past the delay by a stalled
+ * generator can take the partial chunk itself. The lock is never held while
+ * passing a chunk on. Subclasses only store into producerChunk and read from
+ * consumerChunk, whose types they know.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+abstract class ChunkedHandoff<C>
+{
+    public ChunkedHandoff(Handoff<C> chunks, int chunkSize, long maxDelayNanos){
+        _chunks = chunks;
+        _chunkSize = chunkSize;
+        _maxDelayNanos = maxDelayNanos;
+        producerChunk = newChunk(chunkSize);
+    }
+
+    /**
+     * The handoff through which the chunks are passed, which also carries
+     * the cancellation state.
+     */
+    final Handoff<C> chunks(){
+        return _chunks;
+    }
+
+    /**
+     * Called by the producer before it stores a value at index count. With
+     * a maximum delay, this takes the chunk lock, which afterStore releases.
+     */
+    final void beforeStore(){
+        _chunks.checkCancelled();
+        if ( _maxDelayNanos > 0 ){
+            _chunkLock.lock();
+            if ( count == 0 ){
+                _chunkStart = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Called by the producer after it stored a value and incremented count.
+     */
+    final void afterStore(){
+        if ( _maxDelayNanos == 0 ){
+            if ( (count == _chunkSize) || _hungry ){
+                _hungry = false;
+                _chunks.yield(detach());
+            }
+            return;
+        }
+        C chunk = null;
+        try {
+            if ( (count == _chunkSize) || _hungry || (System.nanoTime() - _chunkStart >= _maxDelayNanos) ){
+                chunk = detachForPass();
+            }
+        } finally {
+            _chunkLock.unlock();
+        }
+        if ( chunk != null ){
+            pass(chunk);
+        }
+    }
+
+    /**
+     * Signals that the generator has finished, passing on the partial chunk first.
+     */
+    final void finish(Throwable failure){
+        try {
+            if ( _maxDelayNanos == 0 ){
+                if ( count > 0 ){
+                    _hungry = false;
+                    _chunks.yield(detach());
+                }
+            }else{
+                C chunk = null;
+                _chunkLock.lock();
+                try {
+                    if ( count > 0 ){
+                        chunk = detachForPass();
+                    }
+                } finally {
+                    _chunkLock.unlock();
+                }
+                if ( chunk != null ){
+                    pass(chunk);
+                }
+            }
+        } catch (RuntimeException ex) {
+            if ( failure == null ){
+                failure = ex;
+            }
+        } finally {
+            _chunks.finish(failure);
+        }
+    }
+
+    /**
+     * Waits until a value is available at index position of the consumer's
+     * chunk, the generator has finished, or the deadline passes.
+     * @return False if the generator has finished or was cancelled.
+     */
+    final boolean awaitNext(long deadline) throws InterruptedException, TimeoutException {
+        if ( _chunks.isCancelled() ){
+            consumerChunk = null;
+            limit = 0;
+            return false;
+        }
+        if ( position < limit ){
+            return true;
+        }
+        if ( !_chunks.ready() ){
+            _hungry = true;
+        }
+        while ( _maxDelayNanos > 0 ){
+            long flushAt = takeStaleChunk();
+            if ( flushAt == STOLEN ){
+                return true;
+            }
+            if ( flushAt == Handoff.NO_DEADLINE ){
+                break;
+            }
+            boolean early = (deadline == Handoff.NO_DEADLINE) || (flushAt - deadline < 0);
+            try {
+                return takeChunk(early ? flushAt : deadline);
+            } catch (TimeoutException ex) {
+                if ( !early ){
+                    throw ex;
+                }
+            }
+        }
+        return takeChunk(deadline);
+    }
+
+    /**
+     * Reports, without waiting, whether awaitNext would return immediately.
+     */
+    final boolean ready(){
+        return (position < limit) || _chunks.ready();
+    }
+
+    /**
+     * Reports how many chunks' worth of values the chunk handoff has dropped.
+     */
+    final long dropped(){
+        return _chunks.dropped();
+    }
+
+    /**
+     * Creates an empty chunk of the given length.
+     */
+    abstract C newChunk(int length);
+
+    /**
+     * Copies the first count values of the producer's chunk, which is then
+     * reused, and releases any references to them that it holds.
+     */
+    abstract C copyOf(C chunk, int count);
+
+    /**
+     * Returns the number of values in the given chunk.
+     */
+    abstract int length(C chunk);
+
+    /**
+     * Waits for the next chunk and makes it the consumer's chunk.
+     */
+    private boolean takeChunk(long deadline) throws InterruptedException, TimeoutException {
+        if ( !_chunks.awaitNext(deadline) ){
+            return false;
+        }
+        accept(_chunks.take());
+        return true;
+    }
+
+    /**
+     * Takes the producer's partial chunk if no chunk is on its way and the
+     * chunk has waited longer than the maximum delay. A chunk is only taken
+     * while no earlier chunk is queued or being passed on, so the values
+     * stay in order.
+     * @return STOLEN if the chunk was taken, the time at which to look again,
+     * or NO_DEADLINE if there is no need to look again.
+     */
+    private long takeStaleChunk(){
+        if ( _passing || _chunks.ready() ){
+            return Handoff.NO_DEADLINE;
+        }
+        _chunkLock.lock();
+        try {
+            if ( _passing || _chunks.ready() || (count == 0) ){
+                // A chunk is on its way, or the next value sees _hungry and is passed on at once.
+                return Handoff.NO_DEADLINE;
+            }
+            long flushAt = _chunkStart + _maxDelayNanos;
+            if ( flushAt - System.nanoTime() > 0 ){
+                return flushAt;
+            }
+            accept(detach());
+            return STOLEN;
+        } finally {
+            _chunkLock.unlock();
+        }
+    }
+
+    /**
+     * Makes the given chunk the consumer's chunk.
+     */
+    private void accept(C chunk){
+        consumerChunk = chunk;
+        position = 0;
+        limit = length(chunk);
+        _hungry = false;
+    }
+
+    /**
+     * Removes the values from the producer's chunk, which the lock guards,
+     * and marks them as being passed on.
+     */
+    private C detachForPass(){
+        _hungry = false;
+        _passing = true;
+        return detach();
+    }
+
+    /**
+     * Passes on a chunk from detachForPass, without holding the lock.
+     */
+    private void pass(C chunk){
+        try {
+            _chunks.yield(chunk);
+        } finally {
+            _passing = false;
+        }
+    }
+
+    /**
+     * Removes the values from the producer's chunk, which holds exactly
+     * count values, and starts a new one.
+     */
+    private C detach(){
+        C chunk = producerChunk;
+        if ( count < _chunkSize ){
+            chunk = copyOf(chunk, count);
+        }else{
+            producerChunk = newChunk(_chunkSize);
+        }
+        count = 0;
+        return chunk;
+    }
+
+    private static final long STOLEN = Handoff.NO_DEADLINE + 1;
+
+    // Owned by the producer, and guarded by the chunk lock if there is a maximum delay.
+    C producerChunk;
+    int count = 0;
+    private long _chunkStart = 0;
+
+    // Owned by the consumer.
+    C consumerChunk = null;
+    int position = 0;
+    int limit = 0;
+
+    private final Handoff<C> _chunks;
+    private final int _chunkSize;
+    private final long _maxDelayNanos;
+    private volatile boolean _hungry = false;
+    private final ReentrantLock _chunkLock = new ReentrantLock();
+    private volatile boolean _passing = false;
+}
@@ -0,0 +1,11 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * An iterable whose iterators can be closed before they are exhausted.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface CloseableIterable<T> extends Iterable<T>
+{
+    public CloseableIterator<T> iterator();
+}
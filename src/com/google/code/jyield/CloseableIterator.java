@@ -0,0 +1,17 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.Iterator;
+
+/**
+ * An iterator over the values of a generator that can be closed before
+ * it is exhausted. Closing the iterator cancels the generator.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable
+{
+    /**
+     * Cancels the generator and releases its buffered values. After this,
+     * hasNext() returns false. Closing an iterator more than once has no effect.
+     */
+    public void close();
+}
@@ -0,0 +1,58 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An iterable that runs several generators at once, each on a worker of
+ * its own, and hands the values they yield to the iterator as they arrive.
+ * The iterator ends once every generator has finished. Closing the
+ * iterator, or letting it become unreachable, cancels every generator.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class ConcurrentGeneratorIterable<T> implements TimedIterable<T>
+{
+    public ConcurrentGeneratorIterable(Collection<? extends Generator<T>> generators, YieldOptions options){
+        if ( generators == null ){
+            throw new IllegalArgumentException("Generators cannot be null.");
+        }
+        if ( options == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        for ( Generator<T> generator : generators ){
+            if ( generator == null ){
+                throw new IllegalArgumentException("Generator cannot be null.");
+            }
+        }
+        if ( options.getOverflowPolicy() == OverflowPolicy.DROP_OLDEST ){
+            throw new IllegalArgumentException("Several generators do not support " + OverflowPolicy.DROP_OLDEST + ".");
+        }
+        _generators = new ArrayList<Generator<T>>(generators);
+        _options = new YieldOptions(options);
+    }
+
+    public TimedIterator<T> iterator(){
+        MultiProducerHandoff<T> handoff = new MultiProducerHandoff<T>(
+            _generators.size(), _options.getCapacity(), _options.getOverflowPolicy());
+        List<? extends ProducerHandoff<T>> producers = handoff.producers();
+        @SuppressWarnings("unchecked")
+        Recycler<? super T> recycler = (Recycler<? super T>) _options.getRecycler();
+        TimedIterator<T> result = new GeneratorIterable.HandoffIterator<T>(
+            handoff, recycler, _options.getLatencySlaNanos());
+        for ( int i = 0; i < producers.size(); i++ ){
+            final Generator<T> generator = _generators.get(i);
+            final ProducerHandoff<T> producer = producers.get(i);
+            Workers.start(_options, new GeneratorTask(producer)
+                {
+                    void generate(){
+                        generator.generate(producer);
+                    }
+                });
+        }
+        return result;
+    }
+
+    private final List<Generator<T>> _generators;
+    private final YieldOptions _options;
+}
@@ -0,0 +1,43 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The consumer's side of a handoff, through which an iterator waits for
+ * and takes the values of the generator. HandoffEnd implements cancel()
+ * and isCancelled() for every implementation.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+interface ConsumerHandoff<T>
+{
+    /**
+     * Waits until a value is available, the generator has finished, or the deadline passes.
+     * @param deadline The System.nanoTime() by which to give up, or NO_DEADLINE.
+     * @return True if a value is available, false if the generator has finished.
+     * @throws InterruptedException If the consumer is interrupted while waiting.
+     * @throws TimeoutException If the deadline passed first.
+     */
+    boolean awaitNext(long deadline) throws InterruptedException, TimeoutException;
+
+    /**
+     * Reports, without waiting, whether awaitNext() would return immediately.
+     * @return True if a value is available or the generator has finished.
+     */
+    boolean ready();
+
+    /**
+     * Removes the next value. May only be called after awaitNext() returned true.
+     * @return The next value.
+     */
+    T take();
+
+    /**
+     * Cancels the generator; the consumer sees no further values.
+     */
+    void cancel();
+
+    /**
+     * Reports whether cancel() was called.
+     */
+    boolean isCancelled();
+}
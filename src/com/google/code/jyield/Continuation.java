@@ -0,0 +1,18 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * The state of a single run of a ResumableGenerator, written as a state
+ * machine that continues from where its previous step left off.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface Continuation<T>
+{
+    /**
+     * Runs the generator up to its next value. A step will usually yield a
+     * single value, but it may yield none or several.
+     * @param yieldable An object capable of receiving yields.
+     * @return True if the generator may yield more values, false once it has finished.
+     */
+    public boolean resume(Yieldable<T> yieldable);
+}
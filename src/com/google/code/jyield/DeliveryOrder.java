@@ -0,0 +1,27 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * Determines the order in which values generated in parallel are delivered.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public enum DeliveryOrder
+{
+    /**
+     * Values are delivered in the order of the sequential generator. Values of
+     * a later part are buffered until all earlier parts have been delivered.
+     */
+    ORDERED,
+
+    /**
+     * Values are delivered as soon as any part yields them.
+     */
+    UNORDERED,
+
+    /**
+     * Values are delivered as soon as any part yields them, from the part's
+     * own thread and without serializing the calls. The yieldable object
+     * must be thread-safe, such as a ConcurrentAggregator.
+     */
+    CONCURRENT
+}
@@ -0,0 +1,89 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * An iterable that runs a double generator on a worker thread for each
+ * iterator, passing the values to the iterator in unboxed chunks. The
+ * iterators are also CloseableIterators; closing one, or letting it become
+ * unreachable, cancels its generator.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class DoubleGeneratorIterable implements DoubleIterable
+{
+    public DoubleGeneratorIterable(DoubleGenerator generator, YieldOptions options){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( options == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        _generator = generator;
+        _options = new YieldOptions(options);
+    }
+
+    public PrimitiveIterator.OfDouble iterator(){
+        DoubleHandoff handoff = new DoubleHandoff(_generator, _options);
+        handoff.start(_options);
+        return new DoubleHandoffIterator(handoff);
+    }
+
+    private static class DoubleHandoff extends PrimitiveHandoff<double[]> implements DoubleYieldable
+    {
+        public DoubleHandoff(DoubleGenerator generator, YieldOptions options){
+            super(options);
+            _generator = generator;
+        }
+
+        void generate(){
+            _generator.generate(this);
+        }
+
+        public void yield(double value){
+            beforeStore();
+            producerChunk[count++] = value;
+            afterStore();
+        }
+
+        double nextDouble(){
+            return consumerChunk[position++];
+        }
+
+        double[] newChunk(int length){
+            return new double[length];
+        }
+
+        double[] copyOf(double[] chunk, int count){
+            return Arrays.copyOf(chunk, count);
+        }
+
+        int length(double[] chunk){
+            return chunk.length;
+        }
+
+        private final DoubleGenerator _generator;
+    }
+
+    private static class DoubleHandoffIterator extends PrimitiveHandoffIterator<Double> implements PrimitiveIterator.OfDouble
+    {
+        public DoubleHandoffIterator(DoubleHandoff handoff){
+            super(handoff);
+            _handoff = handoff;
+        }
+
+        public double nextDouble() {
+            advance();
+            return _handoff.nextDouble();
+        }
+
+        public Double next() {
+            return nextDouble();
+        }
+
+        private final DoubleHandoff _handoff;
+    }
+
+    private final DoubleGenerator _generator;
+    private final YieldOptions _options;
+}
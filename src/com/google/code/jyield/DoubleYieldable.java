@@ -0,0 +1,15 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * An object to which it is possible to yield double values without boxing them.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface DoubleYieldable
+{
+    /**
+     * Submits the value to the yieldable instance, enabling it to be processed.
+     * @param value The value to be yielded/submitted.
+     */
+    public void yield(double value);
+}
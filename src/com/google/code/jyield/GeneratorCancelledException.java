@@ -0,0 +1,23 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * Thrown by Yieldable.yield when the consumer of a generator is no longer
+ * interested in its values, for example because its iterator was closed or
+ * became unreachable, or because a short-circuiting operation such as
+ * YieldUtils.first has its result. Generators should let this exception
+ * propagate so that they unwind and release their worker thread.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class GeneratorCancelledException extends RuntimeException
+{
+    /**
+     * Constructs the exception. No stack trace is recorded, since the
+     * exception is a signal rather than an error.
+     */
+    public GeneratorCancelledException(){
+        super("The generator was cancelled.", null, false, false);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
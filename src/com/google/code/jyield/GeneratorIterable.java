@@ -0,0 +1,211 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * An iterable that runs a generator on a worker thread for each iterator,
+ * handing the yielded values to the iterator through a buffer. Closing an
+ * iterator, or letting it become unreachable, cancels its generator. The
+ * iterators are TimedIterators.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class GeneratorIterable<T> implements TimedIterable<T>
+{
+    public GeneratorIterable(Generator<T> generator, YieldOptions options){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( options == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        _generator = generator;
+        _options = new YieldOptions(options);
+    }
+
+    public TimedIterator<T> iterator(){
+        final YieldMetricsListener listener = _options.getMetricsListener();
+        final Handoff<T> handoff = (listener == null)
+            ? Handoff.<T>create(_options)
+            : new MeteredHandoff<T>(Handoff.<T>create(_options), listener);
+        Workers.start(_options, new GeneratorTask(handoff)
+            {
+                void generate(){
+                    if ( listener == null ){
+                        _generator.generate(handoff);
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    listener.workerStarted();
+                    try {
+                        _generator.generate(handoff);
+                    } finally {
+                        listener.workerStopped(System.nanoTime() - start);
+                    }
+                }
+            });
+        @SuppressWarnings("unchecked")
+        Recycler<? super T> recycler = (Recycler<? super T>) _options.getRecycler();
+        return new HandoffIterator<T>(handoff, recycler, _options.getLatencySlaNanos());
+    }
+
+    static class HandoffIterator<T> implements TimedIterator<T>
+    {
+        public HandoffIterator(ConsumerHandoff<T> handoff, Recycler<? super T> recycler, long slaNanos){
+            _handoff = handoff;
+            _recycler = recycler;
+            _slaNanos = slaNanos;
+            _registration = Reaper.register(this, handoff);
+        }
+
+        /**
+         * Reports the end of the values if interrupted, as an Iterator must;
+         * the interrupt is kept so that the caller can tell.
+         */
+        public boolean hasNext() {
+            try {
+                return await(Handoff.NO_DEADLINE);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (TimeoutException ex) {
+                throw new IllegalStateException("Timed out without a deadline.", ex);
+            }
+        }
+
+        public T next() {
+            recycle();
+            try {
+                if ( !await(Handoff.NO_DEADLINE) ){
+                    throw new NoSuchElementException();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new NoSuchElementException();
+            } catch (TimeoutException ex) {
+                throw new IllegalStateException("Timed out without a deadline.", ex);
+            }
+            return take();
+        }
+
+        public boolean hasNext(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+            return await(Handoff.deadline(timeout, unit));
+        }
+
+        public T next(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+            recycle();
+            if ( !await(Handoff.deadline(timeout, unit)) ){
+                throw new NoSuchElementException();
+            }
+            return take();
+        }
+
+        public long getSlaBreaches(){
+            return _slaBreaches;
+        }
+
+        public long getMaxWaitNanos(){
+            return _maxWaitNanos;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        public void close() {
+            recycle();
+            Reaper.unregister(_registration);
+            _handoff.cancel();
+        }
+
+        private T take(){
+            T result = _handoff.take();
+            if ( _recycler != null ){
+                _current = result;
+            }
+            return result;
+        }
+
+        /**
+         * Waits for the next value, timing the wait if one is needed. A wait
+         * that times out or is interrupted is resumed by the next call, so the
+         * time is measured from the first attempt to wait for the value. An
+         * untimed call without an SLA goes straight to the handoff, without
+         * checking whether it must wait or taking any timestamps.
+         */
+        private boolean await(long deadline) throws InterruptedException, TimeoutException {
+            boolean result;
+            if ( !_waiting && (_slaNanos == 0) && (deadline == Handoff.NO_DEADLINE) ){
+                result = _handoff.awaitNext(deadline);
+            }else if ( !_waiting && _handoff.ready() ){
+                result = _handoff.awaitNext(deadline);
+            }else{
+                if ( !_waiting ){
+                    _waiting = true;
+                    _waitStart = System.nanoTime();
+                }
+                boolean resumable = false;
+                try {
+                    result = _handoff.awaitNext(deadline);
+                } catch (TimeoutException ex) {
+                    resumable = true;
+                    throw ex;
+                } catch (InterruptedException ex) {
+                    resumable = true;
+                    throw ex;
+                } finally {
+                    recordWait(System.nanoTime() - _waitStart);
+                    if ( !resumable ){
+                        _waiting = false;
+                        _breached = false;
+                    }
+                }
+            }
+            if ( !result ){
+                Reaper.unregister(_registration);
+            }
+            return result;
+        }
+
+        /**
+         * Records how long the consumer has waited so far for the next value,
+         * counting at most one SLA breach per value.
+         */
+        private void recordWait(long waited){
+            if ( waited > _maxWaitNanos ){
+                _maxWaitNanos = waited;
+            }
+            if ( (_slaNanos > 0) && (waited > _slaNanos) && !_breached ){
+                _breached = true;
+                _slaBreaches++;
+            }
+        }
+
+        /**
+         * Returns the value that the consumer has moved past to the recycler.
+         * Only next and close move past a value; hasNext leaves it usable.
+         */
+        private void recycle(){
+            if ( _current != null ){
+                T current = _current;
+                _current = null;
+                _recycler.recycle(current);
+            }
+        }
+
+        private final ConsumerHandoff<T> _handoff;
+        private final Recycler<? super T> _recycler;
+        private final Object _registration;
+        private final long _slaNanos;
+        private T _current = null;
+        private boolean _waiting = false;
+        private boolean _breached = false;
+        private long _waitStart = 0;
+        private volatile long _slaBreaches = 0;
+        private volatile long _maxWaitNanos = 0;
+    }
+
+    private final Generator<T> _generator;
+    private final YieldOptions _options;
+}
@@ -0,0 +1,81 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over the values of a generator. Traversing all values at
+ * once runs the generator directly into the action, on the calling thread;
+ * only advancing one value at a time needs the iterator of YieldUtils.toIterable.
+ * The size is estimated from the generator's SizeHint, if it has one.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class GeneratorSpliterator<T> implements Spliterator<T>, AutoCloseable
+{
+    public GeneratorSpliterator(Generator<T> generator, YieldOptions options){
+        _generator = generator;
+        _options = options;
+        _remaining = (generator instanceof SizeHint) ? ((SizeHint) generator).sizeHint() : -1;
+    }
+
+    public boolean tryAdvance(Consumer<? super T> action){
+        if ( _consumed ){
+            return false;
+        }
+        if ( _iterator == null ){
+            _iterator = YieldUtils.toIterable(_generator, _options).iterator();
+        }
+        if ( !_iterator.hasNext() ){
+            return false;
+        }
+        if ( _remaining > 0 ){
+            _remaining--;
+        }
+        action.accept(_iterator.next());
+        return true;
+    }
+
+    public void forEachRemaining(final Consumer<? super T> action){
+        if ( _consumed ){
+            return;
+        }
+        _remaining = 0;
+        if ( _iterator != null ){
+            while ( _iterator.hasNext() ){
+                action.accept(_iterator.next());
+            }
+            return;
+        }
+        _consumed = true;
+        _generator.generate(new Yieldable<T>()
+            {
+                public void yield(T obj){
+                    action.accept(obj);
+                }
+            });
+    }
+
+    public Spliterator<T> trySplit(){
+        return null;
+    }
+
+    public long estimateSize(){
+        return (_remaining < 0) ? Long.MAX_VALUE : _remaining;
+    }
+
+    public int characteristics(){
+        return ORDERED;
+    }
+
+    public void close(){
+        if ( _iterator != null ){
+            _iterator.close();
+        }
+    }
+
+    private final Generator<T> _generator;
+    private final YieldOptions _options;
+    private CloseableIterator<T> _iterator = null;
+    private boolean _consumed = false;
+    private long _remaining;
+}
@@ -0,0 +1,46 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * The task that a worker runs for one iterator: it runs the generator into
+ * a handoff and then signals the handoff that the generator has finished.
+ * The task must not refer to the iterator, or the iterator could never
+ * become unreachable.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+abstract class GeneratorTask implements Runnable
+{
+    public GeneratorTask(ProducerHandoff<?> handoff){
+        _handoff = handoff;
+    }
+
+    public final void run(){
+        Throwable failure = null;
+        _handoff.attachWorker();
+        try {
+            generate();
+        } catch (GeneratorCancelledException ex) {
+            // The consumer is gone; nobody is left to report to.
+        } catch (Throwable ex) {
+            failure = ex;
+        } finally {
+            finish(failure);
+            _handoff.detachWorker();
+        }
+    }
+
+    /**
+     * Runs the generator.
+     */
+    abstract void generate();
+
+    /**
+     * Signals that the generator has finished.
+     * @param failure The exception that terminated the generator, or null.
+     */
+    void finish(Throwable failure){
+        _handoff.finish(failure);
+    }
+
+    private final ProducerHandoff<?> _handoff;
+}
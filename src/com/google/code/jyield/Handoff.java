@@ -0,0 +1,96 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The buffer through which a generator running on a worker thread hands
+ * its values to the iterator that consumes them. It is both the producer's
+ * side and the consumer's side of the handoff. Either side, or a third
+ * thread, may cancel().
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+abstract class Handoff<T> extends ProducerHandoff<T> implements ConsumerHandoff<T>
+{
+    /**
+     * Creates the handoff described by the given options.
+     * @param options The options of the conversion.
+     * @return A new, empty handoff.
+     */
+    static <T> Handoff<T> create(YieldOptions options){
+        int batchSize = options.getBatchSize();
+        if ( batchSize > 1 ){
+            YieldOptions chunkOptions = chunkOptions(options, batchSize);
+            Handoff<Object[]> chunks = (chunkOptions.getOverflowPolicy() == OverflowPolicy.DROP_OLDEST)
+                ? MonitorHandoff.chunks(chunkOptions.getCapacity())
+                : Handoff.<Object[]>create(chunkOptions);
+            return new BatchingHandoff<T>(chunks, batchSize, options.getMaxBatchDelayNanos());
+        }
+        if ( (options.getMaxPrefetch() > 0) && (options.getOverflowPolicy() == OverflowPolicy.BLOCK) ){
+            return new AdaptiveHandoff<T>(options.getMinPrefetch(), options.getMaxPrefetch());
+        }
+        return create(options.getCapacity(), options.getOverflowPolicy(), options.getWaitStrategy());
+    }
+
+    /**
+     * Derives the options of a handoff that passes chunks of the given size,
+     * so that it holds as many values as the original options allow.
+     */
+    static YieldOptions chunkOptions(YieldOptions options, int chunkSize){
+        YieldOptions result = new YieldOptions(options).setBatchSize(1);
+        int capacity = options.getCapacity();
+        if ( capacity != YieldOptions.UNBOUNDED ){
+            result.setCapacity(chunks(capacity, chunkSize));
+        }
+        if ( options.getMaxPrefetch() > 0 ){
+            result.setPrefetch(
+                chunks(options.getMinPrefetch(), chunkSize), chunks(options.getMaxPrefetch(), chunkSize));
+        }
+        return result;
+    }
+
+    private static int chunks(int values, int chunkSize){
+        return (int) ((values + (long) chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Uses the lock-free ring buffer, which grows on demand for a large or
+     * unbounded capacity, unless the oldest values must be dropped.
+     */
+    private static <T> Handoff<T> create(int capacity, OverflowPolicy policy, WaitStrategy strategy){
+        if ( policy != OverflowPolicy.DROP_OLDEST ){
+            return new RingBufferHandoff<T>(capacity, policy, strategy);
+        }
+        return new MonitorHandoff<T>(capacity, policy);
+    }
+
+    /**
+     * Chooses the length of a ring that holds the given number of values,
+     * which is the least power of two that is not smaller.
+     * @throws IllegalArgumentException If the capacity is not between 1 and MAX_RING_CAPACITY.
+     */
+    static int ringSize(int capacity){
+        if ( (capacity <= 0) || (capacity > MAX_RING_CAPACITY) ){
+            throw new IllegalArgumentException("Ring capacity must be between 1 and " + MAX_RING_CAPACITY + ".");
+        }
+        int size = Integer.highestOneBit(capacity);
+        return (size < capacity) ? (size << 1) : size;
+    }
+
+    /**
+     * Waits until a value is available or the generator has finished.
+     * @return True if a value is available, false if the generator has finished.
+     * @throws InterruptedException If the consumer is interrupted while waiting.
+     */
+    final boolean awaitNext() throws InterruptedException {
+        try {
+            return awaitNext(NO_DEADLINE);
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("Timed out without a deadline.", ex);
+        }
+    }
+
+    /**
+     * The largest capacity of a ring, whose length is a power of two.
+     */
+    static final int MAX_RING_CAPACITY = 1 << 30;
+}
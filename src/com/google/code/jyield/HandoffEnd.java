@@ -0,0 +1,178 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The part common to either side of a handoff: its cancellation state, the
+ * worker that cancel() interrupts, and the helpers the buffers share. A
+ * handoff between one producer and one consumer is both sides at once; the
+ * handoffs with several producers or consumers give each its own side.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+abstract class HandoffEnd
+{
+    /**
+     * Cancels the generator: the next call to yield throws a
+     * GeneratorCancelledException, a waiting producer is woken up, the
+     * worker is interrupted, and the consumer sees no further values.
+     */
+    public final void cancel(){
+        _cancelled = true;
+        onCancel();
+        synchronized (_workerLock){
+            if ( _worker != null ){
+                _worker.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Wakes up a waiting producer and releases buffered values after cancel().
+     */
+    abstract void onCancel();
+
+    /**
+     * Reports whether cancel() was called.
+     */
+    public final boolean isCancelled(){
+        return _cancelled;
+    }
+
+    /**
+     * Throws a GeneratorCancelledException if cancel() was called.
+     */
+    final void checkCancelled(){
+        if ( _cancelled ){
+            throw new GeneratorCancelledException();
+        }
+    }
+
+    /**
+     * Records the current thread as the worker that cancel() interrupts.
+     */
+    final void attachWorker(){
+        synchronized (_workerLock){
+            _worker = Thread.currentThread();
+            if ( _cancelled ){
+                _worker.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Forgets the worker, clearing any interrupt that cancel() left behind
+     * so that it does not leak into the next task of a pooled thread.
+     */
+    final void detachWorker(){
+        synchronized (_workerLock){
+            _worker = null;
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Throws the exception for a producer interrupted while waiting for space.
+     */
+    final RuntimeException interruptedProducer(InterruptedException cause){
+        if ( _cancelled ){
+            return new GeneratorCancelledException();
+        }
+        Thread.currentThread().interrupt();
+        return new IllegalStateException("Interrupted while waiting for buffer space.", cause);
+    }
+
+    /**
+     * Converts a timeout into a deadline for awaitNext. A timeout too long
+     * to be represented means no deadline.
+     */
+    static long deadline(long timeout, TimeUnit unit){
+        long nanos = unit.toNanos(timeout);
+        if ( nanos >= MAX_TIMEOUT_NANOS ){
+            return NO_DEADLINE;
+        }
+        return System.nanoTime() + Math.max(0, nanos);
+    }
+
+    /**
+     * Throws a TimeoutException if the deadline has passed.
+     */
+    static void checkDeadline(long deadline) throws TimeoutException {
+        if ( (deadline != NO_DEADLINE) && (deadline - System.nanoTime() <= 0) ){
+            throw new TimeoutException();
+        }
+    }
+
+    /**
+     * Waits on the given monitor, which the caller holds, until notified or
+     * the deadline passes. The caller rechecks its condition before calling again.
+     * @throws TimeoutException If the deadline had already passed.
+     */
+    static void waitUntil(Object monitor, long deadline) throws InterruptedException, TimeoutException {
+        if ( deadline == NO_DEADLINE ){
+            monitor.wait();
+            return;
+        }
+        long remaining = deadline - System.nanoTime();
+        if ( remaining <= 0 ){
+            throw new TimeoutException();
+        }
+        TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+    }
+
+    /**
+     * Parks the current thread until unparked or the deadline passes. The
+     * caller rechecks its condition and the deadline before calling again.
+     */
+    static void parkUntil(Object blocker, long deadline){
+        if ( deadline == NO_DEADLINE ){
+            LockSupport.park(blocker);
+            return;
+        }
+        long remaining = deadline - System.nanoTime();
+        if ( remaining > 0 ){
+            LockSupport.parkNanos(blocker, remaining);
+        }
+    }
+
+    /**
+     * Replaces null, which the buffers cannot hold, with a placeholder.
+     */
+    static Object mask(Object obj){
+        return (obj == null) ? NULL : obj;
+    }
+
+    /**
+     * Reverses the effect of mask().
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T unmask(Object obj){
+        return (obj == NULL) ? null : (T) obj;
+    }
+
+    /**
+     * Rethrows the exception that terminated the generator on the consumer's thread.
+     */
+    static void rethrow(Throwable failure){
+        if ( failure instanceof RuntimeException ){
+            throw (RuntimeException) failure;
+        }
+        if ( failure instanceof Error ){
+            throw (Error) failure;
+        }
+        throw new RuntimeException(failure);
+    }
+
+    /**
+     * The deadline of a wait without a time limit.
+     */
+    static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private static final long MAX_TIMEOUT_NANOS = Long.MAX_VALUE / 4;
+    private static final Object NULL = new Object();
+
+    private final Object _workerLock = new Object();
+    private Thread _worker = null;
+    private volatile boolean _cancelled = false;
+}
@@ -0,0 +1,17 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * A generator of int values, which are yielded without boxing them.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface IntGenerator
+{
+    /**
+     * A function that will repeatedly yield values to the
+     * yieldable object, until there are no values remaining.
+     * It is not required that the generate function ever terminate.
+     * @param yieldable An object capable of receiving yields.
+     */
+    public void generate(IntYieldable yieldable);
+}
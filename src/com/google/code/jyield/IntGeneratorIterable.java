@@ -0,0 +1,89 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * An iterable that runs an int generator on a worker thread for each
+ * iterator, passing the values to the iterator in unboxed chunks. The
+ * iterators are also CloseableIterators; closing one, or letting it become
+ * unreachable, cancels its generator.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class IntGeneratorIterable implements IntIterable
+{
+    public IntGeneratorIterable(IntGenerator generator, YieldOptions options){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( options == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        _generator = generator;
+        _options = new YieldOptions(options);
+    }
+
+    public PrimitiveIterator.OfInt iterator(){
+        IntHandoff handoff = new IntHandoff(_generator, _options);
+        handoff.start(_options);
+        return new IntHandoffIterator(handoff);
+    }
+
+    private static class IntHandoff extends PrimitiveHandoff<int[]> implements IntYieldable
+    {
+        public IntHandoff(IntGenerator generator, YieldOptions options){
+            super(options);
+            _generator = generator;
+        }
+
+        void generate(){
+            _generator.generate(this);
+        }
+
+        public void yield(int value){
+            beforeStore();
+            producerChunk[count++] = value;
+            afterStore();
+        }
+
+        int nextInt(){
+            return consumerChunk[position++];
+        }
+
+        int[] newChunk(int length){
+            return new int[length];
+        }
+
+        int[] copyOf(int[] chunk, int count){
+            return Arrays.copyOf(chunk, count);
+        }
+
+        int length(int[] chunk){
+            return chunk.length;
+        }
+
+        private final IntGenerator _generator;
+    }
+
+    private static class IntHandoffIterator extends PrimitiveHandoffIterator<Integer> implements PrimitiveIterator.OfInt
+    {
+        public IntHandoffIterator(IntHandoff handoff){
+            super(handoff);
+            _handoff = handoff;
+        }
+
+        public int nextInt() {
+            advance();
+            return _handoff.nextInt();
+        }
+
+        public Integer next() {
+            return nextInt();
+        }
+
+        private final IntHandoff _handoff;
+    }
+
+    private final IntGenerator _generator;
+    private final YieldOptions _options;
+}
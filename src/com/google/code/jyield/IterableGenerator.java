@@ -0,0 +1,65 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+
+/**
+ * A generator that yields the values of an iterable, and which remains
+ * an iterable itself so that the iterable's own iterator and spliterator
+ * can be used when the generator is converted back. An ArrayList, or a list
+ * from Arrays.asList, is generated by index, without an iterator; a change
+ * in its size while it is generated, such as a consumer adding to the list
+ * it reads, fails with a ConcurrentModificationException, as its iterator
+ * would. Other lists, even random-access ones such as CopyOnWriteArrayList
+ * or a synchronized list, rely on their iterator for a consistent traversal.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class IterableGenerator<T> implements Generator<T>, Iterable<T>, SizeHint
+{
+    public IterableGenerator(Iterable<T> iterable){
+        if ( iterable == null ){
+            throw new IllegalArgumentException("Iterable cannot be null.");
+        }
+        _iterable = iterable;
+    }
+
+    public void generate(Yieldable<T> yieldable) {
+        Class<?> type = _iterable.getClass();
+        if ( (type == ArrayList.class) || (type == ARRAY_LIST) ){
+            List<T> list = (List<T>) _iterable;
+            for ( int i = 0, size = list.size(); i < size; i++ ){
+                yieldable.yield(list.get(i));
+                if ( list.size() != size ){
+                    throw new ConcurrentModificationException();
+                }
+            }
+            return;
+        }
+        for ( T obj : _iterable ){
+            yieldable.yield(obj);
+        }
+    }
+
+    public Iterator<T> iterator() {
+        return _iterable.iterator();
+    }
+
+    public Spliterator<T> spliterator() {
+        return _iterable.spliterator();
+    }
+
+    public long sizeHint() {
+        return YieldUtils.sizeHint(_iterable);
+    }
+
+    /**
+     * The class of the lists that Arrays.asList returns.
+     */
+    private static final Class<?> ARRAY_LIST = Arrays.asList().getClass();
+
+    private final Iterable<T> _iterable;
+}
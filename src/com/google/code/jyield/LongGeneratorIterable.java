@@ -0,0 +1,89 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * An iterable that runs a long generator on a worker thread for each
+ * iterator, passing the values to the iterator in unboxed chunks. The
+ * iterators are also CloseableIterators; closing one, or letting it become
+ * unreachable, cancels its generator.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class LongGeneratorIterable implements LongIterable
+{
+    public LongGeneratorIterable(LongGenerator generator, YieldOptions options){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( options == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        _generator = generator;
+        _options = new YieldOptions(options);
+    }
+
+    public PrimitiveIterator.OfLong iterator(){
+        LongHandoff handoff = new LongHandoff(_generator, _options);
+        handoff.start(_options);
+        return new LongHandoffIterator(handoff);
+    }
+
+    private static class LongHandoff extends PrimitiveHandoff<long[]> implements LongYieldable
+    {
+        public LongHandoff(LongGenerator generator, YieldOptions options){
+            super(options);
+            _generator = generator;
+        }
+
+        void generate(){
+            _generator.generate(this);
+        }
+
+        public void yield(long value){
+            beforeStore();
+            producerChunk[count++] = value;
+            afterStore();
+        }
+
+        long nextLong(){
+            return consumerChunk[position++];
+        }
+
+        long[] newChunk(int length){
+            return new long[length];
+        }
+
+        long[] copyOf(long[] chunk, int count){
+            return Arrays.copyOf(chunk, count);
+        }
+
+        int length(long[] chunk){
+            return chunk.length;
+        }
+
+        private final LongGenerator _generator;
+    }
+
+    private static class LongHandoffIterator extends PrimitiveHandoffIterator<Long> implements PrimitiveIterator.OfLong
+    {
+        public LongHandoffIterator(LongHandoff handoff){
+            super(handoff);
+            _handoff = handoff;
+        }
+
+        public long nextLong() {
+            advance();
+            return _handoff.nextLong();
+        }
+
+        public Long next() {
+            return nextLong();
+        }
+
+        private final LongHandoff _handoff;
+    }
+
+    private final LongGenerator _generator;
+    private final YieldOptions _options;
+}
@@ -0,0 +1,12 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.PrimitiveIterator;
+
+/**
+ * An iterable whose iterators can return long values without boxing them.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface LongIterable extends Iterable<Long>
+{
+    public PrimitiveIterator.OfLong iterator();
+}
@@ -0,0 +1,104 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A handoff that reports the traffic through another handoff to a
+ * metrics listener. The consumer is only timed when it actually has to
+ * wait, so an iterator that keeps up pays only for the counting. Values
+ * dropped by the overflow policy are reported as they are dropped; values
+ * left in the buffer when the iterator is closed are reported once both
+ * the generator has stopped and the iterator has been closed.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class MeteredHandoff<T> extends Handoff<T>
+{
+    public MeteredHandoff(Handoff<T> handoff, YieldMetricsListener listener){
+        _handoff = handoff;
+        _listener = listener;
+    }
+
+    public void yield(T obj){
+        checkCancelled();
+        long start = System.nanoTime();
+        _handoff.yield(obj);
+        _listener.yielded(System.nanoTime() - start);
+        _yielded++;
+        long dropped = _handoff.dropped();
+        if ( dropped != _dropped ){
+            _listener.discarded(dropped - _dropped);
+            _dropped = dropped;
+        }
+    }
+
+    void finish(Throwable failure){
+        try {
+            _handoff.finish(failure);
+        } finally {
+            _finished = true;
+            if ( isCancelled() ){
+                discardRemaining();
+            }
+        }
+    }
+
+    public boolean awaitNext(long deadline) throws InterruptedException, TimeoutException {
+        if ( isCancelled() ){
+            return false;
+        }
+        if ( _handoff.ready() ){
+            return _handoff.awaitNext(deadline);
+        }
+        long start = System.nanoTime();
+        try {
+            return _handoff.awaitNext(deadline);
+        } finally {
+            _listener.consumerWaited(System.nanoTime() - start);
+        }
+    }
+
+    public boolean ready(){
+        return _handoff.ready();
+    }
+
+    void onCancel(){
+        _handoff.cancel();
+        if ( _finished ){
+            discardRemaining();
+        }
+    }
+
+    public T take(){
+        T result = _handoff.take();
+        _taken++;
+        _listener.consumed();
+        return result;
+    }
+
+    /**
+     * Reports the values that were yielded but neither taken nor dropped.
+     * Called once the generator has stopped and the iterator was closed, by
+     * whichever of the two happened last, so that the counts are final.
+     */
+    private void discardRemaining(){
+        if ( _settled.compareAndSet(false, true) ){
+            long remaining = _yielded - _dropped - _taken;
+            if ( remaining > 0 ){
+                _listener.discarded(remaining);
+            }
+        }
+    }
+
+    private final Handoff<T> _handoff;
+    private final YieldMetricsListener _listener;
+    private final AtomicBoolean _settled = new AtomicBoolean(false);
+    private volatile boolean _finished = false;
+
+    // Owned by the producer, and read by the consumer once _finished is set.
+    private long _yielded = 0;
+    private long _dropped = 0;
+
+    // Owned by the consumer; no value is taken once the iterator is closed.
+    private volatile long _taken = 0;
+}
@@ -0,0 +1,42 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * A yieldable object that reports each value passed to another yieldable
+ * object to a metrics listener, together with the time the other object took
+ * to accept it. This meters generators that are consumed directly, without
+ * converting them to an iterable.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class MeteredYieldable<T> implements CancellableYieldable<T>
+{
+    /**
+     * Wraps the given yieldable object.
+     * @param yieldable The yieldable object that receives the values.
+     * @param listener The listener to report to.
+     */
+    public MeteredYieldable(Yieldable<T> yieldable, YieldMetricsListener listener){
+        if ( yieldable == null ){
+            throw new IllegalArgumentException("Yieldable cannot be null.");
+        }
+        if ( listener == null ){
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        _yieldable = yieldable;
+        _listener = listener;
+    }
+
+    public void yield(T obj){
+        long start = System.nanoTime();
+        _yieldable.yield(obj);
+        _listener.yielded(System.nanoTime() - start);
+        _listener.consumed();
+    }
+
+    public boolean isCancelled(){
+        return YieldUtils.isCancelled(_yieldable);
+    }
+
+    private final Yieldable<T> _yieldable;
+    private final YieldMetricsListener _listener;
+}
@@ -0,0 +1,103 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A handoff that guards a queue with its own monitor.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class MonitorHandoff<T> extends Handoff<T>
+{
+    public MonitorHandoff(int capacity, OverflowPolicy policy){
+        this(capacity, policy, false);
+    }
+
+    /**
+     * Creates a handoff of the chunks of a BatchingHandoff that drops the
+     * oldest chunk when full, counting each dropped chunk as its values.
+     */
+    static MonitorHandoff<Object[]> chunks(int capacity){
+        return new MonitorHandoff<Object[]>(capacity, OverflowPolicy.DROP_OLDEST, true);
+    }
+
+    private MonitorHandoff(int capacity, OverflowPolicy policy, boolean chunks){
+        _capacity = capacity;
+        _policy = policy;
+        _chunks = chunks;
+    }
+
+    public synchronized void yield(T obj){
+        checkCancelled();
+        while ( _queue.size() >= _capacity ){
+            switch ( _policy ){
+                case DROP_OLDEST:
+                    Object oldest = _queue.removeFirst();
+                    _dropped += _chunks ? ((Object[]) oldest).length : 1;
+                    break;
+                case FAIL_FAST:
+                    throw new IllegalStateException("Buffer capacity of " + _capacity + " exceeded.");
+                default:
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        throw interruptedProducer(ex);
+                    }
+                    checkCancelled();
+            }
+        }
+        _queue.addLast(mask(obj));
+        notifyAll();
+    }
+
+    synchronized void finish(Throwable failure){
+        _failure = failure;
+        _done = true;
+        notifyAll();
+    }
+
+    public synchronized boolean awaitNext(long deadline) throws InterruptedException, TimeoutException {
+        while ( _queue.isEmpty() && !_done && !isCancelled() ){
+            waitUntil(this, deadline);
+        }
+        if ( isCancelled() ){
+            return false;
+        }
+        if ( !_queue.isEmpty() ){
+            return true;
+        }
+        if ( _failure != null ){
+            Throwable failure = _failure;
+            _failure = null;
+            rethrow(failure);
+        }
+        return false;
+    }
+
+    public synchronized boolean ready(){
+        return _done || !_queue.isEmpty() || isCancelled();
+    }
+
+    synchronized long dropped(){
+        return _dropped;
+    }
+
+    synchronized void onCancel(){
+        _queue.clear();
+        notifyAll();
+    }
+
+    public synchronized T take(){
+        T result = unmask(_queue.removeFirst());
+        notifyAll();
+        return result;
+    }
+
+    private final ArrayDeque<Object> _queue = new ArrayDeque<Object>();
+    private final int _capacity;
+    private final OverflowPolicy _policy;
+    private final boolean _chunks;
+    private long _dropped = 0;
+    private boolean _done = false;
+    private Throwable _failure = null;
+}
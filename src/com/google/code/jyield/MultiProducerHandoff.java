@@ -0,0 +1,216 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A handoff from several producers to one consumer, through a lock-free
+ * linked queue: a producer appends a node by swapping the tail and then
+ * linking the previous tail to it, and only the consumer moves the head.
+ * Each producer yields and finishes through its own handoff, returned by
+ * producers(); the consumer sees the end only once every producer has
+ * finished. The first failure cancels the other producers and is rethrown
+ * after the values already queued. This object is the consumer's side.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class MultiProducerHandoff<T> extends HandoffEnd implements ConsumerHandoff<T>
+{
+    public MultiProducerHandoff(int producers, int capacity, OverflowPolicy policy){
+        if ( policy == OverflowPolicy.DROP_OLDEST ){
+            throw new IllegalArgumentException("Several producers do not support " + policy + ".");
+        }
+        _capacity = capacity;
+        _policy = policy;
+        List<Producer> list = new ArrayList<Producer>(producers);
+        for ( int i = 0; i < producers; i++ ){
+            list.add(new Producer());
+        }
+        _producers = Collections.unmodifiableList(list);
+        _remaining.set(producers);
+        Node stub = new Node(null);
+        _head = stub;
+        _tail = new AtomicReference<Node>(stub);
+    }
+
+    /**
+     * Returns the handoffs through which the producers yield, in order.
+     */
+    List<? extends ProducerHandoff<T>> producers(){
+        return _producers;
+    }
+
+    public boolean awaitNext(long deadline) throws InterruptedException, TimeoutException {
+        int attempts = 0;
+        while ( true ){
+            if ( isCancelled() ){
+                return false;
+            }
+            // Producers finish only after their values are linked in.
+            boolean done = _remaining.get() == 0;
+            if ( _head.next != null ){
+                return true;
+            }
+            if ( done ){
+                Throwable failure = _failure.getAndSet(null);
+                if ( failure != null ){
+                    rethrow(failure);
+                }
+                return false;
+            }
+            if ( Thread.interrupted() ){
+                throw new InterruptedException();
+            }
+            checkDeadline(deadline);
+            if ( attempts < YIELD_ATTEMPTS ){
+                // A producer may be between swapping the tail and linking it.
+                Thread.yield();
+                attempts++;
+            }else if ( _consumer == null ){
+                // Publish this thread, then recheck before actually parking.
+                _consumer = Thread.currentThread();
+            }else{
+                parkUntil(this, deadline);
+                _consumer = null;
+            }
+        }
+    }
+
+    public boolean ready(){
+        return (_head.next != null) || (_remaining.get() == 0) || isCancelled();
+    }
+
+    public T take(){
+        Node next = _head.next;
+        T result = unmask(next.value);
+        next.value = null;
+        _head = next;
+        if ( _capacity != YieldOptions.UNBOUNDED ){
+            _size.decrementAndGet();
+            if ( _producersWaiting > 0 ){
+                synchronized (_room){
+                    _room.notifyAll();
+                }
+            }
+        }
+        return result;
+    }
+
+    void onCancel(){
+        for ( Producer producer : _producers ){
+            producer.cancel();
+        }
+        wakeConsumer();
+    }
+
+    private void offer(Producer producer, Object value){
+        if ( _capacity != YieldOptions.UNBOUNDED ){
+            reserve(producer);
+        }
+        Node node = new Node(value);
+        Node previous = _tail.getAndSet(node);
+        // A volatile store, so that the waiter check that follows cannot be reordered before it.
+        previous.next = node;
+        wakeConsumer();
+    }
+
+    private void reserve(Producer producer){
+        while ( true ){
+            long size = _size.get();
+            if ( size < _capacity ){
+                if ( _size.compareAndSet(size, size + 1) ){
+                    return;
+                }
+                continue;
+            }
+            if ( _policy == OverflowPolicy.FAIL_FAST ){
+                throw new IllegalStateException("Buffer capacity of " + _capacity + " exceeded.");
+            }
+            synchronized (_room){
+                _producersWaiting++;
+                try {
+                    while ( (_size.get() >= _capacity) && !producer.isCancelled() ){
+                        _room.wait();
+                    }
+                } catch (InterruptedException ex) {
+                    throw producer.interruptedProducer(ex);
+                } finally {
+                    _producersWaiting--;
+                }
+            }
+            producer.checkCancelled();
+        }
+    }
+
+    private void producerFinished(Throwable failure){
+        if ( (failure != null) && _failure.compareAndSet(null, failure) ){
+            for ( Producer producer : _producers ){
+                producer.cancel();
+            }
+        }
+        _remaining.decrementAndGet();
+        wakeConsumer();
+    }
+
+    private void wakeConsumer(){
+        Thread consumer = _consumer;
+        if ( consumer != null ){
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * The handoff through which one producer yields.
+     */
+    private class Producer extends ProducerHandoff<T>
+    {
+        public void yield(T obj){
+            checkCancelled();
+            offer(this, mask(obj));
+        }
+
+        void finish(Throwable failure){
+            producerFinished(failure);
+        }
+
+        void onCancel(){
+            synchronized (_room){
+                _room.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * A node of the queue.
+     */
+    private static class Node
+    {
+        public Node(Object value){
+            this.value = value;
+        }
+
+        volatile Node next = null;
+        Object value;
+    }
+
+    private static final int YIELD_ATTEMPTS = 16;
+
+    private final int _capacity;
+    private final OverflowPolicy _policy;
+    private final List<Producer> _producers;
+    private final AtomicInteger _remaining = new AtomicInteger();
+    private final AtomicReference<Throwable> _failure = new AtomicReference<Throwable>();
+    private final AtomicLong _size = new AtomicLong();
+    private final Object _room = new Object();
+    private volatile int _producersWaiting = 0;
+    private volatile Thread _consumer = null;
+
+    // The queue starts with a stub node; the head is the node last taken.
+    private final AtomicReference<Node> _tail;
+    private Node _head;
+}
@@ -0,0 +1,198 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A handoff that delivers every value of one producer to several consumers.
+ * The values are stored once in a ring that each consumer reads at its own
+ * position; the producer may only overwrite a slot once every consumer has
+ * read it, so the slowest consumer holds the producer back. A consumer that
+ * is closed no longer holds it back, and once every consumer is closed the
+ * producer is cancelled. This object is the producer's side; each consumer
+ * reads through its own handoff, returned by consumers().
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class MulticastHandoff<T> extends ProducerHandoff<T>
+{
+    public MulticastHandoff(int consumers, int capacity){
+        int size = Handoff.ringSize(capacity);
+        _buffer = new Object[size];
+        _mask = size - 1;
+        _capacity = capacity;
+        List<Consumer> list = new ArrayList<Consumer>(consumers);
+        for ( int i = 0; i < consumers; i++ ){
+            list.add(new Consumer());
+        }
+        _consumers = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the handoffs through which the consumers read, in order.
+     */
+    List<? extends ConsumerHandoff<T>> consumers(){
+        return _consumers;
+    }
+
+    public void yield(T obj){
+        checkCancelled();
+        long sequence = _published;
+        if ( sequence - _minimum >= _capacity ){
+            awaitRoom(sequence);
+        }
+        _buffer[(int) (sequence & _mask)] = obj;
+        _published = sequence + 1;
+        if ( _consumersWaiting > 0 ){
+            synchronized (this){
+                notifyAll();
+            }
+        }
+    }
+
+    void finish(Throwable failure){
+        _failure = failure;
+        _done = true;
+        synchronized (this){
+            notifyAll();
+        }
+    }
+
+    synchronized void onCancel(){
+        notifyAll();
+    }
+
+    private void awaitRoom(long sequence){
+        for ( int attempt = 0; attempt < YIELD_ATTEMPTS; attempt++ ){
+            if ( sequence - (_minimum = minimum()) < _capacity ){
+                return;
+            }
+            Thread.yield();
+        }
+        synchronized (this){
+            _producerWaiting = true;
+            try {
+                while ( sequence - (_minimum = minimum()) >= _capacity ){
+                    checkCancelled();
+                    wait();
+                }
+            } catch (InterruptedException ex) {
+                throw interruptedProducer(ex);
+            } finally {
+                _producerWaiting = false;
+            }
+        }
+        checkCancelled();
+    }
+
+    /**
+     * Finds the position of the slowest open consumer, cancelling the
+     * producer if no consumer is open.
+     */
+    private long minimum(){
+        long result = Long.MAX_VALUE;
+        for ( Consumer consumer : _consumers ){
+            if ( !consumer.isCancelled() ){
+                result = Math.min(result, consumer._cursor);
+            }
+        }
+        if ( result == Long.MAX_VALUE ){
+            cancel();
+            checkCancelled();
+        }
+        return result;
+    }
+
+    private void wakeProducer(){
+        if ( _producerWaiting ){
+            synchronized (this){
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The handoff through which one consumer reads.
+     */
+    private class Consumer extends HandoffEnd implements ConsumerHandoff<T>
+    {
+        public boolean awaitNext(long deadline) throws InterruptedException, TimeoutException {
+            if ( isCancelled() ){
+                return false;
+            }
+            if ( _cursor < _published ){
+                return true;
+            }
+            for ( int attempt = 0; (attempt < YIELD_ATTEMPTS) && !_done; attempt++ ){
+                Thread.yield();
+                if ( _cursor < _published ){
+                    return true;
+                }
+            }
+            synchronized (MulticastHandoff.this){
+                _consumersWaiting++;
+                try {
+                    while ( (_cursor >= _published) && !_done && !isCancelled() ){
+                        waitUntil(MulticastHandoff.this, deadline);
+                    }
+                } finally {
+                    _consumersWaiting--;
+                }
+            }
+            if ( isCancelled() ){
+                return false;
+            }
+            if ( _cursor < _published ){
+                return true;
+            }
+            if ( (_failure != null) && !_failureReported ){
+                _failureReported = true;
+                rethrow(_failure);
+            }
+            return false;
+        }
+
+        public boolean ready(){
+            return (_cursor < _published) || _done || isCancelled();
+        }
+
+        @SuppressWarnings("unchecked")
+        public T take(){
+            T result = (T) _buffer[(int) (_cursor & _mask)];
+            _cursor++;
+            wakeProducer();
+            return result;
+        }
+
+        void onCancel(){
+            for ( Consumer consumer : _consumers ){
+                if ( !consumer.isCancelled() ){
+                    synchronized (MulticastHandoff.this){
+                        MulticastHandoff.this.notifyAll();
+                    }
+                    return;
+                }
+            }
+            MulticastHandoff.this.cancel();
+        }
+
+        private volatile long _cursor = 0;
+        private boolean _failureReported = false;
+    }
+
+    private static final int YIELD_ATTEMPTS = 16;
+
+    private final Object[] _buffer;
+    private final int _mask;
+    private final int _capacity;
+    private final List<Consumer> _consumers;
+    private volatile long _published = 0;
+    private volatile boolean _producerWaiting = false;
+    private volatile int _consumersWaiting = 0;
+    private volatile boolean _done = false;
+    private volatile Throwable _failure = null;
+
+    // Owned by the producer.
+    private long _minimum = 0;
+}
@@ -0,0 +1,25 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * Determines what happens when a generator yields a value while the
+ * buffer between the generator and its iterator is already full.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public enum OverflowPolicy
+{
+    /**
+     * The call to yield blocks until the consumer has made room.
+     */
+    BLOCK,
+
+    /**
+     * The oldest value in the buffer is discarded to make room.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The call to yield throws an IllegalStateException.
+     */
+    FAIL_FAST
+}
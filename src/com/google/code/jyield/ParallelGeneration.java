@@ -0,0 +1,122 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs the parts of a partitioned generator on a fork-join pool and
+ * delivers their values to a single yieldable object. Calls to the
+ * yieldable object are serialized, so it need not be thread-safe, unless
+ * the delivery order is CONCURRENT. The first exception of any part,
+ * including a GeneratorCancelledException thrown by the yieldable object,
+ * stops the other parts and is rethrown to the caller.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class ParallelGeneration<T>
+{
+    public ParallelGeneration(List<Generator<T>> parts, Yieldable<T> target, DeliveryOrder order){
+        _parts = parts;
+        _target = target;
+        _ordered = (order == DeliveryOrder.ORDERED);
+        _concurrent = (order == DeliveryOrder.CONCURRENT);
+        _buffers = new ArrayList<List<T>>(parts.size());
+        _done = new boolean[parts.size()];
+        for ( int i = 0; i < parts.size(); i++ ){
+            _buffers.add(new ArrayList<T>());
+        }
+    }
+
+    /**
+     * Runs all parts on the pool and waits for them to finish.
+     */
+    void run(ForkJoinPool pool){
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(_parts.size());
+        for ( int i = 0; i < _parts.size(); i++ ){
+            final int index = i;
+            tasks.add(new Callable<Void>()
+                {
+                    public Void call(){
+                        runPart(index);
+                        return null;
+                    }
+                });
+        }
+        pool.invokeAll(tasks);
+        synchronized (_lock){
+            if ( _failure != null ){
+                Handoff.rethrow(_failure);
+            }
+        }
+    }
+
+    private void runPart(final int index){
+        try {
+            _parts.get(index).generate(new Yieldable<T>()
+                {
+                    public void yield(T obj){
+                        deliver(index, obj);
+                    }
+                });
+            complete(index);
+        } catch (Throwable ex) {
+            synchronized (_lock){
+                if ( _failure == null ){
+                    _failure = ex;
+                    _failed = true;
+                }
+            }
+        }
+    }
+
+    private void deliver(int index, T obj){
+        if ( _concurrent ){
+            if ( _failed ){
+                throw new GeneratorCancelledException();
+            }
+            _target.yield(obj);
+            return;
+        }
+        synchronized (_lock){
+            if ( _failure != null ){
+                throw new GeneratorCancelledException();
+            }
+            if ( !_ordered || (index == _current) ){
+                _target.yield(obj);
+            }else{
+                _buffers.get(index).add(obj);
+            }
+        }
+    }
+
+    private void complete(int index){
+        synchronized (_lock){
+            _done[index] = true;
+            if ( !_ordered ){
+                return;
+            }
+            while ( (_current < _done.length) && _done[_current] ){
+                _current++;
+                if ( _current < _done.length ){
+                    List<T> buffer = _buffers.get(_current);
+                    for ( T obj : buffer ){
+                        _target.yield(obj);
+                    }
+                    _buffers.set(_current, null);
+                }
+            }
+        }
+    }
+
+    private final List<Generator<T>> _parts;
+    private final Yieldable<T> _target;
+    private final boolean _ordered;
+    private final boolean _concurrent;
+    private final Object _lock = new Object();
+    private final List<List<T>> _buffers;
+    private final boolean[] _done;
+    private int _current = 0;
+    private Throwable _failure = null;
+    private volatile boolean _failed = false;
+}
@@ -0,0 +1,21 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.List;
+
+/**
+ * A generator that can split itself into parts that can be run
+ * independently, for example on several threads. See YieldUtils.generateParallel.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface PartitionableGenerator<T> extends Generator<T>
+{
+    /**
+     * Splits the generator into at most the given number of parts, such
+     * that running the parts one after another yields the same values, in
+     * the same order, as this generator. A generator that cannot be split
+     * returns a list that contains only itself.
+     * @param count The maximum number of parts; at least one.
+     * @return A non-empty list of the parts.
+     */
+    public List<Generator<T>> partition(int count);
+}
@@ -0,0 +1,61 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The common part of the handoffs for primitive values. The producer
+ * stores values into a primitive array of type C, which is passed to the
+ * consumer as a whole, as ChunkedHandoff describes, so no value is ever
+ * boxed. Subclasses add the typed yield and next methods.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+abstract class PrimitiveHandoff<C> extends ChunkedHandoff<C>
+{
+    /**
+     * Creates the chunk handoff for the given options. Values are always
+     * passed in chunks; the batch size of the options, if set, is the chunk size.
+     */
+    public PrimitiveHandoff(YieldOptions options){
+        super(Handoff.<C>create(Handoff.chunkOptions(options, chunkSize(options))),
+            chunkSize(options), options.getMaxBatchDelayNanos());
+    }
+
+    /**
+     * Runs the generator into this handoff on a worker, as the options say.
+     */
+    final void start(YieldOptions options){
+        Workers.start(options, new GeneratorTask(chunks())
+            {
+                void generate(){
+                    PrimitiveHandoff.this.generate();
+                }
+
+                void finish(Throwable failure){
+                    PrimitiveHandoff.this.finish(failure);
+                }
+            });
+    }
+
+    /**
+     * Runs the generator into this handoff.
+     */
+    abstract void generate();
+
+    /**
+     * Waits until a value is available at index position of the consumer's chunk.
+     * @return False if the generator has finished or was cancelled.
+     */
+    final boolean awaitNext() throws InterruptedException {
+        try {
+            return awaitNext(Handoff.NO_DEADLINE);
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("Timed out without a deadline.", ex);
+        }
+    }
+
+    private static int chunkSize(YieldOptions options){
+        return (options.getBatchSize() > 1) ? options.getBatchSize() : DEFAULT_CHUNK_SIZE;
+    }
+
+    static final int DEFAULT_CHUNK_SIZE = 256;
+}
@@ -0,0 +1,64 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.NoSuchElementException;
+
+/**
+ * The common part of the iterators over a PrimitiveHandoff. Subclasses
+ * add the unboxed next method of their type, which calls advance first.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+abstract class PrimitiveHandoffIterator<T> implements CloseableIterator<T>
+{
+    public PrimitiveHandoffIterator(PrimitiveHandoff<?> handoff){
+        _handoff = handoff;
+        _registration = Reaper.register(this, handoff.chunks());
+    }
+
+    /**
+     * Reports the end of the values if interrupted, as an Iterator must;
+     * the interrupt is kept so that the caller can tell.
+     */
+    public boolean hasNext() {
+        try {
+            return await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    public void close() {
+        Reaper.unregister(_registration);
+        _handoff.chunks().cancel();
+    }
+
+    /**
+     * Waits until the next value is available in the consumer's chunk.
+     * @throws NoSuchElementException If there are no more values.
+     */
+    final void advance() {
+        try {
+            if ( !await() ){
+                throw new NoSuchElementException();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new NoSuchElementException();
+        }
+    }
+
+    private boolean await() throws InterruptedException {
+        if ( _handoff.awaitNext() ){
+            return true;
+        }
+        Reaper.unregister(_registration);
+        return false;
+    }
+
+    private final PrimitiveHandoff<?> _handoff;
+    private final Object _registration;
+}
@@ -0,0 +1,25 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * The producer's side of a handoff: the Yieldable interface together with
+ * finish(). A GeneratorTask runs the generator into it.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+abstract class ProducerHandoff<T> extends HandoffEnd implements CancellableYieldable<T>
+{
+    /**
+     * Signals that the generator has returned. Called exactly once by the producer.
+     * @param failure The exception that terminated the generator, or null.
+     */
+    abstract void finish(Throwable failure);
+
+    /**
+     * Reports how many values the overflow policy has dropped so far. Only
+     * the DROP_OLDEST policy drops values. Called only by the producer.
+     * @return The number of values dropped.
+     */
+    long dropped(){
+        return 0;
+    }
+}
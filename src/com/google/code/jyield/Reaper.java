@@ -0,0 +1,88 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cancels the generators of iterators that became unreachable without
+ * being closed, so that their workers do not run or wait forever.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+final class Reaper
+{
+    private Reaper(){
+    }
+
+    /**
+     * Arranges for the handoff to be cancelled once the iterator is unreachable.
+     * The handoff must not refer to the iterator.
+     * @param iterator The iterator that consumes from the handoff.
+     * @param handoff The handoff to cancel.
+     * @return A registration to pass to unregister() when the iterator is closed.
+     */
+    static Object register(Object iterator, ConsumerHandoff<?> handoff){
+        Registration result = new Registration(iterator, handoff);
+        LIVE.add(result);
+        Daemon.ensureStarted();
+        return result;
+    }
+
+    /**
+     * Cancels a registration, typically because the iterator was closed.
+     * @param registration The result of register().
+     */
+    static void unregister(Object registration){
+        Registration reference = (Registration) registration;
+        LIVE.remove(reference);
+        reference.clear();
+    }
+
+    private static class Registration extends PhantomReference<Object>
+    {
+        public Registration(Object iterator, ConsumerHandoff<?> handoff){
+            super(iterator, QUEUE);
+            _handoff = handoff;
+        }
+
+        final ConsumerHandoff<?> _handoff;
+    }
+
+    private static class Daemon
+    {
+        static final Thread THREAD = start();
+
+        static void ensureStarted(){
+        }
+
+        private static Thread start(){
+            Thread result = new Thread("jyield-reaper")
+                {
+                    public void run(){
+                        while ( true ){
+                            try {
+                                Reference<?> reference = QUEUE.remove();
+                                if ( LIVE.remove(reference) ){
+                                    ((Registration) reference)._handoff.cancel();
+                                }
+                            } catch (InterruptedException ex) {
+                                // Keep reaping; this thread lives as long as the class.
+                            } catch (RuntimeException ex) {
+                                // A failure to cancel one generator must not stop the others.
+                            }
+                        }
+                    }
+                };
+            result.setDaemon(true);
+            result.start();
+            return result;
+        }
+    }
+
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<Object>();
+    private static final Set<Registration> LIVE =
+        Collections.newSetFromMap(new ConcurrentHashMap<Registration, Boolean>());
+}
@@ -0,0 +1,16 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * Takes back objects that their user has finished with, so that they can be
+ * used again. See YieldOptions.setRecycler and RecyclingPool.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface Recycler<T>
+{
+    /**
+     * Takes back an object. The caller must not use the object afterwards.
+     * @param obj The object.
+     */
+    public void recycle(T obj);
+}
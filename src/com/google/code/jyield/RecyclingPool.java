@@ -0,0 +1,100 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, thread-safe pool of reusable objects, so that a generator can
+ * yield mutable records without allocating one per value. The protocol is:
+ *
+ * <ul>
+ * <li>The generator acquires an object, fills it and yields it. From then on
+ *     the object belongs to the consumer, and the generator must not touch it.</li>
+ * <li>The consumer may use the object returned by next() until it calls next()
+ *     again or closes the iterator; an iterator whose options name this pool as
+ *     their recycler then returns the object to the pool. Calling hasNext()
+ *     does not release the object. A consumer that needs a value for longer
+ *     must copy it.</li>
+ * </ul>
+ *
+ * Acquiring never waits: if no object is idle, a new one is created. At most
+ * maxIdle objects are kept; objects recycled beyond that are left to the
+ * garbage collector, so the pool never holds more than a bounded amount of memory.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class RecyclingPool<T> implements Recycler<T>
+{
+    /**
+     * Constructs a pool.
+     * @param factory Creates a new object when none is idle.
+     * @param maxIdle The maximum number of idle objects kept.
+     */
+    public RecyclingPool(Supplier<? extends T> factory, int maxIdle){
+        this(factory, maxIdle, null);
+    }
+
+    /**
+     * Constructs a pool that resets each object as it is recycled.
+     * @param factory Creates a new object when none is idle.
+     * @param maxIdle The maximum number of idle objects kept.
+     * @param reset Clears an object for reuse, or null.
+     */
+    public RecyclingPool(Supplier<? extends T> factory, int maxIdle, Consumer<? super T> reset){
+        if ( factory == null ){
+            throw new IllegalArgumentException("Factory cannot be null.");
+        }
+        if ( maxIdle <= 0 ){
+            throw new IllegalArgumentException("Maximum idle must be >= 1.");
+        }
+        _factory = factory;
+        _reset = reset;
+        _idle = new ArrayBlockingQueue<T>(maxIdle);
+    }
+
+    /**
+     * Takes an idle object, or creates one if none is idle.
+     * @return An object that now belongs to the caller.
+     */
+    public T acquire(){
+        T result = _idle.poll();
+        if ( result == null ){
+            result = _factory.get();
+            if ( result == null ){
+                throw new IllegalStateException("Factory returned null.");
+            }
+            _created.incrementAndGet();
+        }
+        return result;
+    }
+
+    public void recycle(T obj){
+        if ( obj == null ){
+            return;
+        }
+        if ( _reset != null ){
+            _reset.accept(obj);
+        }
+        _idle.offer(obj);
+    }
+
+    /**
+     * Reports the number of objects that are waiting to be reused.
+     */
+    public int getIdleCount(){
+        return _idle.size();
+    }
+
+    /**
+     * Reports the number of objects that the pool has created.
+     */
+    public long getCreatedCount(){
+        return _created.get();
+    }
+
+    private final Supplier<? extends T> _factory;
+    private final Consumer<? super T> _reset;
+    private final ArrayBlockingQueue<T> _idle;
+    private final AtomicLong _created = new AtomicLong();
+}
@@ -0,0 +1,19 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * A generator that can be run one step at a time. YieldUtils.toIterable
+ * runs such a generator on the thread that uses the iterator, one step
+ * whenever the iterator needs another value, instead of on a worker thread.
+ * The generate method should yield the same values as a continuation
+ * resumed until it finishes.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface ResumableGenerator<T> extends Generator<T>
+{
+    /**
+     * Begins a new, independent run of the generator.
+     * @return The continuation of the run, positioned before its first value.
+     */
+    public Continuation<T> start();
+}
@@ -0,0 +1,92 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterable that runs a resumable generator on the consumer's thread,
+ * resuming it whenever the iterator runs out of values.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class ResumableIterable<T> implements CloseableIterable<T>
+{
+    public ResumableIterable(ResumableGenerator<T> generator){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        _generator = generator;
+    }
+
+    public CloseableIterator<T> iterator(){
+        return new ResumableIterator<T>(_generator.start());
+    }
+
+    private static class ResumableIterator<T> implements CloseableIterator<T>, CancellableYieldable<T>
+    {
+        public ResumableIterator(Continuation<T> continuation){
+            _continuation = continuation;
+        }
+
+        public void yield(T obj) {
+            if ( _closed ){
+                throw new GeneratorCancelledException();
+            }
+            _buffer.addLast(Handoff.mask(obj));
+        }
+
+        public boolean isCancelled() {
+            return _closed;
+        }
+
+        public boolean hasNext() {
+            while ( _buffer.isEmpty() && !_finished ){
+                try {
+                    _finished = !_continuation.resume(this);
+                } catch (GeneratorCancelledException ex) {
+                    _finished = true;
+                } catch (RuntimeException ex) {
+                    // Values yielded before the failure are still delivered first.
+                    _finished = true;
+                    _failure = ex;
+                } catch (Error ex) {
+                    _finished = true;
+                    _failure = ex;
+                }
+            }
+            if ( !_buffer.isEmpty() ){
+                return true;
+            }
+            if ( _failure != null ){
+                Throwable failure = _failure;
+                _failure = null;
+                Handoff.rethrow(failure);
+            }
+            return false;
+        }
+
+        public T next() {
+            if ( !hasNext() ){
+                throw new NoSuchElementException();
+            }
+            return Handoff.unmask(_buffer.removeFirst());
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        public void close() {
+            _closed = true;
+            _finished = true;
+            _buffer.clear();
+        }
+
+        private final Continuation<T> _continuation;
+        private final ArrayDeque<Object> _buffer = new ArrayDeque<Object>();
+        private boolean _finished = false;
+        private boolean _closed = false;
+        private Throwable _failure = null;
+    }
+
+    private final ResumableGenerator<T> _generator;
+}
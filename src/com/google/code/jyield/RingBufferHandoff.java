@@ -0,0 +1,257 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free handoff for exactly one producer and one consumer, backed
+ * by an array. The producer owns the tail sequence and the consumer owns
+ * the head sequence; each side caches the other's sequence and only rereads
+ * it when the cached value says that the buffer is full or empty. A thread
+ * that has to wait publishes itself so that the other side unparks it.
+ * A capacity that is too large to allocate up front, such as UNBOUNDED, is
+ * served by a chain of fixed-size segments instead of a single ring: the
+ * producer links a new segment each time it fills one, and the consumer
+ * follows the link and drops the segment it has emptied.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+class RingBufferHandoff<T> extends Handoff<T>
+{
+    public RingBufferHandoff(int capacity, OverflowPolicy policy, WaitStrategy strategy){
+        if ( policy == OverflowPolicy.DROP_OLDEST ){
+            throw new IllegalArgumentException("The ring buffer does not support " + policy + ".");
+        }
+        _segmented = capacity > MAX_PREALLOCATED_CAPACITY;
+        int size = _segmented ? SEGMENT_SIZE : ringSize(capacity);
+        // A segment has one more slot, which links it to the next segment.
+        _producerBuffer = new Object[_segmented ? (size + 1) : size];
+        _consumerBuffer = _producerBuffer;
+        _mask = size - 1;
+        _capacity = capacity;
+        _policy = policy;
+        // Spinning cannot make progress while the other side needs the only processor.
+        if ( (strategy == WaitStrategy.SPIN) && UNIPROCESSOR ){
+            _strategy = WaitStrategy.YIELD_THEN_PARK;
+        }else{
+            _strategy = strategy;
+        }
+    }
+
+    public void yield(T obj){
+        checkCancelled();
+        long tail = _tail.value;
+        if ( tail - _tail.cached >= _capacity ){
+            _tail.cached = _head.value;
+            if ( tail - _tail.cached >= _capacity ){
+                if ( _policy == OverflowPolicy.FAIL_FAST ){
+                    throw new IllegalStateException("Buffer capacity of " + _capacity + " exceeded.");
+                }
+                awaitSpace(tail);
+            }
+        }
+        int index = (int) tail & _mask;
+        if ( _segmented && (index == 0) && (tail != 0) ){
+            Object[] segment = new Object[_mask + 2];
+            // Published to the consumer along with the tail below.
+            _producerBuffer[_mask + 1] = segment;
+            _producerBuffer = segment;
+        }
+        _producerBuffer[index] = mask(obj);
+        publish(_tail, tail + 1);
+        wake(_consumer);
+    }
+
+    void finish(Throwable failure){
+        _failure = failure;
+        _done = true;
+        wake(_consumer);
+    }
+
+    public boolean awaitNext(long deadline) throws InterruptedException, TimeoutException {
+        if ( isCancelled() ){
+            return false;
+        }
+        long head = _head.value;
+        if ( head < _head.cached ){
+            return true;
+        }
+        _head.cached = _tail.value;
+        if ( head < _head.cached ){
+            return true;
+        }
+        try {
+            return awaitData(head, deadline);
+        } finally {
+            // Stop the producer from unparking this thread on every yield.
+            _consumer = null;
+        }
+    }
+
+    public boolean ready(){
+        return _done || (_head.value < _tail.value) || isCancelled();
+    }
+
+    void onCancel(){
+        Arrays.fill(_consumerBuffer, 0, _mask + 1, null);
+        wake(_producer);
+        wake(_consumer);
+    }
+
+    public T take(){
+        long head = _head.value;
+        int index = (int) head & _mask;
+        if ( _segmented && (index == 0) && (head != 0) ){
+            Object[] segment = (Object[]) _consumerBuffer[_mask + 1];
+            _consumerBuffer[_mask + 1] = null;
+            _consumerBuffer = segment;
+        }
+        T result = unmask(_consumerBuffer[index]);
+        _consumerBuffer[index] = null;
+        publish(_head, head + 1);
+        wake(_producer);
+        return result;
+    }
+
+    private boolean awaitData(long head, long deadline) throws InterruptedException, TimeoutException {
+        int attempts = 0;
+        while ( true ){
+            // The done flag is written after the final value is published.
+            boolean done = _done;
+            if ( isCancelled() ){
+                return false;
+            }
+            _head.cached = _tail.value;
+            if ( head < _head.cached ){
+                return true;
+            }
+            if ( done ){
+                if ( _failure != null ){
+                    Throwable failure = _failure;
+                    _failure = null;
+                    rethrow(failure);
+                }
+                return false;
+            }
+            if ( Thread.interrupted() ){
+                throw new InterruptedException();
+            }
+            checkDeadline(deadline);
+            attempts = pause(attempts, CONSUMER, deadline);
+        }
+    }
+
+    private void awaitSpace(long tail){
+        int attempts = 0;
+        while ( tail - (_tail.cached = _head.value) >= _capacity ){
+            checkCancelled();
+            if ( Thread.interrupted() ){
+                throw interruptedProducer(new InterruptedException());
+            }
+            attempts = pause(attempts, PRODUCER, NO_DEADLINE);
+        }
+        _producer = null;
+    }
+
+    /**
+     * Waits a little, according to the wait strategy, before the caller rechecks its condition.
+     * @return The number of attempts made so far.
+     */
+    private int pause(int attempts, int side, long deadline){
+        if ( _strategy == WaitStrategy.SPIN ){
+            return attempts;
+        }
+        if ( _strategy == WaitStrategy.YIELD_THEN_PARK ){
+            if ( attempts < SPIN_ATTEMPTS ){
+                return attempts + 1;
+            }
+            if ( attempts < SPIN_ATTEMPTS + YIELD_ATTEMPTS ){
+                Thread.yield();
+                return attempts + 1;
+            }
+        }
+        // Publish this thread, then let the caller recheck before actually parking.
+        if ( side == CONSUMER ){
+            if ( _consumer == null ){
+                _consumer = Thread.currentThread();
+                return attempts;
+            }
+            parkUntil(this, deadline);
+            _consumer = null;
+        }else{
+            if ( _producer == null ){
+                _producer = Thread.currentThread();
+                return attempts;
+            }
+            LockSupport.park(this);
+            _producer = null;
+        }
+        return attempts;
+    }
+
+    private void publish(Sequence sequence, long value){
+        if ( _strategy == WaitStrategy.SPIN ){
+            UPDATER.lazySet(sequence, value);
+        }else{
+            // A full fence, so that the waiter check that follows cannot be reordered before it.
+            sequence.value = value;
+        }
+    }
+
+    private static void wake(Thread waiter){
+        if ( waiter != null ){
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    private static final int CONSUMER = 0;
+    private static final int PRODUCER = 1;
+    private static final boolean UNIPROCESSOR = Runtime.getRuntime().availableProcessors() == 1;
+    private static final int SPIN_ATTEMPTS = 128;
+    private static final int YIELD_ATTEMPTS = 16;
+    private static final int MAX_PREALLOCATED_CAPACITY = 1 << 20;
+    private static final int SEGMENT_SIZE = 1 << 10;
+    private static final AtomicLongFieldUpdater<SequenceFields> UPDATER =
+        AtomicLongFieldUpdater.newUpdater(SequenceFields.class, "value");
+
+    private final boolean _segmented;
+    private Object[] _producerBuffer;
+    private Object[] _consumerBuffer;
+    private final int _mask;
+    private final int _capacity;
+    private final OverflowPolicy _policy;
+    private final WaitStrategy _strategy;
+    private final Sequence _head = new Sequence();
+    private final Sequence _tail = new Sequence();
+    private volatile Thread _consumer = null;
+    private volatile Thread _producer = null;
+    private volatile boolean _done = false;
+    private Throwable _failure = null;
+
+    /**
+     * Padding that keeps a sequence off the cache line of the fields before it.
+     */
+    static class LeftPadding
+    {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    /**
+     * The position written by one side, plus that side's cached copy of the
+     * other side's position.
+     */
+    static class SequenceFields extends LeftPadding
+    {
+        volatile long value = 0;
+        long cached = 0;
+    }
+
+    /**
+     * Padding that keeps a sequence off the cache line of the fields after it.
+     */
+    static class Sequence extends SequenceFields
+    {
+        long p9, p10, p11, p12, p13, p14, p15;
+    }
+}
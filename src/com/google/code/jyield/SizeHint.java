@@ -0,0 +1,19 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * A source of values that knows in advance how many values it will produce,
+ * so that the sinks in YieldUtils can size their storage once rather than
+ * growing it repeatedly. Wrappers that produce one value per value of their
+ * source, such as TransformedGenerator, pass the hint of their source through.
+ * See YieldUtils.sizeHint.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface SizeHint
+{
+    /**
+     * Reports how many values will be produced.
+     * @return The exact number of values, or -1 if it is not known.
+     */
+    public long sizeHint();
+}
@@ -0,0 +1,11 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * An iterable whose iterators can bound their waits for the next value.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface TimedIterable<T> extends CloseableIterable<T>
+{
+    public TimedIterator<T> iterator();
+}
@@ -0,0 +1,56 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * An iterator over the values of a generator running on a worker thread,
+ * whose waits for the next value can be bounded. A timeout is reported as a
+ * TimeoutException and an interrupt as an InterruptedException, so neither
+ * can be mistaken for the end of the values. After either, the iterator is
+ * unchanged and the same value can be waited for again.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface TimedIterator<T> extends CloseableIterator<T>
+{
+    /**
+     * Waits at most the given time for the next value or the end of the values.
+     * @param timeout The longest time to wait.
+     * @param unit The unit of the timeout.
+     * @return True if a value is available, false if the generator has finished.
+     * @throws TimeoutException If neither happened in time.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    public boolean hasNext(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException;
+
+    /**
+     * Waits at most the given time for the next value and returns it.
+     * @param timeout The longest time to wait.
+     * @param unit The unit of the timeout.
+     * @return The next value.
+     * @throws NoSuchElementException If the generator has finished.
+     * @throws TimeoutException If no value arrived in time.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    public T next(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException;
+
+    /**
+     * Reports for how many values the iterator waited longer than the
+     * latency SLA of the options. The wait for a value is measured from the
+     * first attempt to get it, across any attempts that timed out, and
+     * counts as a breach as soon as it exceeds the SLA.
+     * @return The number of breaches, or 0 if no SLA was set.
+     * @see YieldOptions#setLatencySla(long, TimeUnit)
+     */
+    public long getSlaBreaches();
+
+    /**
+     * Reports the longest time this iterator has waited for a value, measured
+     * the same way as for getSlaBreaches. Without a latency SLA, only the
+     * timed hasNext and next are measured; the untimed ones wait without
+     * taking timestamps, unless they resume a wait that timed out.
+     * @return The longest measured wait in nanoseconds.
+     */
+    public long getMaxWaitNanos();
+}
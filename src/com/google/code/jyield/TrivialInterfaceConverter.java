@@ -7,11 +7,31 @@ package com.google.code.jyield;
  */
 public class TrivialInterfaceConverter<T> implements GeneratorToIterableConverter<T>, IterableToGeneratorConverter<T>
 {
+    /**
+     * Constructs a converter that uses the default options.
+     */
+    public TrivialInterfaceConverter(){
+        this(new YieldOptions());
+    }
+
+    /**
+     * Constructs a converter that converts generators with the given options.
+     * @param options The options, which are copied.
+     */
+    public TrivialInterfaceConverter(YieldOptions options){
+        if ( options == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        _options = new YieldOptions(options);
+    }
+
     public Iterable<T> convertGeneratorToIterable(final Generator<T> generator) {
-        return YieldUtils.toIterable(generator);
+        return YieldUtils.toIterable(generator, _options);
     }
 
     public Generator<T> convertIterableToGenerator(final Iterable<T> iterable) {
         return YieldUtils.toGenerator(iterable);
     }
+
+    private final YieldOptions _options;
 }
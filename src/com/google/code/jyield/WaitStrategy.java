@@ -0,0 +1,26 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * Determines how the generator and the iterator wait for each other
+ * when they exchange values through a bounded buffer.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public enum WaitStrategy
+{
+    /**
+     * Busy-waits. Gives the lowest latency, but occupies a core while waiting.
+     * On a single processor this behaves like YIELD_THEN_PARK.
+     */
+    SPIN,
+
+    /**
+     * Spins briefly, then yields the processor, then parks the thread.
+     */
+    YIELD_THEN_PARK,
+
+    /**
+     * Parks the thread immediately. Uses the least processor time.
+     */
+    BLOCK
+}
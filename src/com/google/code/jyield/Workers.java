@@ -0,0 +1,84 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts the worker threads on which generators run.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+final class Workers
+{
+    private Workers(){
+    }
+
+    /**
+     * Runs the given task as configured by the options: on the executor, on
+     * a thread from the thread factory, or else on a new platform thread.
+     * @param options The options of the conversion.
+     * @param task The task that runs the generator.
+     */
+    static void start(YieldOptions options, Runnable task){
+        if ( options.getExecutor() != null ){
+            options.getExecutor().execute(task);
+        }else if ( options.getThreadFactory() != null ){
+            options.getThreadFactory().newThread(task).start();
+        }else{
+            new Thread(task).start();
+        }
+    }
+
+    /**
+     * Returns an executor that runs each task on a new virtual thread when
+     * the runtime supports them, and otherwise on a shared pool of daemon
+     * threads that grows as needed. The pool cannot be bounded, since a
+     * generator blocks its worker for as long as its iterator is in use.
+     * @return A shared executor.
+     */
+    static Executor virtualThreadExecutor(){
+        return VirtualThreads.EXECUTOR;
+    }
+
+    private static class VirtualThreads
+    {
+        static final Executor EXECUTOR = create();
+
+        private static Executor create(){
+            try {
+                // Thread.ofVirtual().name("jyield-virtual-", 0).factory(), on Java 21 and later.
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderType.getMethod("name", String.class, long.class)
+                    .invoke(builder, "jyield-virtual-", 0L);
+                final ThreadFactory threads =
+                    (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+                return new Executor()
+                    {
+                        public void execute(Runnable task){
+                            threads.newThread(task).start();
+                        }
+                    };
+            } catch (ReflectiveOperationException ex) {
+                return sharedPool();
+            } catch (RuntimeException ex) {
+                return sharedPool();
+            }
+        }
+
+        private static ExecutorService sharedPool(){
+            final AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(new ThreadFactory()
+                {
+                    public Thread newThread(Runnable task){
+                        Thread result = new Thread(task, "jyield-worker-" + count.incrementAndGet());
+                        result.setDaemon(true);
+                        return result;
+                    }
+                });
+        }
+    }
+}
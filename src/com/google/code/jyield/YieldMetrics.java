@@ -0,0 +1,161 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A metrics listener that keeps running totals, which can be read directly,
+ * copied with snapshot, or published over JMX with register. One instance
+ * may be shared by several iterables to total their activity.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class YieldMetrics implements YieldMetricsListener, YieldMetricsMXBean
+{
+    /**
+     * The JMX domain under which metrics are registered.
+     */
+    public static final String DOMAIN = "com.google.code.jyield";
+
+    public void workerStarted(){
+        _workersStarted.incrementAndGet();
+        _activeWorkers.incrementAndGet();
+    }
+
+    public void workerStopped(long lifetimeNanos){
+        _activeWorkers.decrementAndGet();
+        _workerLifetimeNanos.addAndGet(lifetimeNanos);
+    }
+
+    public void yielded(long blockedNanos){
+        long depth = _yielded.incrementAndGet() - _consumed.get() - _discarded.get();
+        _producerBlockedNanos.addAndGet(blockedNanos);
+        long peak;
+        while ( depth > (peak = _peakBufferDepth.get()) ){
+            if ( _peakBufferDepth.compareAndSet(peak, depth) ){
+                break;
+            }
+        }
+    }
+
+    public void consumed(){
+        _consumed.incrementAndGet();
+    }
+
+    public void discarded(long count){
+        _discarded.addAndGet(count);
+    }
+
+    public void consumerWaited(long waitedNanos){
+        _consumerWaitNanos.addAndGet(waitedNanos);
+    }
+
+    public long getYielded(){
+        return _yielded.get();
+    }
+
+    public long getConsumed(){
+        return _consumed.get();
+    }
+
+    public long getDiscarded(){
+        return _discarded.get();
+    }
+
+    public long getBufferDepth(){
+        return Math.max(0, _yielded.get() - _consumed.get() - _discarded.get());
+    }
+
+    public long getPeakBufferDepth(){
+        return _peakBufferDepth.get();
+    }
+
+    public long getProducerBlockedNanos(){
+        return _producerBlockedNanos.get();
+    }
+
+    public long getConsumerWaitNanos(){
+        return _consumerWaitNanos.get();
+    }
+
+    public long getWorkersStarted(){
+        return _workersStarted.get();
+    }
+
+    public long getActiveWorkers(){
+        return _activeWorkers.get();
+    }
+
+    public long getWorkerLifetimeNanos(){
+        return _workerLifetimeNanos.get();
+    }
+
+    public void reset(){
+        // Keep the counts that the buffer depth is derived from in step.
+        long depth = getBufferDepth();
+        _consumed.set(0);
+        _discarded.set(0);
+        _yielded.set(depth);
+        _peakBufferDepth.set(depth);
+        _producerBlockedNanos.set(0);
+        _consumerWaitNanos.set(0);
+        _workersStarted.set(0);
+        _workerLifetimeNanos.set(0);
+    }
+
+    /**
+     * Copies the current values.
+     * @return A snapshot of these metrics.
+     */
+    public YieldMetricsSnapshot snapshot(){
+        return new YieldMetricsSnapshot(this);
+    }
+
+    /**
+     * Publishes these metrics on the platform MBean server under
+     * "com.google.code.jyield:type=YieldMetrics,name=<name>".
+     * @param name A name that distinguishes these metrics from others.
+     * @return The name under which the metrics were registered.
+     */
+    public ObjectName register(String name){
+        if ( name == null ){
+            throw new IllegalArgumentException("Name cannot be null.");
+        }
+        try {
+            ObjectName objectName = new ObjectName(
+                DOMAIN + ":type=YieldMetrics,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException ex) {
+            throw new IllegalStateException("Could not register metrics \"" + name + "\".", ex);
+        }
+    }
+
+    /**
+     * Removes metrics that were published with register.
+     * @param objectName The name returned by register.
+     */
+    public static void unregister(ObjectName objectName){
+        if ( objectName == null ){
+            throw new IllegalArgumentException("Name cannot be null.");
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ex) {
+            throw new IllegalStateException("Could not unregister metrics " + objectName + ".", ex);
+        }
+    }
+
+    private final AtomicLong _yielded = new AtomicLong();
+    private final AtomicLong _consumed = new AtomicLong();
+    private final AtomicLong _discarded = new AtomicLong();
+    private final AtomicLong _peakBufferDepth = new AtomicLong();
+    private final AtomicLong _producerBlockedNanos = new AtomicLong();
+    private final AtomicLong _consumerWaitNanos = new AtomicLong();
+    private final AtomicLong _workersStarted = new AtomicLong();
+    private final AtomicLong _activeWorkers = new AtomicLong();
+    private final AtomicLong _workerLifetimeNanos = new AtomicLong();
+}
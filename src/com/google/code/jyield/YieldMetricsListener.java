@@ -0,0 +1,51 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * Receives the events of generators converted to iterables, so that one can
+ * tell whether the generator, the iterator or the buffer between them is the
+ * bottleneck. Install a listener with YieldOptions.setMetricsListener, or wrap
+ * a yieldable in a MeteredYieldable. The methods are called on the threads of
+ * the generator and of the iterator, so they must be thread-safe and cheap.
+ * YieldMetrics is a ready-made listener that keeps totals.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface YieldMetricsListener
+{
+    /**
+     * Reports that a worker has started running a generator.
+     */
+    public void workerStarted();
+
+    /**
+     * Reports that a worker has finished running a generator.
+     * @param lifetimeNanos How long the worker ran the generator.
+     */
+    public void workerStopped(long lifetimeNanos);
+
+    /**
+     * Reports that the generator has yielded a value.
+     * @param blockedNanos How long the generator spent handing the value over,
+     *                     including any time it waited for room in the buffer.
+     */
+    public void yielded(long blockedNanos);
+
+    /**
+     * Reports that the iterator has taken a value.
+     */
+    public void consumed();
+
+    /**
+     * Reports that values were removed from the buffer without being taken:
+     * dropped by the DROP_OLDEST overflow policy, or discarded because the
+     * iterator was closed while they were still buffered.
+     * @param count The number of values removed.
+     */
+    public void discarded(long count);
+
+    /**
+     * Reports that the iterator had to wait for the generator.
+     * @param waitedNanos How long the iterator waited.
+     */
+    public void consumerWaited(long waitedNanos);
+}
@@ -0,0 +1,64 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * The management interface through which YieldMetrics are exposed over JMX.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface YieldMetricsMXBean
+{
+    /**
+     * @return The number of values that generators have yielded.
+     */
+    public long getYielded();
+
+    /**
+     * @return The number of values that iterators have taken.
+     */
+    public long getConsumed();
+
+    /**
+     * @return The number of values dropped or discarded without being taken.
+     */
+    public long getDiscarded();
+
+    /**
+     * @return The number of values yielded but neither taken nor discarded yet.
+     */
+    public long getBufferDepth();
+
+    /**
+     * @return The largest number of values ever yielded but neither taken nor discarded yet.
+     */
+    public long getPeakBufferDepth();
+
+    /**
+     * @return The total time generators spent handing values over.
+     */
+    public long getProducerBlockedNanos();
+
+    /**
+     * @return The total time iterators spent waiting for values.
+     */
+    public long getConsumerWaitNanos();
+
+    /**
+     * @return The number of workers that have started running a generator.
+     */
+    public long getWorkersStarted();
+
+    /**
+     * @return The number of workers currently running a generator.
+     */
+    public long getActiveWorkers();
+
+    /**
+     * @return The total time that finished workers spent running generators.
+     */
+    public long getWorkerLifetimeNanos();
+
+    /**
+     * Resets the totals, but not the buffer depth or the active workers.
+     */
+    public void reset();
+}
@@ -0,0 +1,117 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+
+/**
+ * An immutable copy of the values of YieldMetrics at some moment.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public final class YieldMetricsSnapshot
+{
+    YieldMetricsSnapshot(YieldMetricsMXBean metrics){
+        _yielded = metrics.getYielded();
+        _consumed = metrics.getConsumed();
+        _discarded = metrics.getDiscarded();
+        _bufferDepth = metrics.getBufferDepth();
+        _peakBufferDepth = metrics.getPeakBufferDepth();
+        _producerBlockedNanos = metrics.getProducerBlockedNanos();
+        _consumerWaitNanos = metrics.getConsumerWaitNanos();
+        _workersStarted = metrics.getWorkersStarted();
+        _activeWorkers = metrics.getActiveWorkers();
+        _workerLifetimeNanos = metrics.getWorkerLifetimeNanos();
+    }
+
+    /**
+     * @return The number of values that generators had yielded.
+     */
+    public long getYielded(){
+        return _yielded;
+    }
+
+    /**
+     * @return The number of values that iterators had taken.
+     */
+    public long getConsumed(){
+        return _consumed;
+    }
+
+    /**
+     * @return The number of values that had been dropped or discarded without being taken.
+     */
+    public long getDiscarded(){
+        return _discarded;
+    }
+
+    /**
+     * @return The number of values yielded but neither taken nor discarded yet.
+     */
+    public long getBufferDepth(){
+        return _bufferDepth;
+    }
+
+    /**
+     * @return The largest number of values yielded but neither taken nor discarded yet.
+     */
+    public long getPeakBufferDepth(){
+        return _peakBufferDepth;
+    }
+
+    /**
+     * @return The total time generators had spent handing values over.
+     */
+    public long getProducerBlockedNanos(){
+        return _producerBlockedNanos;
+    }
+
+    /**
+     * @return The total time iterators had spent waiting for values.
+     */
+    public long getConsumerWaitNanos(){
+        return _consumerWaitNanos;
+    }
+
+    /**
+     * @return The number of workers that had started running a generator.
+     */
+    public long getWorkersStarted(){
+        return _workersStarted;
+    }
+
+    /**
+     * @return The number of workers that were running a generator.
+     */
+    public long getActiveWorkers(){
+        return _activeWorkers;
+    }
+
+    /**
+     * @return The total time that finished workers had spent running generators.
+     */
+    public long getWorkerLifetimeNanos(){
+        return _workerLifetimeNanos;
+    }
+
+    @Override
+    public String toString(){
+        return "YieldMetricsSnapshot[yielded=" + _yielded
+            + ", consumed=" + _consumed
+            + ", discarded=" + _discarded
+            + ", bufferDepth=" + _bufferDepth
+            + ", peakBufferDepth=" + _peakBufferDepth
+            + ", producerBlockedNanos=" + _producerBlockedNanos
+            + ", consumerWaitNanos=" + _consumerWaitNanos
+            + ", workersStarted=" + _workersStarted
+            + ", activeWorkers=" + _activeWorkers
+            + ", workerLifetimeNanos=" + _workerLifetimeNanos + "]";
+    }
+
+    private final long _yielded;
+    private final long _consumed;
+    private final long _discarded;
+    private final long _bufferDepth;
+    private final long _peakBufferDepth;
+    private final long _producerBlockedNanos;
+    private final long _consumerWaitNanos;
+    private final long _workersStarted;
+    private final long _activeWorkers;
+    private final long _workerLifetimeNanos;
+}
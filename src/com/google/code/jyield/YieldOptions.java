@@ -0,0 +1,352 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configures how a generator is converted to an iterable object. A
+ * ResumableGenerator converted with YieldUtils.toIterable is run by the
+ * iterating thread and ignores the buffering options, unless an executor,
+ * thread factory, metrics listener, recycler or latency SLA is set, in which
+ * case it runs on a worker thread and all of the options apply.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class YieldOptions
+{
+    /**
+     * The capacity that indicates that the buffer may grow without bound.
+     */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    /**
+     * Constructs options with an unbounded buffer.
+     */
+    public YieldOptions(){
+    }
+
+    /**
+     * Constructs a copy of the given options.
+     * @param other The options to copy.
+     */
+    public YieldOptions(YieldOptions other){
+        if ( other == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        _capacity = other._capacity;
+        _overflowPolicy = other._overflowPolicy;
+        _waitStrategy = other._waitStrategy;
+        _batchSize = other._batchSize;
+        _maxBatchDelayNanos = other._maxBatchDelayNanos;
+        _executor = other._executor;
+        _threadFactory = other._threadFactory;
+        _minPrefetch = other._minPrefetch;
+        _maxPrefetch = other._maxPrefetch;
+        _metricsListener = other._metricsListener;
+        _recycler = other._recycler;
+        _latencySlaNanos = other._latencySlaNanos;
+    }
+
+    /**
+     * Reports the maximum number of values buffered between the generator and the iterator.
+     * @return The capacity of the buffer, or UNBOUNDED.
+     */
+    public int getCapacity(){
+        return _capacity;
+    }
+
+    /**
+     * Sets the maximum number of values buffered between the generator and
+     * the iterator. This replaces any adaptive read-ahead set with
+     * setPrefetch; whichever of the two is set last takes effect.
+     * @param capacity A positive capacity, or UNBOUNDED.
+     * @return These options.
+     */
+    public YieldOptions setCapacity(int capacity){
+        if ( capacity <= 0 ){
+            throw new IllegalArgumentException("Capacity must be >= 1.");
+        }
+        _capacity = capacity;
+        _minPrefetch = 0;
+        _maxPrefetch = 0;
+        return this;
+    }
+
+    /**
+     * Reports what happens when the generator yields into a full buffer.
+     * @return The overflow policy.
+     */
+    public OverflowPolicy getOverflowPolicy(){
+        return _overflowPolicy;
+    }
+
+    /**
+     * Sets what happens when the generator yields into a full buffer.
+     * @param policy The overflow policy.
+     * @return These options.
+     */
+    public YieldOptions setOverflowPolicy(OverflowPolicy policy){
+        if ( policy == null ){
+            throw new IllegalArgumentException("Overflow policy cannot be null.");
+        }
+        _overflowPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Reports how the generator and iterator wait for each other on the buffer.
+     * @return The wait strategy.
+     */
+    public WaitStrategy getWaitStrategy(){
+        return _waitStrategy;
+    }
+
+    /**
+     * Sets how the generator and iterator wait for each other on the buffer.
+     * With the BLOCK or FAIL_FAST overflow policy the buffer is a lock-free ring
+     * buffer, even when it is unbounded: a capacity above 2^20 values is grown in
+     * segments as needed rather than allocated up front. DROP_OLDEST uses a
+     * monitor and ignores this setting.
+     * @param strategy The wait strategy.
+     * @return These options.
+     */
+    public YieldOptions setWaitStrategy(WaitStrategy strategy){
+        if ( strategy == null ){
+            throw new IllegalArgumentException("Wait strategy cannot be null.");
+        }
+        _waitStrategy = strategy;
+        return this;
+    }
+
+    /**
+     * Reports how many values the generator collects before handing them to the iterator at once.
+     * @return The batch size; 1 if values are handed over one at a time.
+     */
+    public int getBatchSize(){
+        return _batchSize;
+    }
+
+    /**
+     * Sets how many values the generator collects before handing them to the
+     * iterator at once. A smaller batch is handed over early when the iterator
+     * is waiting for values or when the maximum batch delay has passed. With a
+     * bounded capacity, the buffer holds capacity/batchSize batches, and the
+     * DROP_OLDEST policy drops whole batches.
+     * @param batchSize A positive batch size.
+     * @return These options.
+     */
+    public YieldOptions setBatchSize(int batchSize){
+        if ( batchSize <= 0 ){
+            throw new IllegalArgumentException("Batch size must be >= 1.");
+        }
+        _batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Reports how long the first value of a batch may wait for the batch to fill.
+     * @return The maximum delay in nanoseconds, or 0 if there is no limit.
+     */
+    public long getMaxBatchDelayNanos(){
+        return _maxBatchDelayNanos;
+    }
+
+    /**
+     * Sets how long the first value of a batch may wait for the batch to fill.
+     * The delay is checked whenever the generator yields.
+     * @param delay The maximum delay, or 0 for no limit.
+     * @param unit The unit of the delay.
+     * @return These options.
+     */
+    public YieldOptions setMaxBatchDelay(long delay, TimeUnit unit){
+        if ( delay < 0 ){
+            throw new IllegalArgumentException("Delay must be >= 0.");
+        }
+        _maxBatchDelayNanos = unit.toNanos(delay);
+        return this;
+    }
+
+    /**
+     * Reports the executor on which generators run, if any.
+     * @return The executor, or null.
+     */
+    public Executor getExecutor(){
+        return _executor;
+    }
+
+    /**
+     * Runs each generator as a task on the given executor instead of on a new
+     * thread. The generator occupies its task until it returns or its iterator
+     * is abandoned, so the executor must not limit the number of concurrent tasks
+     * below the number of iterators in use at once. Clears any thread factory.
+     * @param executor The executor, or null to start a new thread per iterator.
+     * @return These options.
+     */
+    public YieldOptions setExecutor(Executor executor){
+        _executor = executor;
+        _threadFactory = null;
+        return this;
+    }
+
+    /**
+     * Reports the factory of the threads on which generators run, if any.
+     * @return The thread factory, or null.
+     */
+    public ThreadFactory getThreadFactory(){
+        return _threadFactory;
+    }
+
+    /**
+     * Runs each generator on a thread from the given factory, which can choose
+     * the thread's name, priority and daemon status. Clears any executor.
+     * @param threadFactory The thread factory, or null to start a plain thread per iterator.
+     * @return These options.
+     */
+    public YieldOptions setThreadFactory(ThreadFactory threadFactory){
+        _threadFactory = threadFactory;
+        _executor = null;
+        return this;
+    }
+
+    /**
+     * Runs each generator on a virtual thread when the runtime supports them,
+     * and otherwise on a shared, growing pool of daemon threads.
+     * @return These options.
+     */
+    public YieldOptions useVirtualThreads(){
+        return setExecutor(Workers.virtualThreadExecutor());
+    }
+
+    /**
+     * Reports the smallest window of adaptive read-ahead.
+     * @return The minimum number of values read ahead, or 0 if read-ahead is not adaptive.
+     */
+    public int getMinPrefetch(){
+        return _minPrefetch;
+    }
+
+    /**
+     * Reports the largest window of adaptive read-ahead.
+     * @return The maximum number of values read ahead, or 0 if read-ahead is not adaptive.
+     */
+    public int getMaxPrefetch(){
+        return _maxPrefetch;
+    }
+
+    /**
+     * Makes the generator read ahead of the iterator by a window that adapts
+     * to their speeds: it grows each time the iterator has to wait for a value
+     * and shrinks while the generator keeps waiting on a full window. This
+     * replaces any capacity set with setCapacity, and sets the capacity to
+     * the largest window; whichever of the two is set last takes effect.
+     * The window adapts only with the BLOCK overflow policy; with the other
+     * policies the buffer simply has the maximum size.
+     * @param min The smallest window, at least 1.
+     * @param max The largest window, at least min.
+     * @return These options.
+     */
+    public YieldOptions setPrefetch(int min, int max){
+        if ( min <= 0 ){
+            throw new IllegalArgumentException("Minimum prefetch must be >= 1.");
+        }
+        if ( max < min ){
+            throw new IllegalArgumentException("Maximum prefetch must be >= minimum prefetch.");
+        }
+        _minPrefetch = min;
+        _maxPrefetch = max;
+        _capacity = max;
+        return this;
+    }
+
+    /**
+     * Reports the listener that receives metrics, if any.
+     * @return The metrics listener, or null.
+     */
+    public YieldMetricsListener getMetricsListener(){
+        return _metricsListener;
+    }
+
+    /**
+     * Reports the traffic between each generator and its iterator to the given
+     * listener, such as a YieldMetrics. Without a listener, nothing is measured.
+     * @param listener The metrics listener, or null to measure nothing.
+     * @return These options.
+     */
+    public YieldOptions setMetricsListener(YieldMetricsListener listener){
+        _metricsListener = listener;
+        return this;
+    }
+
+    /**
+     * Reports the recycler to which iterators return the values they have moved past, if any.
+     * @return The recycler, or null.
+     */
+    public Recycler<?> getRecycler(){
+        return _recycler;
+    }
+
+    /**
+     * Makes each iterator return a value to the given recycler, such as a
+     * RecyclingPool, as soon as the consumer moves past it: when next is
+     * called again or the iterator is closed. Calling hasNext does not
+     * release the value. The consumer must then not keep the values that next
+     * returns; see RecyclingPool for the full protocol. The recycler must
+     * accept the values of the generator and be thread-safe. Setting a
+     * recycler makes YieldUtils.toIterable run even a ResumableGenerator on
+     * a worker thread.
+     * @param recycler The recycler, or null to recycle nothing.
+     * @return These options.
+     */
+    public YieldOptions setRecycler(Recycler<?> recycler){
+        _recycler = recycler;
+        return this;
+    }
+
+    /**
+     * Reports how long an iterator may wait for a value before the wait counts as an SLA breach.
+     * @return The latency SLA in nanoseconds, or 0 if there is none.
+     */
+    public long getLatencySlaNanos(){
+        return _latencySlaNanos;
+    }
+
+    /**
+     * Sets how long an iterator may wait for a value before the wait counts
+     * as a breach of its latency SLA. The wait is not cut short; each
+     * TimedIterator counts its breaches, which can be read with
+     * getSlaBreaches. Use the timed hasNext and next to bound the wait.
+     * @param sla The latency SLA, or 0 for none.
+     * @param unit The unit of the SLA.
+     * @return These options.
+     */
+    public YieldOptions setLatencySla(long sla, TimeUnit unit){
+        if ( sla < 0 ){
+            throw new IllegalArgumentException("SLA must be >= 0.");
+        }
+        _latencySlaNanos = unit.toNanos(sla);
+        return this;
+    }
+
+    /**
+     * Reports whether these options only take effect for a generator running
+     * on a worker thread, so that a ResumableGenerator cannot be run by the
+     * iterating thread instead.
+     */
+    boolean needsWorker(){
+        return (_executor != null) || (_threadFactory != null) || (_metricsListener != null)
+            || (_recycler != null) || (_latencySlaNanos > 0);
+    }
+
+    private int _capacity = UNBOUNDED;
+    private OverflowPolicy _overflowPolicy = OverflowPolicy.BLOCK;
+    private WaitStrategy _waitStrategy = WaitStrategy.YIELD_THEN_PARK;
+    private int _batchSize = 1;
+    private long _maxBatchDelayNanos = 0;
+    private Executor _executor = null;
+    private ThreadFactory _threadFactory = null;
+    private int _minPrefetch = 0;
+    private int _maxPrefetch = 0;
+    private YieldMetricsListener _metricsListener = null;
+    private Recycler<?> _recycler = null;
+    private long _latencySlaNanos = 0;
+}
@@ -1,10 +1,16 @@
 // Michael Safyan; Copyright (C) 2010; Simplified BSD License.
 package com.google.code.jyield;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A utilities class for dealing with generators and iterators.
@@ -20,84 +26,170 @@ public class YieldUtils
      */
     public static <T> Iterable<T> toIterable(final Generator<T> generator)
     {
-        return new Iterable<T>()
-            {
-                public Iterator<T> iterator()
-                {
-                    final LinkedList<T> queue = new LinkedList<T>();
-                    final Bool done = new Bool();
-                    final Yieldable<T> yieldable = new Yieldable<T>()
-                        {
-                            public void yield(T obj){
-                                synchronized(queue){
-                                    queue.addLast(obj);
-                                    queue.notifyAll();
-                                }
-                            }
-                        };
-
-                     final Iterator<T> result = new Iterator<T>()
-                        {
-                            public boolean hasNext() {
-                                synchronized(queue){
-                                    while(true){
-                                        while ( (queue.isEmpty()) && (!done.getValue())){
-                                            try {
-                                                queue.wait();
-                                            } catch (InterruptedException ex) {
-                                                return false;
-                                            }
-                                        }
-                                        if ( !queue.isEmpty() ){
-                                            return true;
-                                        }
-                                        if ( done.getValue() ){
-                                            return false;
-                                        }
-                                    }
-                                }
-                            }
+        return toIterable(generator, new YieldOptions());
+    }
 
-                            public T next() {
-                                synchronized(queue){
-                                    while(true){
-                                        while ( (queue.isEmpty()) && (!done.getValue())){
-                                            try {
-                                                queue.wait();
-                                            } catch (InterruptedException ex) {
-                                                throw new NoSuchElementException();
-                                            }
-                                        }
-                                        if ( !queue.isEmpty() ){
-                                            return queue.removeFirst();
-                                        }
-                                        if ( done.getValue() ){
-                                            throw new NoSuchElementException();
-                                        }
-                                    }
-                                }
-                            }
+    /**
+     * Converts a generator to an Iterable, buffering the yielded values as
+     * described by the given options. With a bounded capacity, a generator
+     * that gets ahead of its consumer is held back according to the overflow
+     * policy instead of filling the heap. Each iterator can be closed to
+     * cancel its generator; an iterator that becomes unreachable is closed
+     * automatically. A ResumableGenerator needs no worker thread: it is run
+     * one step at a time by the thread that uses the iterator, which buffers
+     * only the values of the current step, so the capacity, overflow policy,
+     * wait strategy, batching and prefetch options have nothing to act on.
+     * If the options set an executor, thread factory, metrics listener,
+     * recycler or latency SLA, a ResumableGenerator is run on a worker thread
+     * like any other generator, so that these options take effect.
+     * @param <T> The type of iteratable/generator.
+     * @param generator The generator to convert to an iterable.
+     * @param options The buffering options; these are copied.
+     * @return The corresponding iterable for the given generator.
+     */
+    public static <T> CloseableIterable<T> toIterable(final Generator<T> generator, final YieldOptions options)
+    {
+        if ( options == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        if ( (generator instanceof ResumableGenerator) && !options.needsWorker() ){
+            return new ResumableIterable<T>((ResumableGenerator<T>) generator);
+        }
+        return new GeneratorIterable<T>(generator, options);
+    }
 
-                            public void remove() {
-                                throw new UnsupportedOperationException("Not supported.");
-                            }
-                        };
-
-                      final Thread worker = new Thread()
-                        {
-                            public void run(){
-                                generator.generate(yieldable);
-                                synchronized(queue){
-                                    done.setValue(true);
-                                    queue.notifyAll();
-                                }
-                            }
-                        };
+    /**
+     * Converts a generator to an iterable whose iterators can bound their
+     * waits for the next value, as toIterable does, except that the generator
+     * always runs on a worker thread, even if it is a ResumableGenerator, so
+     * that a generator stalled on I/O cannot hold up the consumer past its
+     * deadline. The options' latency SLA, if any, is tracked by each iterator.
+     * @param <T> The type of the data.
+     * @param generator The generator to convert to an iterable.
+     * @param options The buffering options; these are copied.
+     * @return The corresponding iterable for the given generator.
+     * @see TimedIterator
+     */
+    public static <T> TimedIterable<T> toTimedIterable(final Generator<T> generator, final YieldOptions options)
+    {
+        return new GeneratorIterable<T>(generator, options);
+    }
 
-                      worker.start();
-                      return result;
-                }
-            };
+    /**
+     * Converts several generators to one iterable whose iterators run all
+     * the generators at once, each on a worker of its own, and return the
+     * values in the order in which they arrive.
+     * @param <T> The type of the data.
+     * @param generators The generators.
+     * @return An iterable of the values of all the generators.
+     * @see #toConcurrentIterable(Collection, YieldOptions)
+     */
+    public static <T> TimedIterable<T> toConcurrentIterable(Collection<? extends Generator<T>> generators){
+        return toConcurrentIterable(generators, new YieldOptions());
+    }
+
+    /**
+     * Converts several generators to one iterable whose iterators run all
+     * the generators at once, each on a worker of its own, and return the
+     * values in the order in which they arrive. The values are passed through
+     * one lock-free queue shared by all the generators, whose capacity and
+     * overflow policy the options choose (DROP_OLDEST is not supported), and
+     * the iterator ends only once every generator has finished. If a generator
+     * fails, the others are cancelled and the failure is rethrown by the
+     * iterator after the values that were already queued. Closing an iterator
+     * cancels all of its generators.
+     * @param <T> The type of the data.
+     * @param generators The generators.
+     * @param options The options, which are copied.
+     * @return An iterable of the values of all the generators.
+     */
+    public static <T> TimedIterable<T> toConcurrentIterable(
+            Collection<? extends Generator<T>> generators, YieldOptions options){
+        return new ConcurrentGeneratorIterable<T>(generators, options);
+    }
+
+    /**
+     * Converts an int generator to an iterable whose iterators return int values
+     * without boxing them. A generator that is itself an IntIterable is returned as is.
+     * @param generator The generator to convert to an iterable.
+     * @return The corresponding iterable for the given generator.
+     */
+    public static IntIterable toIntIterable(final IntGenerator generator)
+    {
+        return toIntIterable(generator, new YieldOptions());
+    }
+
+    /**
+     * Converts an int generator to an iterable whose iterators return int values
+     * without boxing them, buffering the values as described by the options.
+     * The values are always passed to the iterator in chunks; the batch size
+     * of the options, if set, is the size of a chunk.
+     * @param generator The generator to convert to an iterable.
+     * @param options The buffering options; these are copied.
+     * @return The corresponding iterable for the given generator.
+     */
+    public static IntIterable toIntIterable(final IntGenerator generator, final YieldOptions options)
+    {
+        if ( generator instanceof IntIterable ){
+            return (IntIterable) generator;
+        }
+        return new IntGeneratorIterable(generator, options);
+    }
+
+    /**
+     * Converts a long generator to an iterable whose iterators return long values
+     * without boxing them. A generator that is itself a LongIterable is returned as is.
+     * @param generator The generator to convert to an iterable.
+     * @return The corresponding iterable for the given generator.
+     */
+    public static LongIterable toLongIterable(final LongGenerator generator)
+    {
+        return toLongIterable(generator, new YieldOptions());
+    }
+
+    /**
+     * Converts a long generator to an iterable whose iterators return long values
+     * without boxing them, buffering the values as described by the options.
+     * The values are always passed to the iterator in chunks; the batch size
+     * of the options, if set, is the size of a chunk.
+     * @param generator The generator to convert to an iterable.
+     * @param options The buffering options; these are copied.
+     * @return The corresponding iterable for the given generator.
+     */
+    public static LongIterable toLongIterable(final LongGenerator generator, final YieldOptions options)
+    {
+        if ( generator instanceof LongIterable ){
+            return (LongIterable) generator;
+        }
+        return new LongGeneratorIterable(generator, options);
+    }
+
+    /**
+     * Converts a double generator to an iterable whose iterators return double values
+     * without boxing them. A generator that is itself a DoubleIterable is returned as is.
+     * @param generator The generator to convert to an iterable.
+     * @return The corresponding iterable for the given generator.
+     */
+    public static DoubleIterable toDoubleIterable(final DoubleGenerator generator)
+    {
+        return toDoubleIterable(generator, new YieldOptions());
+    }
+
+    /**
+     * Converts a double generator to an iterable whose iterators return double values
+     * without boxing them, buffering the values as described by the options.
+     * The values are always passed to the iterator in chunks; the batch size
+     * of the options, if set, is the size of a chunk.
+     * @param generator The generator to convert to an iterable.
+     * @param options The buffering options; these are copied.
+     * @return The corresponding iterable for the given generator.
+     */
+    public static DoubleIterable toDoubleIterable(final DoubleGenerator generator, final YieldOptions options)
+    {
+        if ( generator instanceof DoubleIterable ){
+            return (DoubleIterable) generator;
+        }
+        return new DoubleGeneratorIterable(generator, options);
     }
 
     /**
@@ -108,24 +200,263 @@ public class YieldUtils
      */
     public static <T> Generator<T> toGenerator(final Iterable<T> iterable)
     {
-        return new Generator<T>()
-        {
-            public void generate(Yieldable<T> yieldable) {
-                for ( T obj : iterable ){
-                    yieldable.yield(obj);
+        return new IterableGenerator<T>(iterable);
+    }
+
+    /**
+     * Converts an array to a generator, which yields the elements by index.
+     * The generator reads the array each time it runs, so it sees changes to the array.
+     * @param <T> The type of the data.
+     * @param array The array to convert.
+     * @return A generator of the elements of the array.
+     */
+    public static <T> Generator<T> toGenerator(final T[] array)
+    {
+        if ( array == null ){
+            throw new IllegalArgumentException("Array cannot be null.");
+        }
+        return new IterableGenerator<T>(Arrays.asList(array));
+    }
+
+    /**
+     * Converts a generator to a sequential stream.
+     * @param <T> The type of the generator/stream.
+     * @param generator The generator to convert to a stream.
+     * @return A stream of the values of the generator.
+     * @see #toStream(Generator, boolean)
+     */
+    public static <T> Stream<T> toStream(Generator<T> generator)
+    {
+        return toStream(generator, false);
+    }
+
+    /**
+     * Converts a generator to a stream. A generator that is also an Iterable
+     * of the same values, such as Range or the result of toGenerator, is
+     * streamed through the iterable's own spliterator, which can be split for
+     * parallel streams. Any other generator is run directly into the stream
+     * when the stream consumes all values, and through the iterator of
+     * toIterable when it consumes them one by one; such a stream should be
+     * closed if it is not consumed completely.
+     * @param <T> The type of the generator/stream.
+     * @param generator The generator to convert to a stream.
+     * @param parallel Whether the stream should be parallel.
+     * @return A stream of the values of the generator.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Stream<T> toStream(Generator<T> generator, boolean parallel)
+    {
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( generator instanceof Iterable ){
+            return StreamSupport.stream(((Iterable<T>) generator).spliterator(), parallel);
+        }
+        final GeneratorSpliterator<T> spliterator = new GeneratorSpliterator<T>(generator, new YieldOptions());
+        return StreamSupport.stream(spliterator, parallel).onClose(new Runnable()
+            {
+                public void run(){
+                    spliterator.close();
                 }
+            });
+    }
+
+    /**
+     * Runs a generator on several threads, delivering its values in order.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @param yieldable The destination of the data, which need not be thread-safe.
+     * @param parallelism The number of threads to use.
+     * @see #generateParallel(Generator, Yieldable, int, DeliveryOrder)
+     */
+    public static <T> void generateParallel(Generator<T> generator, Yieldable<T> yieldable, int parallelism){
+        generateParallel(generator, yieldable, parallelism, DeliveryOrder.ORDERED);
+    }
+
+    /**
+     * Runs a generator on a new fork-join pool with the given number of threads.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @param yieldable The destination of the data, which must be thread-safe if the order is CONCURRENT.
+     * @param parallelism The number of threads to use.
+     * @param order The order in which to deliver the values.
+     * @see #generateParallel(Generator, Yieldable, ForkJoinPool, DeliveryOrder)
+     */
+    public static <T> void generateParallel(
+            Generator<T> generator, Yieldable<T> yieldable, int parallelism, DeliveryOrder order){
+        if ( parallelism <= 0 ){
+            throw new IllegalArgumentException("Parallelism must be >= 1.");
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            generateParallel(generator, yieldable, pool, order);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs a generator on the threads of the given pool, if the generator is
+     * a PartitionableGenerator; any other generator is run on the calling
+     * thread. The generator is split into a few parts per thread so that
+     * parts of uneven cost balance out. The values are delivered to the
+     * yieldable object from the pool's threads, one call at a time unless the
+     * order is CONCURRENT, and the method returns once all parts have
+     * finished. If any part fails, the others are cancelled and the failure
+     * is rethrown.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @param yieldable The destination of the data, which must be thread-safe if the order is CONCURRENT.
+     * @param pool The pool on which to run the parts of the generator.
+     * @param order The order in which to deliver the values.
+     */
+    public static <T> void generateParallel(
+            Generator<T> generator, Yieldable<T> yieldable, ForkJoinPool pool, DeliveryOrder order){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( yieldable == null ){
+            throw new IllegalArgumentException("Yieldable cannot be null.");
+        }
+        if ( pool == null ){
+            throw new IllegalArgumentException("Pool cannot be null.");
+        }
+        if ( order == null ){
+            throw new IllegalArgumentException("Delivery order cannot be null.");
+        }
+        List<Generator<T>> parts = null;
+        if ( generator instanceof PartitionableGenerator ){
+            int count = (int) Math.min(Integer.MAX_VALUE, PARTS_PER_THREAD * (long) pool.getParallelism());
+            parts = ((PartitionableGenerator<T>) generator).partition(count);
+        }
+        if ( (parts == null) || (parts.size() <= 1) ){
+            generator.generate(yieldable);
+            return;
+        }
+        new ParallelGeneration<T>(parts, yieldable, order).run(pool);
+    }
+
+    /**
+     * Runs a generator once on the calling thread, passing each value to
+     * every one of the given yieldable objects in turn. A yieldable object
+     * that throws a GeneratorCancelledException receives no further values,
+     * and the generator is stopped once none is left.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @param yieldables The destinations of the data.
+     */
+    @SafeVarargs
+    public static <T> void broadcast(Generator<T> generator, Yieldable<? super T>... yieldables){
+        if ( yieldables == null ){
+            throw new IllegalArgumentException("Yieldables cannot be null.");
+        }
+        // Copy the elements, so that dropping a target leaves the caller's array alone.
+        final List<Yieldable<? super T>> targets = new ArrayList<Yieldable<? super T>>(yieldables.length);
+        for ( Yieldable<? super T> yieldable : yieldables ){
+            if ( yieldable == null ){
+                throw new IllegalArgumentException("Yieldable cannot be null.");
             }
-        };
+            targets.add(yieldable);
+        }
+        if ( targets.isEmpty() ){
+            return;
+        }
+        new ShortCircuit<T>()
+            {
+                public void yield(T obj){
+                    checkCancelled();
+                    for ( int i = 0; i < _targets.size(); i++ ){
+                        Yieldable<? super T> target = _targets.get(i);
+                        if ( target == null ){
+                            continue;
+                        }
+                        try {
+                            target.yield(obj);
+                        } catch (GeneratorCancelledException ex) {
+                            _targets.set(i, null);
+                            if ( --_open == 0 ){
+                                stop();
+                            }
+                        }
+                    }
+                }
+
+                private final List<Yieldable<? super T>> _targets = targets;
+                private int _open = _targets.size();
+            }.run(generator);
+    }
+
+    /**
+     * Runs a generator once on a worker thread and delivers each of its values
+     * to every one of the given number of iterators.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @param consumers The number of iterators.
+     * @return The iterators.
+     * @see #multicast(Generator, int, YieldOptions)
+     */
+    public static <T> List<CloseableIterator<T>> multicast(Generator<T> generator, int consumers){
+        return multicast(generator, consumers, new YieldOptions());
+    }
+
+    /**
+     * Runs a generator once on a worker thread and delivers each of its values
+     * to every one of the given number of iterators. The values are kept in a
+     * single buffer shared by the iterators, which the generator can only
+     * refill once the slowest open iterator has moved on; so every iterator
+     * must be read, by a thread of its own, or closed. The generator is
+     * cancelled once every iterator has been closed. The options choose the
+     * buffer's capacity, which is DEFAULT_MULTICAST_CAPACITY when unbounded,
+     * and the worker; values are never dropped.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @param consumers The number of iterators.
+     * @param options The options.
+     * @return The iterators.
+     */
+    public static <T> List<CloseableIterator<T>> multicast(
+            final Generator<T> generator, int consumers, YieldOptions options){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( consumers <= 0 ){
+            throw new IllegalArgumentException("Consumers must be >= 1.");
+        }
+        if ( options == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        int capacity = options.getCapacity();
+        if ( capacity == YieldOptions.UNBOUNDED ){
+            capacity = DEFAULT_MULTICAST_CAPACITY;
+        }
+        final MulticastHandoff<T> producer = new MulticastHandoff<T>(consumers, capacity);
+        List<CloseableIterator<T>> result = new ArrayList<CloseableIterator<T>>(consumers);
+        for ( ConsumerHandoff<T> consumer : producer.consumers() ){
+            result.add(new GeneratorIterable.HandoffIterator<T>(consumer, null, options.getLatencySlaNanos()));
+        }
+        Workers.start(options, new GeneratorTask(producer)
+            {
+                void generate(){
+                    generator.generate(producer);
+                }
+            });
+        return result;
     }
 
     /**
      * Fills and returns the given collection with the elements of the iterable.
+     * A collection is added in bulk.
      * @param <T> The type of the collection and iterable.
      * @param iterable The source of the values.
      * @param collectiontofill The destination into which to write the values.
      * @return The collection that was filled.
      */
     public static <T> Collection<T> toCollection(Iterable<T> iterable, Collection<T> collectiontofill){
+        if ( iterable instanceof Collection ){
+            collectiontofill.addAll((Collection<T>) iterable);
+            return collectiontofill;
+        }
+        reserve(collectiontofill, sizeHint(iterable));
         for ( T item : iterable ){
             collectiontofill.add(item);
         }
@@ -134,12 +465,14 @@ public class YieldUtils
 
     /**
      * Fills and returns the given collection with the elements fo the given generator.
+     * An array list is first grown to the generator's size hint, if it has one.
      * @param <T> The type of the collection and generator.
      * @param generator The source of the values.
      * @param collectiontofill The destination into which to write the values.
      * @return The collection that was filled.
      */
     public static <T> Collection<T> toCollection(Generator<T> generator, final Collection<T> collectiontofill){
+        reserve(collectiontofill, sizeHint(generator));
         generator.generate
         (
                 new Yieldable<T>()
@@ -159,7 +492,10 @@ public class YieldUtils
      * @return An array list containing the elements.
      */
     public static <T> ArrayList<T> toArrayList(Iterable<T> iterable){
-        ArrayList<T> result = new ArrayList<T>();
+        if ( iterable instanceof Collection ){
+            return new ArrayList<T>((Collection<T>) iterable);
+        }
+        ArrayList<T> result = new ArrayList<T>(initialCapacity(sizeHint(iterable)));
         toCollection(iterable,result);
         return result;
     }
@@ -171,7 +507,7 @@ public class YieldUtils
      * @return An array list containing the elements.
      */
     public static <T> ArrayList<T> toArrayList(Generator<T> generator){
-        ArrayList<T> result = new ArrayList<T>();
+        ArrayList<T> result = new ArrayList<T>(initialCapacity(sizeHint(generator)));
         toCollection(generator,result);
         return result;
     }
@@ -183,6 +519,9 @@ public class YieldUtils
      * @return A linked list containing the elements.
      */
     public static <T> LinkedList<T> toLinkedList(Iterable<T> iterable){
+        if ( iterable instanceof Collection ){
+            return new LinkedList<T>((Collection<T>) iterable);
+        }
         LinkedList<T> result = new LinkedList<T>();
         toCollection(iterable,result);
         return result;
@@ -200,12 +539,395 @@ public class YieldUtils
         return result;
     }
 
-    private static class Bool
+    /**
+     * Converts the given datasource to an array. With a size hint, the
+     * values are written straight into an array of the right size.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @param factory Creates an array of the given length, such as String[]::new.
+     * @return An array containing the elements.
+     */
+    public static <T> T[] toArray(Generator<T> generator, IntFunction<T[]> factory){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( factory == null ){
+            throw new IllegalArgumentException("Factory cannot be null.");
+        }
+        long hint = sizeHint(generator);
+        final T[][] array = newArray(factory, (hint < 0) ? INITIAL_ARRAY_SIZE : initialCapacity(hint));
+        final int[] count = {0};
+        generator.generate
+        (
+                new Yieldable<T>()
+                {
+                    public void yield(T obj) {
+                        if ( count[0] == array[0].length ){
+                            array[0] = Arrays.copyOf(array[0], grow(array[0].length));
+                        }
+                        array[0][count[0]++] = obj;
+                    }
+                }
+        );
+        return (count[0] == array[0].length) ? array[0] : Arrays.copyOf(array[0], count[0]);
+    }
+
+    /**
+     * Converts the given datasource to an array. A collection is copied in bulk.
+     * @param <T> The type of the data.
+     * @param iterable The source of the data.
+     * @param factory Creates an array of the given length, such as String[]::new.
+     * @return An array containing the elements.
+     */
+    public static <T> T[] toArray(Iterable<T> iterable, IntFunction<T[]> factory){
+        if ( iterable == null ){
+            throw new IllegalArgumentException("Iterable cannot be null.");
+        }
+        if ( factory == null ){
+            throw new IllegalArgumentException("Factory cannot be null.");
+        }
+        if ( iterable instanceof Collection ){
+            Collection<T> collection = (Collection<T>) iterable;
+            return collection.toArray(factory.apply(collection.size()));
+        }
+        return toArray(toGenerator(iterable), factory);
+    }
+
+    /**
+     * Converts the given int generator to an array without boxing the values.
+     * @param generator The source of the data.
+     * @return An array containing the values.
+     */
+    public static int[] toIntArray(IntGenerator generator){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        long hint = sizeHint(generator);
+        final int[][] array = {new int[(hint < 0) ? INITIAL_ARRAY_SIZE : initialCapacity(hint)]};
+        final int[] count = {0};
+        generator.generate
+        (
+                new IntYieldable()
+                {
+                    public void yield(int value) {
+                        if ( count[0] == array[0].length ){
+                            array[0] = Arrays.copyOf(array[0], grow(array[0].length));
+                        }
+                        array[0][count[0]++] = value;
+                    }
+                }
+        );
+        return (count[0] == array[0].length) ? array[0] : Arrays.copyOf(array[0], count[0]);
+    }
+
+    /**
+     * Converts the given long generator to an array without boxing the values.
+     * @param generator The source of the data.
+     * @return An array containing the values.
+     */
+    public static long[] toLongArray(LongGenerator generator){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        long hint = sizeHint(generator);
+        final long[][] array = {new long[(hint < 0) ? INITIAL_ARRAY_SIZE : initialCapacity(hint)]};
+        final int[] count = {0};
+        generator.generate
+        (
+                new LongYieldable()
+                {
+                    public void yield(long value) {
+                        if ( count[0] == array[0].length ){
+                            array[0] = Arrays.copyOf(array[0], grow(array[0].length));
+                        }
+                        array[0][count[0]++] = value;
+                    }
+                }
+        );
+        return (count[0] == array[0].length) ? array[0] : Arrays.copyOf(array[0], count[0]);
+    }
+
+    /**
+     * Converts the given double generator to an array without boxing the values.
+     * @param generator The source of the data.
+     * @return An array containing the values.
+     */
+    public static double[] toDoubleArray(DoubleGenerator generator){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        long hint = sizeHint(generator);
+        final double[][] array = {new double[(hint < 0) ? INITIAL_ARRAY_SIZE : initialCapacity(hint)]};
+        final int[] count = {0};
+        generator.generate
+        (
+                new DoubleYieldable()
+                {
+                    public void yield(double value) {
+                        if ( count[0] == array[0].length ){
+                            array[0] = Arrays.copyOf(array[0], grow(array[0].length));
+                        }
+                        array[0][count[0]++] = value;
+                    }
+                }
+        );
+        return (count[0] == array[0].length) ? array[0] : Arrays.copyOf(array[0], count[0]);
+    }
+
+    /**
+     * Reports how many values a source will produce, if it knows.
+     * @param source A generator, iterable or other source of values.
+     * @return The hint of a SizeHint, the size of a Collection, or -1 if unknown.
+     */
+    public static long sizeHint(Object source){
+        if ( source instanceof SizeHint ){
+            return ((SizeHint) source).sizeHint();
+        }
+        if ( source instanceof Collection ){
+            return ((Collection<?>) source).size();
+        }
+        return -1;
+    }
+
+    /**
+     * Reports whether the given yieldable object wants no further values, so
+     * that a generator can stop before doing the work for its next value.
+     * @param yieldable The object that the generator yields to.
+     * @return True if the object is a CancellableYieldable that has been cancelled.
+     */
+    public static boolean isCancelled(Yieldable<?> yieldable){
+        return (yieldable instanceof CancellableYieldable)
+            && ((CancellableYieldable<?>) yieldable).isCancelled();
+    }
+
+    /**
+     * Returns the first value of the generator, stopping the generator as
+     * soon as it has yielded it. No worker thread is used.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @return The first value.
+     * @throws NoSuchElementException If the generator yields no values.
+     */
+    public static <T> T first(Generator<T> generator){
+        ShortCircuit<T> sink = new ShortCircuit<T>()
+            {
+                public void yield(T obj){
+                    checkCancelled();
+                    result = obj;
+                    stop();
+                }
+            };
+        if ( !sink.run(generator) ){
+            throw new NoSuchElementException();
+        }
+        return sink.result;
+    }
+
+    /**
+     * Returns a value of the generator that satisfies the predicate, stopping
+     * the generator as soon as it has yielded one. No worker thread is used.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @param predicate The condition that the value must satisfy.
+     * @return The first value that satisfies the predicate, or null if there is none.
+     */
+    public static <T> T findAny(Generator<T> generator, final Predicate<? super T> predicate){
+        if ( predicate == null ){
+            throw new IllegalArgumentException("Predicate cannot be null.");
+        }
+        ShortCircuit<T> sink = new ShortCircuit<T>()
+            {
+                public void yield(T obj){
+                    checkCancelled();
+                    if ( predicate.test(obj) ){
+                        result = obj;
+                        stop();
+                    }
+                }
+            };
+        sink.run(generator);
+        return sink.result;
+    }
+
+    /**
+     * Determines whether any value of the generator satisfies the predicate,
+     * stopping the generator at the first one that does.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @param predicate The condition to test.
+     * @return True if some value satisfies the predicate.
+     */
+    public static <T> boolean anyMatch(Generator<T> generator, final Predicate<? super T> predicate){
+        if ( predicate == null ){
+            throw new IllegalArgumentException("Predicate cannot be null.");
+        }
+        ShortCircuit<T> sink = new ShortCircuit<T>()
+            {
+                public void yield(T obj){
+                    checkCancelled();
+                    if ( predicate.test(obj) ){
+                        stop();
+                    }
+                }
+            };
+        return sink.run(generator);
+    }
+
+    /**
+     * Determines whether every value of the generator satisfies the predicate,
+     * stopping the generator at the first one that does not.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @param predicate The condition to test.
+     * @return True if all values satisfy the predicate, including when there are none.
+     */
+    public static <T> boolean allMatch(Generator<T> generator, final Predicate<? super T> predicate){
+        if ( predicate == null ){
+            throw new IllegalArgumentException("Predicate cannot be null.");
+        }
+        ShortCircuit<T> sink = new ShortCircuit<T>()
+            {
+                public void yield(T obj){
+                    checkCancelled();
+                    if ( !predicate.test(obj) ){
+                        stop();
+                    }
+                }
+            };
+        return !sink.run(generator);
+    }
+
+    /**
+     * Limits a generator to its first values. The underlying generator is
+     * stopped once the last value has been yielded.
+     * @param <T> The type of the data.
+     * @param generator The source of the data.
+     * @param count The maximum number of values.
+     * @return A generator of at most count values.
+     */
+    public static <T> Generator<T> limit(final Generator<T> generator, final long count){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( count < 0 ){
+            throw new IllegalArgumentException("Count must be >= 0.");
+        }
+        return new Generator<T>()
+        {
+            public void generate(final Yieldable<T> yieldable) {
+                if ( count == 0 ){
+                    return;
+                }
+                new ShortCircuit<T>()
+                    {
+                        public void yield(T obj){
+                            checkCancelled();
+                            yieldable.yield(obj);
+                            if ( ++_count == count ){
+                                stop();
+                            }
+                        }
+
+                        private long _count = 0;
+                    }.run(generator);
+            }
+        };
+    }
+
+    /**
+     * The capacity of the buffer of a multicast whose options do not bound it.
+     */
+    public static final int DEFAULT_MULTICAST_CAPACITY = 1024;
+
+    private static final int PARTS_PER_THREAD = 4;
+    private static final int INITIAL_ARRAY_SIZE = 16;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Chooses the capacity of storage for the given number of values.
+     */
+    private static int initialCapacity(long hint){
+        if ( hint < 0 ){
+            return 10;
+        }
+        return (int) Math.min(hint, MAX_ARRAY_SIZE);
+    }
+
+    /**
+     * Chooses the length of an array that is grown from the given length.
+     */
+    private static int grow(int length){
+        if ( length >= MAX_ARRAY_SIZE ){
+            throw new IllegalStateException("Too many values for an array.");
+        }
+        return (int) Math.min(MAX_ARRAY_SIZE, Math.max(INITIAL_ARRAY_SIZE, 2L * length));
+    }
+
+    /**
+     * Grows an array list to hold the given number of values.
+     */
+    private static void reserve(Collection<?> collection, long hint){
+        if ( (hint > 0) && (collection instanceof ArrayList) ){
+            ((ArrayList<?>) collection).ensureCapacity(collection.size() + initialCapacity(hint));
+        }
+    }
+
+    /**
+     * Creates an array with the given factory, holding it so that a sink can replace it.
+     */
+    private static <T> T[][] newArray(IntFunction<T[]> factory, int length){
+        T[] array = factory.apply(length);
+        @SuppressWarnings("unchecked")
+        T[][] holder = (T[][]) java.lang.reflect.Array.newInstance(array.getClass(), 1);
+        holder[0] = array;
+        return holder;
+    }
+
+    /**
+     * A sink that stops its generator once it has its answer.
+     */
+    private static abstract class ShortCircuit<T> implements CancellableYieldable<T>
     {
-        public Bool(){ this(false); }
-        public Bool(boolean val){ _value = val; }
-        public boolean getValue(){ return _value; }
-        public void setValue(boolean val){ _value = val; }
-        private boolean _value;
+        public boolean isCancelled(){
+            return _stopped;
+        }
+
+        /**
+         * Runs the generator into this sink.
+         * @return True if the sink stopped the generator.
+         */
+        boolean run(Generator<T> generator){
+            if ( generator == null ){
+                throw new IllegalArgumentException("Generator cannot be null.");
+            }
+            try {
+                generator.generate(this);
+            } catch (GeneratorCancelledException ex) {
+                if ( !_stopped ){
+                    throw ex;
+                }
+            }
+            return _stopped;
+        }
+
+        /**
+         * Stops the generator by unwinding it.
+         */
+        void stop(){
+            _stopped = true;
+            throw new GeneratorCancelledException();
+        }
+
+        /**
+         * Guards against generators that swallowed the exception of stop().
+         */
+        void checkCancelled(){
+            if ( _stopped ){
+                throw new GeneratorCancelledException();
+            }
+        }
+
+        T result = null;
+        private boolean _stopped = false;
     }
 }
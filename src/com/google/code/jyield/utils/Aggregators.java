@@ -0,0 +1,197 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Creates ConcurrentAggregator objects for common aggregations. Each one
+ * may be passed to a generator directly, to YieldUtils.generateParallel
+ * with DeliveryOrder.CONCURRENT, or be run with aggregateParallel.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class Aggregators
+{
+    /**
+     * Counts the values.
+     * @param <T> The type of the values.
+     * @return An aggregator whose result is the number of values.
+     */
+    public static <T> ConcurrentAggregator<T, Long> count(){
+        return new ConcurrentAggregator<T, Long>(Collectors.<T>counting());
+    }
+
+    /**
+     * Sums a long property of the values.
+     * @param <T> The type of the values.
+     * @param mapper Extracts the property to sum.
+     * @return An aggregator whose result is the sum, or 0 if there are no values.
+     */
+    public static <T> ConcurrentAggregator<T, Long> sumLong(ToLongFunction<? super T> mapper){
+        if ( mapper == null ){
+            throw new IllegalArgumentException("Mapper cannot be null.");
+        }
+        return new ConcurrentAggregator<T, Long>(Collectors.<T>summingLong(mapper));
+    }
+
+    /**
+     * Sums a double property of the values.
+     * @param <T> The type of the values.
+     * @param mapper Extracts the property to sum.
+     * @return An aggregator whose result is the sum, or 0 if there are no values.
+     */
+    public static <T> ConcurrentAggregator<T, Double> sumDouble(ToDoubleFunction<? super T> mapper){
+        if ( mapper == null ){
+            throw new IllegalArgumentException("Mapper cannot be null.");
+        }
+        return new ConcurrentAggregator<T, Double>(Collectors.<T>summingDouble(mapper));
+    }
+
+    /**
+     * Finds the least value.
+     * @param <T> The type of the values.
+     * @param comparator The order of the values.
+     * @return An aggregator whose result is the least value, or null if there are no values.
+     */
+    public static <T> ConcurrentAggregator<T, T> min(Comparator<? super T> comparator){
+        if ( comparator == null ){
+            throw new IllegalArgumentException("Comparator cannot be null.");
+        }
+        return new ConcurrentAggregator<T, T>(orNull(Collectors.<T>minBy(comparator)));
+    }
+
+    /**
+     * Finds the greatest value.
+     * @param <T> The type of the values.
+     * @param comparator The order of the values.
+     * @return An aggregator whose result is the greatest value, or null if there are no values.
+     */
+    public static <T> ConcurrentAggregator<T, T> max(Comparator<? super T> comparator){
+        if ( comparator == null ){
+            throw new IllegalArgumentException("Comparator cannot be null.");
+        }
+        return new ConcurrentAggregator<T, T>(orNull(Collectors.<T>maxBy(comparator)));
+    }
+
+    /**
+     * Groups the values by key and aggregates each group. Each stripe keeps
+     * its own map, so threads never share a map until the result is built.
+     * @param <T> The type of the values.
+     * @param <K> The type of the keys.
+     * @param <D> The type of the aggregate of each group.
+     * @param classifier Maps each value to its key.
+     * @param downstream The aggregation of the values of each group.
+     * @return An aggregator whose result maps each key to the aggregate of its group.
+     */
+    public static <T, K, D> ConcurrentAggregator<T, Map<K, D>> groupingBy(
+            Function<? super T, ? extends K> classifier, Collector<? super T, ?, D> downstream){
+        if ( classifier == null ){
+            throw new IllegalArgumentException("Classifier cannot be null.");
+        }
+        if ( downstream == null ){
+            throw new IllegalArgumentException("Downstream collector cannot be null.");
+        }
+        return new ConcurrentAggregator<T, Map<K, D>>(
+                Collectors.groupingBy(classifier, downstream));
+    }
+
+    /**
+     * Counts the values of each key.
+     * @param <T> The type of the values.
+     * @param <K> The type of the keys.
+     * @param classifier Maps each value to its key.
+     * @return An aggregator whose result maps each key to its number of values.
+     */
+    public static <T, K> ConcurrentAggregator<T, Map<K, Long>> countBy(Function<? super T, ? extends K> classifier){
+        return groupingBy(classifier, Collectors.<T>counting());
+    }
+
+    /**
+     * Finds the greatest values. Each stripe keeps a heap of at most k
+     * values, so memory does not grow with the number of values. The heaps
+     * start small and grow as needed, so a large k costs nothing for the
+     * stripes that see few values.
+     * @param <T> The type of the values.
+     * @param k The number of values to keep.
+     * @param comparator The order of the values.
+     * @return An aggregator whose result lists at most k of the greatest values, greatest first.
+     */
+    public static <T> ConcurrentAggregator<T, List<T>> topK(final int k, final Comparator<? super T> comparator){
+        if ( k <= 0 ){
+            throw new IllegalArgumentException("K must be >= 1.");
+        }
+        if ( comparator == null ){
+            throw new IllegalArgumentException("Comparator cannot be null.");
+        }
+        Collector<T, PriorityQueue<T>, List<T>> collector = Collector.of(
+                new Supplier<PriorityQueue<T>>()
+                {
+                    public PriorityQueue<T> get(){
+                        return new PriorityQueue<T>(comparator);
+                    }
+                },
+                new BiConsumer<PriorityQueue<T>, T>()
+                {
+                    public void accept(PriorityQueue<T> heap, T value){
+                        offer(heap, value, k, comparator);
+                    }
+                },
+                new BinaryOperator<PriorityQueue<T>>()
+                {
+                    public PriorityQueue<T> apply(PriorityQueue<T> left, PriorityQueue<T> right){
+                        for ( T value : right ){
+                            offer(left, value, k, comparator);
+                        }
+                        return left;
+                    }
+                },
+                new Function<PriorityQueue<T>, List<T>>()
+                {
+                    public List<T> apply(PriorityQueue<T> heap){
+                        List<T> result = new ArrayList<T>(heap);
+                        Collections.sort(result, Collections.reverseOrder(comparator));
+                        return result;
+                    }
+                });
+        return new ConcurrentAggregator<T, List<T>>(collector);
+    }
+
+    /**
+     * Adds a value to a heap of the k greatest values seen so far.
+     */
+    private static <T> void offer(PriorityQueue<T> heap, T value, int k, Comparator<? super T> comparator){
+        if ( heap.size() < k ){
+            heap.add(value);
+        }else if ( comparator.compare(value, heap.peek()) > 0 ){
+            heap.poll();
+            heap.add(value);
+        }
+    }
+
+    /**
+     * Unwraps the optional result of a collector, using null if it is empty.
+     */
+    private static <T, A> Collector<T, A, T> orNull(Collector<T, A, Optional<T>> collector){
+        return Collectors.collectingAndThen(collector, new Function<Optional<T>, T>()
+            {
+                public T apply(Optional<T> result){
+                    return result.orElse(null);
+                }
+            });
+    }
+
+    private Aggregators(){
+    }
+}
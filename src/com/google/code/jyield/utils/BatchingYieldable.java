@@ -0,0 +1,245 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.CancellableYieldable;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.Yieldable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * A yieldable object that collects values into batches and passes each
+ * batch on to another yieldable object once it reaches a limit set by the
+ * WindowOptions. Call flush once the generator has returned to pass on the
+ * final, partial batch; WindowedGenerator does so automatically. With a
+ * maximum delay, a batch left open by a stalled generator is passed on by
+ * a timer thread; a failure of the receiver on that thread is rethrown by
+ * the next call to yield or flush.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class BatchingYieldable<T> implements CancellableYieldable<T>
+{
+    /**
+     * Passes on batches of at most the given number of values.
+     * @param yieldable The object that receives the batches.
+     * @param maxCount The maximum number of values in a batch.
+     */
+    public BatchingYieldable(Yieldable<? super List<T>> yieldable, int maxCount){
+        this(yieldable, new WindowOptions().setMaxCount(maxCount));
+    }
+
+    /**
+     * Passes on batches as configured by the given options, which must not
+     * set a maximum size.
+     * @param yieldable The object that receives the batches.
+     * @param options The limits of each batch; these are copied.
+     */
+    public BatchingYieldable(Yieldable<? super List<T>> yieldable, WindowOptions options){
+        this(yieldable, options, null);
+    }
+
+    /**
+     * Passes on batches as configured by the given options, measuring each
+     * value with the given sizer for the maximum size of the options.
+     * @param yieldable The object that receives the batches.
+     * @param options The limits of each batch; these are copied.
+     * @param sizer The function that measures each value, or null if the options set no maximum size.
+     */
+    public BatchingYieldable(Yieldable<? super List<T>> yieldable, WindowOptions options,
+            ToLongFunction<? super T> sizer){
+        if ( yieldable == null ){
+            throw new IllegalArgumentException("Yieldable cannot be null.");
+        }
+        if ( options == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        if ( (options.getMaxSize() > 0) && (sizer == null) ){
+            throw new IllegalArgumentException("Sizer cannot be null when a maximum size is set.");
+        }
+        _yieldable = yieldable;
+        _maxCount = options.getMaxCount();
+        _maxDelayNanos = options.getMaxDelayNanos();
+        _maxSize = options.getMaxSize();
+        _sizer = (_maxSize > 0) ? sizer : null;
+        _reuseBuffers = options.getReuseBuffers();
+        _batch = new ArrayList<T>(_maxCount);
+    }
+
+    public void yield(T obj){
+        if ( _maxDelayNanos == 0 ){
+            add(obj);
+            return;
+        }
+        _lock.lock();
+        try {
+            checkTimerFailure();
+            add(obj);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public boolean isCancelled(){
+        return YieldUtils.isCancelled(_yieldable);
+    }
+
+    /**
+     * Passes on the current batch, if it holds any values.
+     */
+    public void flush(){
+        if ( _maxDelayNanos == 0 ){
+            pass();
+            return;
+        }
+        _lock.lock();
+        try {
+            checkTimerFailure();
+            pass();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a value to the batch and passes the batch on if it is complete.
+     */
+    private void add(T obj){
+        if ( _sizer != null ){
+            long size = _sizer.applyAsLong(obj);
+            if ( !_batch.isEmpty() && (_size + size > _maxSize) ){
+                pass();
+            }
+            _size += size;
+        }
+        if ( _batch.isEmpty() && (_maxDelayNanos > 0) ){
+            _batchStart = System.nanoTime();
+            schedule();
+        }
+        _batch.add(obj);
+        if ( (_batch.size() >= _maxCount)
+                || ((_sizer != null) && (_size >= _maxSize))
+                || ((_maxDelayNanos > 0) && (System.nanoTime() - _batchStart >= _maxDelayNanos)) ){
+            pass();
+        }
+    }
+
+    /**
+     * Passes on the current batch, if it holds any values.
+     */
+    private void pass(){
+        if ( _batch.isEmpty() ){
+            return;
+        }
+        if ( _timer != null ){
+            _timer.cancel(false);
+            _timer = null;
+        }
+        List<T> batch = _batch;
+        _size = 0;
+        if ( _reuseBuffers ){
+            try {
+                _yieldable.yield(batch);
+            } finally {
+                batch.clear();
+            }
+        }else{
+            _batch = new ArrayList<T>(_maxCount);
+            _yieldable.yield(batch);
+        }
+    }
+
+    /**
+     * Arranges for the batch that was just started to be passed on once the
+     * maximum delay has passed, should it still be open by then.
+     */
+    private void schedule(){
+        final long batchNumber = ++_batchNumber;
+        _timer = Timers.SCHEDULER.schedule(new Runnable()
+            {
+                public void run(){
+                    // The receiver may block, so it is not called on the timer's own thread.
+                    Timers.FLUSHERS.execute(new Runnable()
+                        {
+                            public void run(){
+                                passStale(batchNumber);
+                            }
+                        });
+                }
+            }, _maxDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Passes on the given batch if it is still open. Called on a timer thread.
+     */
+    private void passStale(long batchNumber){
+        _lock.lock();
+        try {
+            if ( (batchNumber != _batchNumber) || (_timerFailure != null) ){
+                return;
+            }
+            pass();
+        } catch (RuntimeException ex) {
+            _timerFailure = ex;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Rethrows, on the generator's thread, the failure of a batch passed on by the timer.
+     */
+    private void checkTimerFailure(){
+        if ( _timerFailure != null ){
+            throw _timerFailure;
+        }
+    }
+
+    /**
+     * The threads that pass on stale batches, shared by every instance.
+     */
+    private static class Timers
+    {
+        static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+        static final ExecutorService FLUSHERS = Executors.newCachedThreadPool(daemons("jyield-window-flusher"));
+
+        private static ScheduledThreadPoolExecutor createScheduler(){
+            ScheduledThreadPoolExecutor result = new ScheduledThreadPoolExecutor(1, daemons("jyield-window-timer"));
+            result.setRemoveOnCancelPolicy(true);
+            return result;
+        }
+
+        private static ThreadFactory daemons(final String name){
+            return new ThreadFactory()
+                {
+                    public Thread newThread(Runnable task){
+                        Thread result = new Thread(task, name);
+                        result.setDaemon(true);
+                        return result;
+                    }
+                };
+        }
+    }
+
+    private final Yieldable<? super List<T>> _yieldable;
+    private final int _maxCount;
+    private final long _maxDelayNanos;
+    private final long _maxSize;
+    private final ToLongFunction<? super T> _sizer;
+    private final boolean _reuseBuffers;
+    private final ReentrantLock _lock = new ReentrantLock();
+
+    // Guarded by the lock if there is a maximum delay.
+    private ArrayList<T> _batch;
+    private long _size = 0;
+    private long _batchStart = 0;
+    private long _batchNumber = 0;
+    private ScheduledFuture<?> _timer = null;
+    private RuntimeException _timerFailure = null;
+}
@@ -0,0 +1,404 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.CancellableYieldable;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.Yieldable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A generator that records the values of another generator the first time it
+ * runs and replays the recording afterwards, so that a costly generator can
+ * be iterated many times while running only once. Runs that start while the
+ * recording is still being made follow it, waiting for new values as they
+ * are recorded. If the run that makes the recording stops early, or the
+ * generator fails, the partial recording is discarded and the next run that
+ * needs more values records again, skipping the values it has already seen.
+ *
+ * <p>Values are kept in memory up to a limit; with a serializer, the rest are
+ * written to a temporary file. A GeneratorCache can limit the values held by a
+ * group of cached generators by discarding the least recently used recordings.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class CachedGenerator<T> implements Generator<T>
+{
+    /**
+     * Caches all the values of the given generator in memory.
+     * @param generator The generator whose values to cache.
+     */
+    public CachedGenerator(Generator<T> generator){
+        this(generator, Integer.MAX_VALUE, null, null);
+    }
+
+    /**
+     * Caches the values of the given generator in memory, as part of the given cache.
+     * @param generator The generator whose values to cache.
+     * @param cache The cache that limits the values of all its generators.
+     */
+    public CachedGenerator(Generator<T> generator, GeneratorCache cache){
+        this(generator, Integer.MAX_VALUE, null, cache);
+    }
+
+    /**
+     * Caches the values of the given generator, moving those past the given
+     * number to a temporary file.
+     * @param generator The generator whose values to cache.
+     * @param maxInMemory The maximum number of values to keep in memory.
+     * @param serializer The serializer with which to write the values to a file.
+     */
+    public CachedGenerator(Generator<T> generator, int maxInMemory, Serializer<T> serializer){
+        this(generator, maxInMemory, serializer, null);
+    }
+
+    /**
+     * Caches the values of the given generator, as part of the given cache.
+     * @param generator The generator whose values to cache.
+     * @param maxInMemory The maximum number of values to keep in memory.
+     * @param serializer The serializer with which to write the values past maxInMemory
+     *                   to a file, or null to keep all the values in memory.
+     * @param cache The cache that limits the values of all its generators, or null.
+     */
+    public CachedGenerator(Generator<T> generator, int maxInMemory, Serializer<T> serializer,
+            GeneratorCache cache){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( maxInMemory < 0 ){
+            throw new IllegalArgumentException("Maximum in memory must be >= 0.");
+        }
+        if ( (serializer == null) && (maxInMemory != Integer.MAX_VALUE) ){
+            throw new IllegalArgumentException("Serializer cannot be null when memory is limited.");
+        }
+        _generator = generator;
+        _maxInMemory = maxInMemory;
+        _serializer = serializer;
+        _cache = cache;
+    }
+
+    public void generate(Yieldable<T> yieldable){
+        long delivered = 0;
+        while ( true ){
+            Recording<T> recording;
+            boolean recorder = false;
+            synchronized (this){
+                recording = _recording;
+                if ( (recording == null) || recording.isAbandoned() ){
+                    recording = new Recording<T>(_maxInMemory, _serializer);
+                    _recording = recording;
+                    recorder = true;
+                }
+                recording.acquire();
+            }
+            if ( _cache != null ){
+                _cache.touch(this);
+            }
+            try {
+                if ( recorder ){
+                    record(recording, yieldable, delivered);
+                    return;
+                }
+                delivered = recording.replay(yieldable, delivered);
+                if ( delivered < 0 ){
+                    return;
+                }
+            } finally {
+                recording.release();
+            }
+        }
+    }
+
+    /**
+     * Discards the recording, so that the next run records again. Runs that
+     * are replaying the recording finish normally.
+     */
+    public void invalidate(){
+        Recording<T> recording;
+        synchronized (this){
+            recording = _recording;
+            if ( (recording == null) || !recording.isComplete() ){
+                return;
+            }
+            _recording = null;
+            if ( _cache != null ){
+                _cache.remove(this, recording);
+            }
+        }
+        recording.discard();
+    }
+
+    /**
+     * Reports whether a complete recording is available.
+     */
+    public synchronized boolean isCached(){
+        return (_recording != null) && _recording.isComplete();
+    }
+
+    private void record(final Recording<T> recording, final Yieldable<T> yieldable, final long skip){
+        boolean complete = false;
+        try {
+            _generator.generate(new CancellableYieldable<T>()
+                {
+                    public void yield(T obj){
+                        if ( recording.append(obj) > skip ){
+                            yieldable.yield(obj);
+                        }
+                    }
+
+                    public boolean isCancelled(){
+                        return YieldUtils.isCancelled(yieldable);
+                    }
+                });
+            complete = true;
+        } finally {
+            if ( complete ){
+                recording.complete();
+            }else{
+                synchronized (this){
+                    if ( _recording == recording ){
+                        _recording = null;
+                    }
+                }
+                recording.abandon();
+            }
+        }
+        if ( _cache != null ){
+            synchronized (this){
+                if ( _recording != recording ){
+                    // Invalidated, or replaced by a new run, before it could be cached.
+                    return;
+                }
+                _cache.add(this, recording, recording.size());
+            }
+            _cache.trim(this);
+        }
+    }
+
+    /**
+     * Discards the given recording, which the cache has evicted, if it is
+     * still the current one.
+     */
+    void evict(Object recording){
+        synchronized (this){
+            if ( _recording != recording ){
+                return;
+            }
+            _recording = null;
+        }
+        ((Recording<?>) recording).discard();
+    }
+
+    /**
+     * The values recorded from one run of the generator. The values before
+     * the memory limit are kept in an array, and the rest are appended to a
+     * file, which each reader reads with a stream of its own. The file is
+     * deleted once the recording is discarded or abandoned and has no readers,
+     * or once the recording is unreachable.
+     */
+    private static class Recording<T>
+    {
+        public Recording(int maxInMemory, Serializer<T> serializer){
+            _maxInMemory = maxInMemory;
+            _serializer = serializer;
+        }
+
+        /**
+         * Records a value.
+         * @return The number of values recorded.
+         */
+        public synchronized long append(T obj){
+            try {
+                if ( _size < _maxInMemory ){
+                    if ( _size == _values.length ){
+                        int length = (int) Math.min(_maxInMemory, Math.max(16, 2L * _values.length));
+                        _values = Arrays.copyOf(_values, length);
+                    }
+                    _values[(int) _size] = obj;
+                }else{
+                    if ( _out == null ){
+                        _file = Files.createTempFile("jyield-cache", ".bin");
+                        _out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(_file)));
+                        _registration = SpillFiles.register(this, _file, _out);
+                    }
+                    _serializer.write(obj, _out);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            _size++;
+            if ( _waiting ){
+                _waiting = false;
+                notifyAll();
+            }
+            return _size;
+        }
+
+        public synchronized void complete(){
+            try {
+                closeOutput();
+            } finally {
+                _complete = true;
+                notifyAll();
+            }
+        }
+
+        public synchronized void abandon(){
+            _abandoned = true;
+            notifyAll();
+            cleanUp();
+        }
+
+        public synchronized void discard(){
+            _discarded = true;
+            cleanUp();
+        }
+
+        public synchronized boolean isComplete(){
+            return _complete;
+        }
+
+        public synchronized boolean isAbandoned(){
+            return _abandoned;
+        }
+
+        public synchronized long size(){
+            return _size;
+        }
+
+        public synchronized void acquire(){
+            _readers++;
+        }
+
+        public synchronized void release(){
+            _readers--;
+            cleanUp();
+        }
+
+        /**
+         * Yields the recorded values from the given index on, waiting for
+         * more to be recorded until the recording is complete or abandoned.
+         * @return -1 if every value was yielded, or the number of values
+         *         yielded in total if the recording was abandoned.
+         */
+        public long replay(Yieldable<T> yieldable, long index){
+            DataInputStream in = null;
+            long position = _maxInMemory;
+            try {
+                while ( true ){
+                    Object[] values;
+                    long available;
+                    synchronized (this){
+                        while ( (index >= _size) && !_complete && !_abandoned ){
+                            _waiting = true;
+                            try {
+                                wait();
+                            } catch (InterruptedException ex) {
+                                Thread.currentThread().interrupt();
+                                throw new IllegalStateException("Interrupted while waiting for a recording.", ex);
+                            }
+                        }
+                        if ( index >= _size ){
+                            return _complete ? -1 : index;
+                        }
+                        available = _size;
+                        values = _values;
+                        if ( (available > _maxInMemory) && (_out != null) ){
+                            _out.flush();
+                        }
+                    }
+                    for ( ; (index < available) && (index < _maxInMemory); index++ ){
+                        @SuppressWarnings("unchecked")
+                        T value = (T) values[(int) index];
+                        yieldable.yield(value);
+                    }
+                    if ( index < available ){
+                        if ( in == null ){
+                            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file())));
+                        }
+                        for ( ; position < index; position++ ){
+                            _serializer.read(in);
+                        }
+                        for ( ; index < available; index++, position++ ){
+                            yieldable.yield(_serializer.read(in));
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } finally {
+                if ( in != null ){
+                    try {
+                        in.close();
+                    } catch (IOException ex) {
+                        // Nothing more can be read; the failure does not matter.
+                    }
+                }
+            }
+        }
+
+        private synchronized Path file(){
+            return _file;
+        }
+
+        private void closeOutput(){
+            if ( _out != null ){
+                try {
+                    _out.close();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                } finally {
+                    _out = null;
+                }
+            }
+        }
+
+        private void cleanUp(){
+            if ( (_discarded || _abandoned) && (_readers == 0) ){
+                _values = NONE;
+                try {
+                    closeOutput();
+                } catch (UncheckedIOException ex) {
+                    // The file is about to be deleted anyway.
+                }
+                if ( _file != null ){
+                    try {
+                        Files.deleteIfExists(_file);
+                    } catch (IOException ex) {
+                        // Leave the file for the system to clean up.
+                    }
+                    SpillFiles.unregister(_registration);
+                    _registration = null;
+                    _file = null;
+                }
+            }
+        }
+
+        private static final Object[] NONE = new Object[0];
+
+        private final int _maxInMemory;
+        private final Serializer<T> _serializer;
+        private Object[] _values = NONE;
+        private long _size = 0;
+        private Path _file = null;
+        private DataOutputStream _out = null;
+        private Object _registration = null;
+        private boolean _waiting = false;
+        private boolean _complete = false;
+        private boolean _abandoned = false;
+        private boolean _discarded = false;
+        private int _readers = 0;
+    }
+
+    private final Generator<T> _generator;
+    private final int _maxInMemory;
+    private final Serializer<T> _serializer;
+    private final GeneratorCache _cache;
+    private Recording<T> _recording = null;
+}
@@ -0,0 +1,93 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.CloseableIterator;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.ResumableGenerator;
+import com.google.code.jyield.YieldOptions;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.Yieldable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The common base of the generators that combine the values of several
+ * generators by pulling from each in turn. An input that is also an
+ * Iterable, such as a Range, or that is a ResumableGenerator is read on the
+ * calling thread. Any other input is converted with YieldUtils.toIterable;
+ * by default on virtual threads where the runtime has them and otherwise on
+ * a shared pool of daemon threads, with values passed over in batches.
+ * Every input is closed once the combined generator finishes or is cancelled.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+abstract class CombinedGenerator<T, R> implements Generator<R>
+{
+    CombinedGenerator(List<? extends Generator<T>> inputs, YieldOptions options){
+        if ( inputs == null ){
+            throw new IllegalArgumentException("Inputs cannot be null.");
+        }
+        if ( options == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        for ( Generator<T> input : inputs ){
+            if ( input == null ){
+                throw new IllegalArgumentException("Input cannot be null.");
+            }
+        }
+        _inputs = new ArrayList<Generator<T>>(inputs);
+        _options = new YieldOptions(options);
+    }
+
+    public void generate(Yieldable<R> yieldable){
+        List<Iterator<T>> iterators = new ArrayList<Iterator<T>>(_inputs.size());
+        try {
+            for ( Generator<T> input : _inputs ){
+                iterators.add(open(input));
+            }
+            combine(iterators, yieldable);
+        } finally {
+            for ( Iterator<T> iterator : iterators ){
+                if ( iterator instanceof CloseableIterator ){
+                    ((CloseableIterator<T>) iterator).close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Yields the combination of the values of the inputs.
+     * @param inputs An iterator for each input, in order.
+     * @param yieldable The object to which to yield the combined values.
+     */
+    abstract void combine(List<Iterator<T>> inputs, Yieldable<R> yieldable);
+
+    /**
+     * Creates the options with which inputs that can only push their values
+     * are converted by default.
+     */
+    static YieldOptions defaultOptions(){
+        return new YieldOptions()
+            .useVirtualThreads()
+            .setCapacity(DEFAULT_CAPACITY)
+            .setBatchSize(DEFAULT_BATCH_SIZE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Iterator<T> open(Generator<T> input){
+        if ( input instanceof Iterable ){
+            return ((Iterable<T>) input).iterator();
+        }
+        if ( input instanceof ResumableGenerator ){
+            // Plain options never need a worker, so the input is stepped on
+            // this thread even though the default options use virtual threads.
+            return YieldUtils.toIterable(input, new YieldOptions()).iterator();
+        }
+        return YieldUtils.toIterable(input, _options).iterator();
+    }
+
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final int DEFAULT_BATCH_SIZE = 32;
+
+    private final List<Generator<T>> _inputs;
+    private final YieldOptions _options;
+}
@@ -0,0 +1,52 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+
+/**
+ * A transformation that applies several transformations in turn. Nested
+ * compositions are flattened into a single list of transformations.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class ComposedTransformation<T> implements Transformation<T>
+{
+    /**
+     * Composes two transformations.
+     * @param first The transformation to apply first.
+     * @param second The transformation to apply to the result of the first.
+     */
+    public ComposedTransformation(Transformation<T> first, Transformation<T> second){
+        if ( first == null ){
+            throw new IllegalArgumentException("First transformation cannot be null.");
+        }
+        if ( second == null ){
+            throw new IllegalArgumentException("Second transformation cannot be null.");
+        }
+        Transformation<T>[] head = flatten(first);
+        Transformation<T>[] tail = flatten(second);
+        _transformations = newArray(head.length + tail.length);
+        System.arraycopy(head, 0, _transformations, 0, head.length);
+        System.arraycopy(tail, 0, _transformations, head.length, tail.length);
+    }
+
+    public T transform(T obj) {
+        for ( Transformation<T> transformation : _transformations ){
+            obj = transformation.transform(obj);
+        }
+        return obj;
+    }
+
+    private static <T> Transformation<T>[] flatten(Transformation<T> transformation){
+        if ( transformation instanceof ComposedTransformation ){
+            return ((ComposedTransformation<T>) transformation)._transformations;
+        }
+        Transformation<T>[] result = newArray(1);
+        result[0] = transformation;
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Transformation<T>[] newArray(int length){
+        return (Transformation<T>[]) new Transformation<?>[length];
+    }
+
+    private final Transformation<T>[] _transformations;
+}
@@ -0,0 +1,58 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.Yieldable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates all the values of several generators, one generator after
+ * another. The generators are run on the calling thread.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class ConcatenatedGenerator<T> implements Generator<T>
+{
+    /**
+     * Concatenates the given generators.
+     * @param inputs The generators, in order.
+     */
+    @SafeVarargs
+    public ConcatenatedGenerator(Generator<T>... inputs){
+        if ( inputs == null ){
+            throw new IllegalArgumentException("Inputs cannot be null.");
+        }
+        _inputs = new ArrayList<Generator<T>>(inputs.length);
+        for ( Generator<T> input : inputs ){
+            add(input);
+        }
+    }
+
+    /**
+     * Concatenates the given generators.
+     * @param inputs The generators, in order.
+     */
+    public ConcatenatedGenerator(List<? extends Generator<T>> inputs){
+        if ( inputs == null ){
+            throw new IllegalArgumentException("Inputs cannot be null.");
+        }
+        _inputs = new ArrayList<Generator<T>>(inputs.size());
+        for ( Generator<T> input : inputs ){
+            add(input);
+        }
+    }
+
+    public void generate(Yieldable<T> yieldable){
+        for ( Generator<T> input : _inputs ){
+            input.generate(yieldable);
+        }
+    }
+
+    private void add(Generator<T> input){
+        if ( input == null ){
+            throw new IllegalArgumentException("Input cannot be null.");
+        }
+        _inputs.add(input);
+    }
+
+    private final List<Generator<T>> _inputs;
+}
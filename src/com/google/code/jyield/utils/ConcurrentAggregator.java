@@ -0,0 +1,210 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.DeliveryOrder;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.Yieldable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * A thread-safe yieldable object that aggregates the values it receives
+ * with a Collector, such as those of Aggregators or java.util.stream.Collectors.
+ * Rather than sharing one container, the values are accumulated into
+ * several stripes, each with its own container and lock. A thread that
+ * finds its stripe busy moves on to the next free one, so threads that
+ * yield at the same time rarely wait for each other. The stripes are
+ * combined once, when the result is first requested; after that, the
+ * aggregator accepts no further values.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class ConcurrentAggregator<T, R> implements Yieldable<T>
+{
+    /**
+     * Aggregates with the given collector, using two stripes per processor.
+     * @param collector The aggregation to perform.
+     */
+    public ConcurrentAggregator(Collector<? super T, ?, R> collector){
+        this(collector, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Aggregates with the given collector.
+     * @param collector The aggregation to perform.
+     * @param stripes The number of containers into which to accumulate;
+     * this is rounded up to a power of two.
+     */
+    public ConcurrentAggregator(Collector<? super T, ?, R> collector, int stripes){
+        if ( collector == null ){
+            throw new IllegalArgumentException("Collector cannot be null.");
+        }
+        if ( stripes <= 0 ){
+            throw new IllegalArgumentException("Stripes must be >= 1.");
+        }
+        int count = Integer.highestOneBit(Math.min(stripes, MAX_STRIPES));
+        if ( count < stripes ){
+            count = Math.min(count << 1, MAX_STRIPES);
+        }
+        _stripes = new Stripes<T, R>(collector, count);
+    }
+
+    public void yield(T obj){
+        if ( _done ){
+            throw new IllegalStateException("Aggregator has already produced its result.");
+        }
+        _stripes.accumulate(obj);
+    }
+
+    /**
+     * Runs the generator on the calling thread and returns the result.
+     * @param generator The source of the values.
+     * @return The aggregate of the values.
+     */
+    public R aggregate(Generator<T> generator){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        generator.generate(this);
+        return result();
+    }
+
+    /**
+     * Runs the generator on a new fork-join pool with the given number of
+     * threads, delivering the values concurrently, and returns the result.
+     * @param generator The source of the values.
+     * @param parallelism The number of threads to use.
+     * @return The aggregate of the values.
+     * @see YieldUtils#generateParallel(Generator, Yieldable, int, DeliveryOrder)
+     */
+    public R aggregateParallel(Generator<T> generator, int parallelism){
+        YieldUtils.generateParallel(generator, this, parallelism, DeliveryOrder.CONCURRENT);
+        return result();
+    }
+
+    /**
+     * Runs the generator on the given pool, delivering the values
+     * concurrently, and returns the result.
+     * @param generator The source of the values.
+     * @param pool The pool on which to run the parts of the generator.
+     * @return The aggregate of the values.
+     * @see YieldUtils#generateParallel(Generator, Yieldable, ForkJoinPool, DeliveryOrder)
+     */
+    public R aggregateParallel(Generator<T> generator, ForkJoinPool pool){
+        YieldUtils.generateParallel(generator, this, pool, DeliveryOrder.CONCURRENT);
+        return result();
+    }
+
+    /**
+     * Combines the stripes and returns the aggregate. Call this once all
+     * values have been yielded; later calls return the same result, and
+     * any further value is rejected with an IllegalStateException.
+     * @return The aggregate of the values.
+     */
+    public synchronized R result(){
+        if ( !_done ){
+            _done = true;
+            _result = _stripes.combine();
+        }
+        return _result;
+    }
+
+    /**
+     * The containers of one aggregation, with the collector's functions
+     * bound to the collector's container type.
+     */
+    private static final class Stripes<T, R>
+    {
+        @SuppressWarnings("unchecked")
+        Stripes(Collector<? super T, ?, R> collector, int count){
+            Collector<T, Object, R> c = (Collector<T, Object, R>) collector;
+            _supplier = c.supplier();
+            _accumulator = c.accumulator();
+            _combiner = c.combiner();
+            _finisher = c.finisher();
+            _locks = new ReentrantLock[count];
+            _containers = new Object[count];
+            for ( int i = 0; i < count; i++ ){
+                _locks[i] = new ReentrantLock();
+                _containers[i] = _supplier.get();
+            }
+        }
+
+        void accumulate(T obj){
+            int mask = _locks.length - 1;
+            int home = probe() & mask;
+            for ( int i = 0; i <= mask; i++ ){
+                int index = (home + i) & mask;
+                ReentrantLock lock = _locks[index];
+                if ( lock.tryLock() ){
+                    try {
+                        accept(index, obj);
+                    } finally {
+                        lock.unlock();
+                    }
+                    return;
+                }
+            }
+            ReentrantLock lock = _locks[home];
+            lock.lock();
+            try {
+                accept(home, obj);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Accumulates a value into a stripe whose lock is held.
+         */
+        private void accept(int index, T obj){
+            Object container = _containers[index];
+            if ( container == null ){
+                throw new IllegalStateException("Aggregator has already produced its result.");
+            }
+            _accumulator.accept(container, obj);
+        }
+
+        R combine(){
+            Object result = null;
+            for ( int i = 0; i < _locks.length; i++ ){
+                Object container;
+                _locks[i].lock();
+                try {
+                    container = _containers[i];
+                    _containers[i] = null;
+                } finally {
+                    _locks[i].unlock();
+                }
+                result = (i == 0) ? container : _combiner.apply(result, container);
+            }
+            return _finisher.apply(result);
+        }
+
+        /**
+         * Spreads the identity hash of the current thread, so that threads
+         * start on different stripes.
+         */
+        private static int probe(){
+            int h = System.identityHashCode(Thread.currentThread());
+            return h ^ (h >>> 16);
+        }
+
+        private final Supplier<Object> _supplier;
+        private final BiConsumer<Object, T> _accumulator;
+        private final BinaryOperator<Object> _combiner;
+        private final Function<Object, R> _finisher;
+        private final ReentrantLock[] _locks;
+        private final Object[] _containers;
+    }
+
+    private static final int MAX_STRIPES = 1 << 16;
+
+    private final Stripes<T, R> _stripes;
+    private volatile boolean _done = false;
+    private R _result = null;
+}
@@ -0,0 +1,131 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.Yieldable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Generates the records of a file that are separated by a delimiter byte,
+ * without the delimiter. The file is mapped into memory a segment at a time
+ * rather than read through a stream. By default each record is a new buffer
+ * that stays valid; with reusable views, each record is a read-only view of
+ * the mapped file that is only valid until the next record is yielded, and no
+ * bytes are copied. A final record without a delimiter is also yielded.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class DelimitedRecordGenerator extends MappedFileGenerator<ByteBuffer>
+{
+    /**
+     * Generates the records of the given file as new buffers.
+     * @param path The file.
+     * @param delimiter The byte that ends each record.
+     */
+    public DelimitedRecordGenerator(Path path, byte delimiter){
+        this(path, delimiter, false);
+    }
+
+    /**
+     * Generates the records of the given file.
+     * @param path The file.
+     * @param delimiter The byte that ends each record.
+     * @param reuseViews True to yield a reused view of each record instead of a copy.
+     */
+    public DelimitedRecordGenerator(Path path, byte delimiter, boolean reuseViews){
+        this(path, delimiter, reuseViews, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Generates the records of the given file.
+     * @param path The file.
+     * @param delimiter The byte that ends each record.
+     * @param reuseViews True to yield a reused view of each record instead of a copy.
+     * @param segmentSize The number of bytes to map at a time.
+     */
+    public DelimitedRecordGenerator(Path path, byte delimiter, boolean reuseViews, int segmentSize){
+        this(path, delimiter, reuseViews, segmentSize, 0, Long.MAX_VALUE);
+    }
+
+    private DelimitedRecordGenerator(Path path, byte delimiter, boolean reuseViews,
+            int segmentSize, long start, long end){
+        super(path, start, end, segmentSize);
+        _delimiter = delimiter;
+        _reuseViews = reuseViews;
+    }
+
+    void generate(FileChannel channel, long size, Yieldable<ByteBuffer> yieldable) throws IOException {
+        long end = Math.min(getEnd(), size);
+        if ( getStart() >= end ){
+            return;
+        }
+        // A region other than the first starts with the remainder of the
+        // record before it, which ends at the first delimiter at or after
+        // the byte before the region; that record belongs to the region before.
+        boolean skip = getStart() > 0;
+        long recordStart = skip ? getStart() - 1 : getStart();
+        long scanned = recordStart;
+        ByteBuffer segment = null;
+        ByteBuffer view = null;
+        long segmentStart = 0;
+        while ( true ){
+            if ( segment == null ){
+                segmentStart = recordStart;
+                segment = map(channel, segmentStart, Math.min(size - segmentStart, getSegmentSize()));
+                view = segment.duplicate();
+            }
+            int from = (int) (recordStart - segmentStart);
+            int limit = segment.limit();
+            int index = (int) (scanned - segmentStart);
+            while ( (index < limit) && (segment.get(index) != _delimiter) ){
+                index++;
+            }
+            if ( index < limit ){
+                if ( skip ){
+                    skip = false;
+                }else{
+                    emit(view, from, index, yieldable);
+                }
+                recordStart = segmentStart + index + 1;
+                scanned = recordStart;
+                if ( recordStart >= end ){
+                    return;
+                }
+                if ( index + 1 >= limit ){
+                    segment = null;
+                }
+            }else if ( segmentStart + limit >= size ){
+                if ( !skip && (from < limit) ){
+                    emit(view, from, limit, yieldable);
+                }
+                return;
+            }else{
+                // The record crosses the end of the segment; map a segment
+                // that starts with the record and is long enough to hold it.
+                scanned = segmentStart + limit;
+                segmentStart = recordStart;
+                long length = Math.max(getSegmentSize(), 2L * (limit - from));
+                segment = map(channel, segmentStart, Math.min(size - segmentStart, length));
+                view = segment.duplicate();
+            }
+        }
+    }
+
+    MappedFileGenerator<ByteBuffer> region(long start, long end){
+        return new DelimitedRecordGenerator(getPath(), _delimiter, _reuseViews, getSegmentSize(), start, end);
+    }
+
+    private void emit(ByteBuffer view, int from, int to, Yieldable<ByteBuffer> yieldable){
+        view(view, from, to);
+        if ( _reuseViews ){
+            yieldable.yield(view);
+            return;
+        }
+        byte[] copy = new byte[to - from];
+        view.get(copy);
+        yieldable.yield(ByteBuffer.wrap(copy));
+    }
+
+    private final byte _delimiter;
+    private final boolean _reuseViews;
+}
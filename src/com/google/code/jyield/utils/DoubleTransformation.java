@@ -0,0 +1,16 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+
+/**
+ * A class that applies some transformation to a double value.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface DoubleTransformation
+{
+    /**
+     * Applies some transformation to the given value.
+     * @param value A value to transform.
+     * @return The result of transforming the value.
+     */
+    public double transform(double value);
+}
@@ -0,0 +1,93 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.Yieldable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Generates the records of a file whose records all have the same length.
+ * The file is mapped into memory a segment at a time rather than read
+ * through a stream. By default each record is a new buffer that stays valid;
+ * with reusable views, each record is a read-only view of the mapped file
+ * that is only valid until the next record is yielded, and no bytes are
+ * copied. If the length of the file is not a multiple of the record length,
+ * the final record is shorter.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class FixedWidthRecordGenerator extends MappedFileGenerator<ByteBuffer>
+{
+    /**
+     * Generates the records of the given file as new buffers.
+     * @param path The file.
+     * @param recordLength The number of bytes in each record.
+     */
+    public FixedWidthRecordGenerator(Path path, int recordLength){
+        this(path, recordLength, false);
+    }
+
+    /**
+     * Generates the records of the given file.
+     * @param path The file.
+     * @param recordLength The number of bytes in each record.
+     * @param reuseViews True to yield a reused view of each record instead of a copy.
+     */
+    public FixedWidthRecordGenerator(Path path, int recordLength, boolean reuseViews){
+        this(path, recordLength, reuseViews, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Generates the records of the given file.
+     * @param path The file.
+     * @param recordLength The number of bytes in each record.
+     * @param reuseViews True to yield a reused view of each record instead of a copy.
+     * @param segmentSize The number of bytes to map at a time; rounded to whole records.
+     */
+    public FixedWidthRecordGenerator(Path path, int recordLength, boolean reuseViews, int segmentSize){
+        this(path, recordLength, reuseViews, segmentSize, 0, Long.MAX_VALUE);
+    }
+
+    private FixedWidthRecordGenerator(Path path, int recordLength, boolean reuseViews,
+            int segmentSize, long start, long end){
+        super(path, start, end, segmentSize);
+        if ( recordLength <= 0 ){
+            throw new IllegalArgumentException("Record length must be >= 1.");
+        }
+        _recordLength = recordLength;
+        _reuseViews = reuseViews;
+    }
+
+    void generate(FileChannel channel, long size, Yieldable<ByteBuffer> yieldable) throws IOException {
+        long end = Math.min(getEnd(), size);
+        long segmentLength = Math.max(1, getSegmentSize() / _recordLength) * (long) _recordLength;
+        for ( long segmentStart = align(getStart()); segmentStart < end; segmentStart += segmentLength ){
+            ByteBuffer segment = map(channel, segmentStart, Math.min(size - segmentStart, segmentLength));
+            ByteBuffer view = segment.duplicate();
+            int limit = (int) Math.min(segment.limit(), end - segmentStart);
+            for ( int from = 0; from < limit; from += _recordLength ){
+                int to = Math.min(from + _recordLength, segment.limit());
+                view(view, from, to);
+                if ( _reuseViews ){
+                    yieldable.yield(view);
+                }else{
+                    byte[] copy = new byte[to - from];
+                    view.get(copy);
+                    yieldable.yield(ByteBuffer.wrap(copy));
+                }
+            }
+        }
+    }
+
+    MappedFileGenerator<ByteBuffer> region(long start, long end){
+        return new FixedWidthRecordGenerator(getPath(), _recordLength, _reuseViews, getSegmentSize(), start, end);
+    }
+
+    long align(long offset){
+        long remainder = offset % _recordLength;
+        return (remainder == 0) ? offset : offset + (_recordLength - remainder);
+    }
+
+    private final int _recordLength;
+    private final boolean _reuseViews;
+}
@@ -0,0 +1,119 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits the total number of values recorded by a group of cached
+ * generators. When a recording completes and the total exceeds the limit,
+ * the recordings of the least recently used generators are discarded until
+ * it no longer does; those generators record again the next time they run.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class GeneratorCache
+{
+    /**
+     * Constructs a cache that holds at most the given number of values.
+     * @param maxValues The maximum number of values, in memory or on disk, of all the recordings.
+     */
+    public GeneratorCache(long maxValues){
+        if ( maxValues <= 0 ){
+            throw new IllegalArgumentException("Maximum values must be >= 1.");
+        }
+        _maxValues = maxValues;
+    }
+
+    /**
+     * Reports the number of values held by the recordings in this cache.
+     */
+    public synchronized long size(){
+        return _size;
+    }
+
+    /**
+     * Discards the recordings of all the generators in this cache.
+     */
+    public void clear(){
+        CachedGenerator<?>[] generators;
+        synchronized (this){
+            generators = _recordings.keySet().toArray(new CachedGenerator<?>[0]);
+        }
+        for ( CachedGenerator<?> generator : generators ){
+            generator.invalidate();
+        }
+    }
+
+    synchronized void touch(CachedGenerator<?> generator){
+        _recordings.get(generator);
+    }
+
+    /**
+     * Records that the generator now holds the given complete recording.
+     * Called while holding the generator's lock, so that the recording
+     * cannot be discarded before it is added.
+     */
+    synchronized void add(CachedGenerator<?> generator, Object recording, long size){
+        Entry previous = _recordings.put(generator, new Entry(recording, size));
+        _size += size - ((previous == null) ? 0 : previous.size);
+    }
+
+    /**
+     * Evicts the least recently used recordings until the values fit in the
+     * limit. The newest recording is kept even if it alone is too large. The
+     * entries are removed here, so each is evicted once however the
+     * generators race; the recordings are discarded after the lock is released.
+     */
+    void trim(CachedGenerator<?> newest){
+        List<CachedGenerator<?>> generators = new ArrayList<CachedGenerator<?>>();
+        List<Object> recordings = new ArrayList<Object>();
+        synchronized (this){
+            Iterator<Map.Entry<CachedGenerator<?>, Entry>> iterator = _recordings.entrySet().iterator();
+            while ( (_size > _maxValues) && iterator.hasNext() ){
+                Map.Entry<CachedGenerator<?>, Entry> eldest = iterator.next();
+                if ( eldest.getKey() == newest ){
+                    break;
+                }
+                iterator.remove();
+                _size -= eldest.getValue().size;
+                generators.add(eldest.getKey());
+                recordings.add(eldest.getValue().recording);
+            }
+        }
+        for ( int i = 0; i < generators.size(); i++ ){
+            generators.get(i).evict(recordings.get(i));
+        }
+    }
+
+    /**
+     * Forgets the given recording of the generator, if it is still the one held.
+     */
+    synchronized void remove(CachedGenerator<?> generator, Object recording){
+        Entry entry = _recordings.get(generator);
+        if ( (entry != null) && (entry.recording == recording) ){
+            _recordings.remove(generator);
+            _size -= entry.size;
+        }
+    }
+
+    /**
+     * A recording held by the cache, and the number of values it holds.
+     */
+    private static class Entry
+    {
+        public Entry(Object recording, long size){
+            this.recording = recording;
+            this.size = size;
+        }
+
+        final Object recording;
+        final long size;
+    }
+
+    private final long _maxValues;
+    private final Map<CachedGenerator<?>, Entry> _recordings =
+        new LinkedHashMap<CachedGenerator<?>, Entry>(16, 0.75f, true);
+    private long _size = 0;
+}
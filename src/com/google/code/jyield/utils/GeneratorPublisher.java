@@ -0,0 +1,315 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.CancellableYieldable;
+import com.google.code.jyield.Continuation;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.GeneratorCancelledException;
+import com.google.code.jyield.ResumableGenerator;
+import com.google.code.jyield.YieldOptions;
+import com.google.code.jyield.Yieldable;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publishes the values of a generator to Reactive Streams subscribers, running
+ * the generator once per subscription on the given executor and never further
+ * ahead than the subscriber has requested. A ResumableGenerator is stepped only
+ * while there is demand or nothing is buffered, so it runs at most one step
+ * ahead of the demand, completes without any demand once it is empty, and
+ * holds no thread while it waits. Any other generator runs as a task that
+ * calls onNext directly from its yields and waits inside yield while there is
+ * no demand. Cancelling the subscription cancels the generator. A null value
+ * fails the subscription with a NullPointerException, as the specification
+ * requires. This needs the optional org.reactivestreams library.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class GeneratorPublisher<T> implements Publisher<T>
+{
+    /**
+     * Publishes the given generator, running it on virtual threads when the
+     * runtime supports them and otherwise on a shared pool of daemon threads.
+     * @param generator The generator to publish.
+     */
+    public GeneratorPublisher(Generator<T> generator){
+        this(generator, new YieldOptions().useVirtualThreads().getExecutor());
+    }
+
+    /**
+     * Publishes the given generator.
+     * @param generator The generator to publish.
+     * @param executor The executor on which to run the generator and signal the subscribers.
+     */
+    public GeneratorPublisher(Generator<T> generator, Executor executor){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( executor == null ){
+            throw new IllegalArgumentException("Executor cannot be null.");
+        }
+        _generator = generator;
+        _executor = executor;
+    }
+
+    public void subscribe(Subscriber<? super T> subscriber){
+        if ( subscriber == null ){
+            throw new NullPointerException("Subscriber cannot be null.");
+        }
+        if ( _generator instanceof ResumableGenerator ){
+            ResumableSubscription<T> subscription = new ResumableSubscription<T>(
+                ((ResumableGenerator<T>) _generator).start(), subscriber, _executor);
+            subscriber.onSubscribe(subscription);
+            // Step once even without demand, so that an empty generator completes.
+            subscription.start();
+        }else{
+            PushSubscription<T> subscription = new PushSubscription<T>(_generator, subscriber);
+            subscriber.onSubscribe(subscription);
+            _executor.execute(subscription);
+        }
+    }
+
+    /**
+     * Adds to the demand without overflowing.
+     */
+    private static long add(long demand, long n){
+        long result = demand + n;
+        return (result < 0) ? Long.MAX_VALUE : result;
+    }
+
+    /**
+     * A subscription to a generator that runs as a task, waiting in yield
+     * while the subscriber has no demand.
+     */
+    private static class PushSubscription<T> implements Subscription, CancellableYieldable<T>, Runnable
+    {
+        public PushSubscription(Generator<T> generator, Subscriber<? super T> subscriber){
+            _generator = generator;
+            _subscriber = subscriber;
+        }
+
+        public void run(){
+            Throwable failure = null;
+            try {
+                _generator.generate(this);
+            } catch (GeneratorCancelledException ex) {
+                // Either cancelled or failed; see below.
+            } catch (Throwable ex) {
+                failure = ex;
+            }
+            synchronized (this){
+                if ( _failure != null ){
+                    failure = _failure;
+                }else if ( _cancelled ){
+                    return;
+                }
+                _cancelled = true;
+            }
+            if ( failure == null ){
+                _subscriber.onComplete();
+            }else{
+                _subscriber.onError(failure);
+            }
+        }
+
+        public void yield(T obj){
+            synchronized (this){
+                while ( (_demand == 0) && !_cancelled ){
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        fail(new IllegalStateException("Interrupted while waiting for demand.", ex));
+                    }
+                }
+                if ( _cancelled ){
+                    throw new GeneratorCancelledException();
+                }
+                if ( obj == null ){
+                    fail(new NullPointerException("Reactive streams cannot carry null values."));
+                    throw new GeneratorCancelledException();
+                }
+                if ( _demand != Long.MAX_VALUE ){
+                    _demand--;
+                }
+            }
+            _subscriber.onNext(obj);
+        }
+
+        public synchronized boolean isCancelled(){
+            return _cancelled;
+        }
+
+        public synchronized void request(long n){
+            if ( n <= 0 ){
+                fail(new IllegalArgumentException("Requested " + n + " values; the request must be > 0."));
+                return;
+            }
+            _demand = add(_demand, n);
+            notifyAll();
+        }
+
+        public synchronized void cancel(){
+            _cancelled = true;
+            notifyAll();
+        }
+
+        /**
+         * Stops the generator; the failure is signalled once it has unwound.
+         */
+        private synchronized void fail(Throwable failure){
+            if ( !_cancelled && (_failure == null) ){
+                _failure = failure;
+            }
+            _cancelled = true;
+            notifyAll();
+        }
+
+        private final Generator<T> _generator;
+        private final Subscriber<? super T> _subscriber;
+        private long _demand = 0;
+        private boolean _cancelled = false;
+        private Throwable _failure = null;
+    }
+
+    /**
+     * A subscription to a resumable generator, which is stepped on the
+     * executor while the subscriber has demand or nothing is buffered. At
+     * most one drain runs at a time; requests that arrive during a drain make
+     * it loop again. The first drain is held back until onSubscribe has
+     * returned, so that a request made from onSubscribe cannot signal onNext
+     * while onSubscribe is still running.
+     */
+    private static class ResumableSubscription<T> implements Subscription, CancellableYieldable<T>
+    {
+        public ResumableSubscription(Continuation<T> continuation, Subscriber<? super T> subscriber,
+                Executor executor){
+            _continuation = continuation;
+            _subscriber = subscriber;
+            _executor = executor;
+        }
+
+        public void yield(T obj){
+            if ( _cancelled ){
+                throw new GeneratorCancelledException();
+            }
+            if ( obj == null ){
+                throw new NullPointerException("Reactive streams cannot carry null values.");
+            }
+            _buffer.addLast(obj);
+        }
+
+        public boolean isCancelled(){
+            return _cancelled;
+        }
+
+        public void request(long n){
+            if ( n <= 0 ){
+                _badRequest = new IllegalArgumentException("Requested " + n + " values; the request must be > 0.");
+            }else{
+                long demand;
+                do {
+                    demand = _demand.get();
+                } while ( !_demand.compareAndSet(demand, add(demand, n)) );
+            }
+            schedule();
+        }
+
+        public void cancel(){
+            _cancelled = true;
+        }
+
+        /**
+         * Runs the first drain, once onSubscribe has returned.
+         */
+        void start(){
+            _executor.execute(new Runnable()
+                {
+                    public void run(){
+                        drain();
+                    }
+                });
+        }
+
+        private void schedule(){
+            if ( _work.getAndIncrement() == 0 ){
+                start();
+            }
+        }
+
+        private void drain(){
+            int missed = 1;
+            while ( true ){
+                drainOnce();
+                missed = _work.addAndGet(-missed);
+                if ( missed == 0 ){
+                    return;
+                }
+            }
+        }
+
+        private void drainOnce(){
+            while ( !_cancelled ){
+                if ( _badRequest != null ){
+                    terminate(_badRequest);
+                    return;
+                }
+                if ( !_buffer.isEmpty() ){
+                    if ( _demand.get() == 0 ){
+                        return;
+                    }
+                    if ( _demand.get() != Long.MAX_VALUE ){
+                        _demand.decrementAndGet();
+                    }
+                    _subscriber.onNext(_buffer.removeFirst());
+                    continue;
+                }
+                if ( _finished ){
+                    terminate(_failure);
+                    return;
+                }
+                // Nothing is buffered, so step even without demand: the step
+                // either buffers values, which wait for demand, or finishes.
+                try {
+                    _finished = !_continuation.resume(this);
+                } catch (GeneratorCancelledException ex) {
+                    _finished = true;
+                } catch (Throwable ex) {
+                    // Values yielded before the failure are still delivered first.
+                    _finished = true;
+                    _failure = ex;
+                }
+            }
+        }
+
+        private void terminate(Throwable failure){
+            _cancelled = true;
+            _buffer.clear();
+            if ( failure == null ){
+                _subscriber.onComplete();
+            }else{
+                _subscriber.onError(failure);
+            }
+        }
+
+        private final Continuation<T> _continuation;
+        private final Subscriber<? super T> _subscriber;
+        private final Executor _executor;
+        private final AtomicLong _demand = new AtomicLong();
+        // Starts at one, held by onSubscribe until start is called.
+        private final AtomicInteger _work = new AtomicInteger(1);
+        private volatile boolean _cancelled = false;
+        private volatile Throwable _badRequest = null;
+
+        // Owned by the drain, which never runs on two threads at once.
+        private final ArrayDeque<T> _buffer = new ArrayDeque<T>();
+        private boolean _finished = false;
+        private Throwable _failure = null;
+    }
+
+    private final Generator<T> _generator;
+    private final Executor _executor;
+}
@@ -0,0 +1,61 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.YieldOptions;
+import com.google.code.jyield.Yieldable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Generates the values of several generators in rounds, taking one value
+ * from each generator that has not yet finished in every round. See
+ * CombinedGenerator for how the inputs are read.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class InterleavedGenerator<T> extends CombinedGenerator<T, T>
+{
+    /**
+     * Interleaves the given generators.
+     * @param inputs The generators, in order.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs") // The array is only read, by the copy that CombinedGenerator makes.
+    public InterleavedGenerator(Generator<T>... inputs){
+        this(Arrays.asList(inputs));
+    }
+
+    /**
+     * Interleaves the given generators.
+     * @param inputs The generators, in order.
+     */
+    public InterleavedGenerator(List<? extends Generator<T>> inputs){
+        this(inputs, defaultOptions());
+    }
+
+    /**
+     * Interleaves the given generators.
+     * @param inputs The generators, in order.
+     * @param options The options with which to convert inputs that can only push their values.
+     */
+    public InterleavedGenerator(List<? extends Generator<T>> inputs, YieldOptions options){
+        super(inputs, options);
+    }
+
+    void combine(List<Iterator<T>> inputs, Yieldable<T> yieldable){
+        List<Iterator<T>> open = new ArrayList<Iterator<T>>(inputs);
+        int count = open.size();
+        while ( count > 0 ){
+            int kept = 0;
+            for ( int i = 0; i < count; i++ ){
+                Iterator<T> input = open.get(i);
+                if ( input.hasNext() ){
+                    yieldable.yield(input.next());
+                    open.set(kept++, input);
+                }
+            }
+            count = kept;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.CancellableYieldable;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.PartitionableGenerator;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.Yieldable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the lines of a text file, without their line terminators. Lines
+ * end with "\n" or "\r\n". The file is mapped into memory a segment at a time
+ * rather than read through a stream, and can be split into regions for
+ * parallel consumers. By default each line is a new String; with reusable
+ * views, each line is decoded into the same buffer, which is only valid until
+ * the next line is yielded. Malformed input is replaced, as by String.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class LineGenerator implements PartitionableGenerator<CharSequence>
+{
+    /**
+     * Generates the lines of the given file as Strings.
+     * @param path The file.
+     * @param charset The encoding of the file, which must encode '\n' and '\r' as single bytes.
+     */
+    public LineGenerator(Path path, Charset charset){
+        this(path, charset, false);
+    }
+
+    /**
+     * Generates the lines of the given file.
+     * @param path The file.
+     * @param charset The encoding of the file, which must encode '\n' and '\r' as single bytes.
+     * @param reuseViews True to yield a reused buffer for each line instead of a String.
+     */
+    public LineGenerator(Path path, Charset charset, boolean reuseViews){
+        this(new DelimitedRecordGenerator(path, (byte) '\n', true), charset, reuseViews);
+    }
+
+    private LineGenerator(MappedFileGenerator<ByteBuffer> records, Charset charset, boolean reuseViews){
+        if ( charset == null ){
+            throw new IllegalArgumentException("Charset cannot be null.");
+        }
+        _records = records;
+        _charset = charset;
+        _reuseViews = reuseViews;
+    }
+
+    public void generate(final Yieldable<CharSequence> yieldable){
+        final CharsetDecoder decoder = _charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        _records.generate(new CancellableYieldable<ByteBuffer>()
+            {
+                public void yield(ByteBuffer record){
+                    int limit = record.limit();
+                    if ( (limit > record.position()) && (record.get(limit - 1) == '\r') ){
+                        record.limit(limit - 1);
+                    }
+                    if ( _reuseViews ){
+                        yieldable.yield(decode(record));
+                    }else{
+                        yieldable.yield(_charset.decode(record).toString());
+                    }
+                }
+
+                public boolean isCancelled(){
+                    return YieldUtils.isCancelled(yieldable);
+                }
+
+                private CharBuffer decode(ByteBuffer record){
+                    int needed = (int) Math.ceil(record.remaining() * (double) decoder.maxCharsPerByte());
+                    if ( _line.capacity() < needed ){
+                        _line = CharBuffer.allocate(Math.max(needed, 2 * _line.capacity()));
+                    }
+                    _line.clear();
+                    decoder.reset();
+                    decoder.decode(record, _line, true);
+                    decoder.flush(_line);
+                    _line.flip();
+                    return _line;
+                }
+
+                private CharBuffer _line = CharBuffer.allocate(256);
+            });
+    }
+
+    /**
+     * Splits the file into consecutive regions of nearly equal length.
+     * @param count The maximum number of regions.
+     * @return The regions, in order.
+     */
+    public List<Generator<CharSequence>> partition(int count){
+        List<Generator<ByteBuffer>> regions = _records.partition(count);
+        List<Generator<CharSequence>> result = new ArrayList<Generator<CharSequence>>(regions.size());
+        for ( Generator<ByteBuffer> region : regions ){
+            result.add(new LineGenerator((MappedFileGenerator<ByteBuffer>) region, _charset, _reuseViews));
+        }
+        return result;
+    }
+
+    private final MappedFileGenerator<ByteBuffer> _records;
+    private final Charset _charset;
+    private final boolean _reuseViews;
+}
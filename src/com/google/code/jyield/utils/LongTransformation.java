@@ -0,0 +1,16 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+
+/**
+ * A class that applies some transformation to a long value.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface LongTransformation
+{
+    /**
+     * Applies some transformation to the given value.
+     * @param value A value to transform.
+     * @return The result of transforming the value.
+     */
+    public long transform(long value);
+}
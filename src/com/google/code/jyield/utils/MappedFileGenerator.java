@@ -0,0 +1,173 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.PartitionableGenerator;
+import com.google.code.jyield.Yieldable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The common base of the generators that read the records in a region of a
+ * file by mapping the file into memory one segment at a time. A region
+ * contains the records that start within it, so regions that cover a file
+ * together yield each record of the file exactly once.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+abstract class MappedFileGenerator<T> implements PartitionableGenerator<T>
+{
+    /**
+     * The default number of bytes mapped at a time.
+     */
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    MappedFileGenerator(Path path, long start, long end, int segmentSize){
+        if ( path == null ){
+            throw new IllegalArgumentException("Path cannot be null.");
+        }
+        if ( start < 0 ){
+            throw new IllegalArgumentException("Start must be >= 0.");
+        }
+        if ( end < start ){
+            throw new IllegalArgumentException("End must be >= start.");
+        }
+        if ( segmentSize <= 0 ){
+            throw new IllegalArgumentException("Segment size must be >= 1.");
+        }
+        _path = path;
+        _start = start;
+        _end = end;
+        _segmentSize = segmentSize;
+    }
+
+    public void generate(Yieldable<T> yieldable){
+        try {
+            FileChannel channel = FileChannel.open(_path, StandardOpenOption.READ);
+            try {
+                generate(channel, channel.size(), yieldable);
+            } finally {
+                channel.close();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Splits the region into consecutive regions of nearly equal length.
+     * @param count The maximum number of regions.
+     * @return The regions, in order.
+     */
+    public List<Generator<T>> partition(int count){
+        if ( count <= 0 ){
+            throw new IllegalArgumentException("Count must be >= 1.");
+        }
+        long size;
+        try {
+            size = Files.size(_path);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        long length = Math.min(_end, size) - _start;
+        if ( length <= 0 || count == 1 ){
+            return Collections.<Generator<T>>singletonList(this);
+        }
+        List<Generator<T>> result = new ArrayList<Generator<T>>(count);
+        long first = _start;
+        for ( int i = 1; i <= count; i++ ){
+            long last = (i == count)
+                ? _end
+                : align(_start + (length / count) * i + (length % count) * i / count);
+            if ( last > first ){
+                result.add(region(first, last));
+                first = last;
+            }
+        }
+        if ( result.isEmpty() ){
+            result.add(this);
+        }
+        return result;
+    }
+
+    /**
+     * Reports the file from which the records are read.
+     */
+    public Path getPath(){
+        return _path;
+    }
+
+    /**
+     * Reports the offset at which the region starts.
+     */
+    public long getStart(){
+        return _start;
+    }
+
+    /**
+     * Reports the offset at which the region ends; records that start
+     * before it are read to their end.
+     */
+    public long getEnd(){
+        return _end;
+    }
+
+    /**
+     * Yields the records that start in the region.
+     * @param channel The open file.
+     * @param size The size of the file.
+     * @param yieldable The object to which to yield the records.
+     */
+    abstract void generate(FileChannel channel, long size, Yieldable<T> yieldable) throws IOException;
+
+    /**
+     * Creates a generator of the records that start in the given region,
+     * with the same settings as this one.
+     */
+    abstract MappedFileGenerator<T> region(long start, long end);
+
+    /**
+     * Moves a boundary between regions to a valid place.
+     */
+    long align(long offset){
+        return offset;
+    }
+
+    /**
+     * Reports the number of bytes mapped at a time.
+     */
+    final int getSegmentSize(){
+        return _segmentSize;
+    }
+
+    /**
+     * Maps part of the file into memory.
+     */
+    static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if ( length > Integer.MAX_VALUE ){
+            throw new IllegalStateException("Record at offset " + position + " is too long to map.");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    /**
+     * Points a view of a segment at the bytes [from, to) of the segment.
+     */
+    static ByteBuffer view(ByteBuffer view, int from, int to){
+        view.clear();
+        view.limit(to);
+        view.position(from);
+        return view;
+    }
+
+    private final Path _path;
+    private final long _start;
+    private final long _end;
+    private final int _segmentSize;
+}
@@ -0,0 +1,88 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.YieldOptions;
+import com.google.code.jyield.Yieldable;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges generators whose values are each sorted into one sorted sequence,
+ * keeping the next value of every generator in a heap. Equal values are
+ * generated in the order of their generators. See CombinedGenerator for
+ * how the inputs are read.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class MergedGenerator<T> extends CombinedGenerator<T, T>
+{
+    /**
+     * Merges the given generators.
+     * @param inputs The generators, each sorted by the comparator.
+     * @param comparator The order of the values.
+     */
+    public MergedGenerator(List<? extends Generator<T>> inputs, Comparator<? super T> comparator){
+        this(inputs, comparator, defaultOptions());
+    }
+
+    /**
+     * Merges the given generators.
+     * @param inputs The generators, each sorted by the comparator.
+     * @param comparator The order of the values.
+     * @param options The options with which to convert inputs that can only push their values.
+     */
+    public MergedGenerator(List<? extends Generator<T>> inputs, Comparator<? super T> comparator,
+            YieldOptions options){
+        super(inputs, options);
+        if ( comparator == null ){
+            throw new IllegalArgumentException("Comparator cannot be null.");
+        }
+        _comparator = comparator;
+    }
+
+    void combine(List<Iterator<T>> inputs, Yieldable<T> yieldable){
+        if ( inputs.isEmpty() ){
+            return;
+        }
+        PriorityQueue<Head<T>> heads = new PriorityQueue<Head<T>>(inputs.size(), new Comparator<Head<T>>()
+            {
+                public int compare(Head<T> a, Head<T> b){
+                    int result = _comparator.compare(a.value, b.value);
+                    return (result != 0) ? result : Integer.compare(a.index, b.index);
+                }
+            });
+        for ( int i = 0; i < inputs.size(); i++ ){
+            Iterator<T> input = inputs.get(i);
+            if ( input.hasNext() ){
+                heads.add(new Head<T>(input, i, input.next()));
+            }
+        }
+        while ( !heads.isEmpty() ){
+            Head<T> head = heads.poll();
+            yieldable.yield(head.value);
+            if ( head.input.hasNext() ){
+                head.value = head.input.next();
+                heads.add(head);
+            }
+        }
+    }
+
+    /**
+     * The next value of one input.
+     */
+    private static class Head<T>
+    {
+        public Head(Iterator<T> input, int index, T value){
+            this.input = input;
+            this.index = index;
+            this.value = value;
+        }
+
+        final Iterator<T> input;
+        final int index;
+        T value;
+    }
+
+    private final Comparator<? super T> _comparator;
+}
@@ -0,0 +1,247 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.CancellableYieldable;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.GeneratorCancelledException;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.Yieldable;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A generator built from a source generator and a chain of operations.
+ * Each operation returns a new pipeline; the pipeline itself is immutable.
+ * However long the chain, the source yields into a single callback that
+ * runs every stage in a loop, rather than into one wrapping Yieldable per
+ * stage. Once a limit has been reached the source is cancelled, so a
+ * limited pipeline over an infinite generator terminates.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class Pipeline<T> implements Generator<T>
+{
+    /**
+     * Starts a pipeline with the given generator.
+     * @param <T> The type of the values.
+     * @param generator The source of the values.
+     * @return A pipeline without any operations.
+     */
+    public static <T> Pipeline<T> from(Generator<T> generator){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        return new Pipeline<T>(generator, new int[0], new Object[0], new long[0]);
+    }
+
+    /**
+     * Starts a pipeline with the given iterable.
+     * @param <T> The type of the values.
+     * @param iterable The source of the values.
+     * @return A pipeline without any operations.
+     */
+    public static <T> Pipeline<T> fromIterable(Iterable<T> iterable){
+        if ( iterable == null ){
+            throw new IllegalArgumentException("Iterable cannot be null.");
+        }
+        return from(YieldUtils.toGenerator(iterable));
+    }
+
+    /**
+     * Replaces each value with the result of the function.
+     * @param <R> The type of the results.
+     * @param function The function to apply.
+     * @return The extended pipeline.
+     */
+    public <R> Pipeline<R> map(Function<? super T, ? extends R> function){
+        if ( function == null ){
+            throw new IllegalArgumentException("Function cannot be null.");
+        }
+        return append(MAP, function, 0);
+    }
+
+    /**
+     * Replaces each value with the result of the transformation.
+     * @param transformation The transformation to apply.
+     * @return The extended pipeline.
+     */
+    public Pipeline<T> transform(final Transformation<T> transformation){
+        if ( transformation == null ){
+            throw new IllegalArgumentException("Transformation cannot be null.");
+        }
+        return map(new Function<T, T>()
+            {
+                public T apply(T obj){
+                    return transformation.transform(obj);
+                }
+            });
+    }
+
+    /**
+     * Keeps only the values that satisfy the predicate.
+     * @param predicate The predicate to test.
+     * @return The extended pipeline.
+     */
+    public Pipeline<T> filter(Predicate<? super T> predicate){
+        if ( predicate == null ){
+            throw new IllegalArgumentException("Predicate cannot be null.");
+        }
+        return append(FILTER, predicate, 0);
+    }
+
+    /**
+     * Replaces each value with all the values of the iterable that the function returns.
+     * @param <R> The type of the results.
+     * @param function The function that gives the values to substitute.
+     * @return The extended pipeline.
+     */
+    public <R> Pipeline<R> flatMap(Function<? super T, ? extends Iterable<? extends R>> function){
+        if ( function == null ){
+            throw new IllegalArgumentException("Function cannot be null.");
+        }
+        return append(FLAT_MAP, function, 0);
+    }
+
+    /**
+     * Keeps only the first values.
+     * @param count The maximum number of values to keep.
+     * @return The extended pipeline.
+     */
+    public Pipeline<T> limit(long count){
+        if ( count < 0 ){
+            throw new IllegalArgumentException("Count must be >= 0.");
+        }
+        return append(LIMIT, null, count);
+    }
+
+    /**
+     * Discards the first values.
+     * @param count The number of values to discard.
+     * @return The extended pipeline.
+     */
+    public Pipeline<T> skip(long count){
+        if ( count < 0 ){
+            throw new IllegalArgumentException("Count must be >= 0.");
+        }
+        return append(SKIP, null, count);
+    }
+
+    public void generate(Yieldable<T> yieldable) {
+        Sink sink = new Sink(yieldable);
+        if ( sink.exhausted() ){
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Generator<Object> source = (Generator<Object>) _source;
+        try {
+            source.generate(sink);
+        } catch (GeneratorCancelledException ex) {
+            if ( !sink.exhausted() ){
+                throw ex;
+            }
+        }
+    }
+
+    private Pipeline(Generator<?> source, int[] kinds, Object[] functions, long[] counts){
+        _source = source;
+        _kinds = kinds;
+        _functions = functions;
+        _counts = counts;
+    }
+
+    private <R> Pipeline<R> append(int kind, Object function, long count){
+        int length = _kinds.length;
+        int[] kinds = Arrays.copyOf(_kinds, length + 1);
+        Object[] functions = Arrays.copyOf(_functions, length + 1);
+        long[] counts = Arrays.copyOf(_counts, length + 1);
+        kinds[length] = kind;
+        functions[length] = function;
+        counts[length] = count;
+        return new Pipeline<R>(_source, kinds, functions, counts);
+    }
+
+    /**
+     * The single callback that runs all the stages for one run of the pipeline.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private class Sink implements CancellableYieldable<Object>
+    {
+        public Sink(Yieldable<T> target){
+            _target = target;
+            _remaining = _counts.clone();
+            for ( int i = 0; i < _kinds.length; i++ ){
+                if ( (_kinds[i] == LIMIT) && (_remaining[i] == 0) ){
+                    _exhausted = true;
+                }
+            }
+        }
+
+        public void yield(Object obj) {
+            push(0, obj);
+            if ( _exhausted ){
+                // No stage can deliver anything more, so stop the source. This
+                // is checked only here, so that a flatMap after the limit still
+                // delivers all the values of the last expansion.
+                throw new GeneratorCancelledException();
+            }
+        }
+
+        public boolean isCancelled() {
+            return _exhausted;
+        }
+
+        boolean exhausted(){
+            return _exhausted;
+        }
+
+        private void push(int stage, Object obj){
+            for ( int i = stage; i < _kinds.length; i++ ){
+                switch ( _kinds[i] ){
+                    case MAP:
+                        obj = ((Function) _functions[i]).apply(obj);
+                        break;
+                    case FILTER:
+                        if ( !((Predicate) _functions[i]).test(obj) ){
+                            return;
+                        }
+                        break;
+                    case FLAT_MAP:
+                        for ( Object item : (Iterable) ((Function) _functions[i]).apply(obj) ){
+                            push(i + 1, item);
+                        }
+                        return;
+                    case SKIP:
+                        if ( _remaining[i] > 0 ){
+                            _remaining[i]--;
+                            return;
+                        }
+                        break;
+                    case LIMIT:
+                        if ( _remaining[i] == 0 ){
+                            // The value that used up the limit was dropped by a later stage.
+                            throw new GeneratorCancelledException();
+                        }
+                        if ( --_remaining[i] == 0 ){
+                            _exhausted = true;
+                        }
+                        break;
+                }
+            }
+            _target.yield((T) obj);
+        }
+
+        private final Yieldable<T> _target;
+        private final long[] _remaining;
+        private boolean _exhausted = false;
+    }
+
+    private static final int MAP = 0;
+    private static final int FILTER = 1;
+    private static final int FLAT_MAP = 2;
+    private static final int SKIP = 3;
+    private static final int LIMIT = 4;
+
+    private final Generator<?> _source;
+    private final int[] _kinds;
+    private final Object[] _functions;
+    private final long[] _counts;
+}
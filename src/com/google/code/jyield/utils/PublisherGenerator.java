@@ -0,0 +1,156 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.GeneratorCancelledException;
+import com.google.code.jyield.Yieldable;
+import java.util.ArrayDeque;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A generator that subscribes to a Reactive Streams publisher each time it
+ * runs and yields the published values on the calling thread, waiting for
+ * them as they arrive. It requests a batch of values up front and requests
+ * more as each half of the batch is yielded, so that the publisher never gets
+ * further ahead than the batch. An error from the publisher is rethrown, and
+ * the subscription is cancelled if the yieldable object stops the generator.
+ * This needs the optional org.reactivestreams library.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class PublisherGenerator<T> implements Generator<T>
+{
+    /**
+     * The default number of values requested at a time.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 128;
+
+    /**
+     * Generates the values of the given publisher.
+     * @param publisher The publisher.
+     */
+    public PublisherGenerator(Publisher<? extends T> publisher){
+        this(publisher, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Generates the values of the given publisher.
+     * @param publisher The publisher.
+     * @param batchSize The number of values requested at a time.
+     */
+    public PublisherGenerator(Publisher<? extends T> publisher, int batchSize){
+        if ( publisher == null ){
+            throw new IllegalArgumentException("Publisher cannot be null.");
+        }
+        if ( batchSize <= 0 ){
+            throw new IllegalArgumentException("Batch size must be >= 1.");
+        }
+        _publisher = publisher;
+        _batchSize = batchSize;
+    }
+
+    public void generate(Yieldable<T> yieldable){
+        Receiver<T> receiver = new Receiver<T>();
+        _publisher.subscribe(receiver);
+        Subscription subscription = receiver.awaitSubscription();
+        boolean done = false;
+        try {
+            subscription.request(_batchSize);
+            int replenish = Math.max(1, _batchSize / 2);
+            int consumed = 0;
+            while ( true ){
+                T value = receiver.awaitNext();
+                if ( value == null ){
+                    done = true;
+                    return;
+                }
+                yieldable.yield(value);
+                if ( ++consumed == replenish ){
+                    consumed = 0;
+                    subscription.request(replenish);
+                }
+            }
+        } finally {
+            if ( !done ){
+                subscription.cancel();
+            }
+        }
+    }
+
+    /**
+     * Buffers the signals of the publisher until the generator takes them.
+     */
+    private static class Receiver<T> implements Subscriber<T>
+    {
+        public synchronized void onSubscribe(Subscription subscription){
+            if ( _subscription != null ){
+                subscription.cancel();
+                return;
+            }
+            _subscription = subscription;
+            notifyAll();
+        }
+
+        public synchronized void onNext(T value){
+            _values.addLast(value);
+            notifyAll();
+        }
+
+        public synchronized void onError(Throwable failure){
+            _failure = failure;
+            _complete = true;
+            notifyAll();
+        }
+
+        public synchronized void onComplete(){
+            _complete = true;
+            notifyAll();
+        }
+
+        synchronized Subscription awaitSubscription(){
+            while ( _subscription == null ){
+                await();
+            }
+            return _subscription;
+        }
+
+        /**
+         * Takes the next value, or returns null once the publisher has completed.
+         */
+        synchronized T awaitNext(){
+            while ( _values.isEmpty() && !_complete ){
+                await();
+            }
+            if ( !_values.isEmpty() ){
+                return _values.removeFirst();
+            }
+            if ( _failure instanceof RuntimeException ){
+                throw (RuntimeException) _failure;
+            }
+            if ( _failure instanceof Error ){
+                throw (Error) _failure;
+            }
+            if ( _failure != null ){
+                throw new RuntimeException(_failure);
+            }
+            return null;
+        }
+
+        private void await(){
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new GeneratorCancelledException();
+            }
+        }
+
+        private final ArrayDeque<T> _values = new ArrayDeque<T>();
+        private Subscription _subscription = null;
+        private boolean _complete = false;
+        private Throwable _failure = null;
+    }
+
+    private final Publisher<? extends T> _publisher;
+    private final int _batchSize;
+}
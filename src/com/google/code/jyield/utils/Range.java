@@ -1,14 +1,28 @@
 // Michael Safyan; Copyright (C) 2010; Simplified BSD License.
 package com.google.code.jyield.utils;
+import com.google.code.jyield.Continuation;
 import com.google.code.jyield.Generator;
+import com.google.code.jyield.IntGenerator;
+import com.google.code.jyield.IntIterable;
+import com.google.code.jyield.IntYieldable;
+import com.google.code.jyield.PartitionableGenerator;
+import com.google.code.jyield.ResumableGenerator;
+import com.google.code.jyield.SizeHint;
 import com.google.code.jyield.Yieldable;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
 
 /**
- * A simple implementation of a range object.
+ * A simple implementation of a range object. The range can be iterated
+ * either as Integer objects or as unboxed int values; to generate unboxed
+ * int values, use the view returned by asIntGenerator.
  * @author Michael Safyan (michaelsafyan@gmail.com)
  */
-public class Range implements Iterable<Integer>, Generator<Integer>
+public class Range implements IntIterable, ResumableGenerator<Integer>,
+    PartitionableGenerator<Integer>, SizeHint
 {
     /**
      * Constructs a range that starts with zero and contains the number
@@ -107,6 +121,32 @@ public class Range implements Iterable<Integer>, Generator<Integer>
         return _step;
     }
 
+    /**
+     * Reports the number of elements in the range.
+     * @return The number of elements.
+     */
+    public long size(){
+        long distance;
+        if ( _step > 0 ){
+            distance = (long) _finish - _start;
+        }else{
+            distance = (long) _start - _finish;
+        }
+        if ( distance <= 0 ){
+            return 0;
+        }
+        long step = Math.abs((long) _step);
+        return (distance + step - 1) / step;
+    }
+
+    /**
+     * Reports the exact number of elements in the range.
+     * @return The number of elements.
+     */
+    public long sizeHint(){
+        return size();
+    }
+
     /**
      * Determines if the given value is in the range.
      * @param value An integer.
@@ -132,11 +172,134 @@ public class Range implements Iterable<Integer>, Generator<Integer>
         }
     }
 
-    public Iterator<Integer> iterator() {
+    /**
+     * Returns a view of the range that generates unboxed int values. The
+     * view is also an IntIterable, so YieldUtils.toIntIterable returns it
+     * as is.
+     * @return An int generator of the elements.
+     */
+    public IntGenerator asIntGenerator() {
+        return new IntView();
+    }
+
+    /**
+     * Splits the range into consecutive subranges of nearly equal size.
+     * @param count The maximum number of subranges.
+     * @return The subranges, in order.
+     */
+    public List<Generator<Integer>> partition(int count) {
+        if ( count <= 0 ){
+            throw new IllegalArgumentException("Count must be >= 1.");
+        }
+        long size = size();
+        int parts = (int) Math.max(1, Math.min(count, size));
+        List<Generator<Integer>> result = new ArrayList<Generator<Integer>>(parts);
+        for ( int i = 0; i < parts; i++ ){
+            long first = size * i / parts;
+            long last = size * (i + 1) / parts;
+            int start = (int) (_start + first * _step);
+            // The last subrange ends where this one does; the element past the end may not fit in an int.
+            int finish = (i == parts - 1) ? _finish : (int) (_start + last * _step);
+            result.add(new Range(start, finish, _step));
+        }
+        return result;
+    }
+
+    public Continuation<Integer> start() {
         return new RangeIterator();
     }
 
-    private class RangeIterator implements Iterator<Integer>
+    public PrimitiveIterator.OfInt iterator() {
+        return new RangeIterator();
+    }
+
+    /**
+     * Returns a spliterator that splits the range evenly by index, so that
+     * parallel streams over the range divide the work between threads.
+     * @return A sized, ordered spliterator over the elements.
+     */
+    public Spliterator.OfInt spliterator() {
+        return new RangeSpliterator(0, size());
+    }
+
+    private class IntView implements IntGenerator, IntIterable, SizeHint
+    {
+        public void generate(IntYieldable yieldable) {
+            if ( _step > 0 ){
+                for ( int i = _start; i < _finish; i+= _step){
+                    yieldable.yield(i);
+                }
+            }else {
+                for ( int i = _start; i > _finish; i+= _step){
+                    yieldable.yield(i);
+                }
+            }
+        }
+
+        public PrimitiveIterator.OfInt iterator() {
+            return new RangeIterator();
+        }
+
+        public Spliterator.OfInt spliterator() {
+            return Range.this.spliterator();
+        }
+
+        public long sizeHint() {
+            return size();
+        }
+    }
+
+    private class RangeSpliterator implements Spliterator.OfInt
+    {
+        public RangeSpliterator(long index, long fence){
+            _index = index;
+            _fence = fence;
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if ( _index >= _fence ){
+                return false;
+            }
+            action.accept(elementAt(_index++));
+            return true;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            int value = elementAt(_index);
+            for ( long i = _index; i < _fence; i++ ){
+                action.accept(value);
+                value += _step;
+            }
+            _index = _fence;
+        }
+
+        public Spliterator.OfInt trySplit() {
+            long middle = (_index + _fence) >>> 1;
+            if ( middle <= _index ){
+                return null;
+            }
+            RangeSpliterator prefix = new RangeSpliterator(_index, middle);
+            _index = middle;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return _fence - _index;
+        }
+
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL | DISTINCT;
+        }
+
+        private int elementAt(long index) {
+            return (int) (_start + index * _step);
+        }
+
+        private long _index;
+        private final long _fence;
+    }
+
+    private class RangeIterator implements PrimitiveIterator.OfInt, Continuation<Integer>
     {
         public RangeIterator(){
             _val = _start;
@@ -146,16 +309,28 @@ public class Range implements Iterable<Integer>, Generator<Integer>
             return ((_step>0)&&(_val<_finish))||((_step<0)&&(_val>_finish));
         }
 
-        public Integer next() {
+        public int nextInt() {
             int result = _val;
             _val += _step;
             return result;
         }
 
+        public Integer next() {
+            return nextInt();
+        }
+
         public void remove() {
             throw new UnsupportedOperationException("Not supported.");
         }
 
+        public boolean resume(Yieldable<Integer> yieldable) {
+            if ( !hasNext() ){
+                return false;
+            }
+            yieldable.yield(next());
+            return hasNext();
+        }
+
         private int _val = 0;
     }
 
@@ -0,0 +1,27 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes values to a stream and reads them back, so that a CachedGenerator
+ * can move the values that do not fit in memory to a file.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public interface Serializer<T>
+{
+    /**
+     * Writes a value.
+     * @param value The value to write.
+     * @param out The stream to write to.
+     */
+    public void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * Reads a value that was written by write.
+     * @param in The stream to read from.
+     * @return The value.
+     */
+    public T read(DataInput in) throws IOException;
+}
@@ -0,0 +1,109 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deletes the temporary files of recordings that became unreachable without
+ * being discarded, such as those of a CachedGenerator that was dropped, so
+ * that their files do not accumulate until the disk is full.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+final class SpillFiles
+{
+    private SpillFiles(){
+    }
+
+    /**
+     * Arranges for the file to be closed and deleted once its owner is
+     * unreachable. Neither the file nor the stream may refer to the owner.
+     * @param owner The object that writes and reads the file.
+     * @param file The file to delete.
+     * @param out The stream that writes the file.
+     * @return A registration to pass to unregister() once the file is deleted.
+     */
+    static Object register(Object owner, Path file, Closeable out){
+        Registration result = new Registration(owner, file, out);
+        LIVE.add(result);
+        Daemon.ensureStarted();
+        return result;
+    }
+
+    /**
+     * Cancels a registration, typically because the owner deleted the file.
+     * @param registration The result of register().
+     */
+    static void unregister(Object registration){
+        Registration reference = (Registration) registration;
+        LIVE.remove(reference);
+        reference.clear();
+    }
+
+    private static class Registration extends PhantomReference<Object>
+    {
+        public Registration(Object owner, Path file, Closeable out){
+            super(owner, QUEUE);
+            _file = file;
+            _out = out;
+        }
+
+        void delete(){
+            try {
+                _out.close();
+            } catch (IOException ex) {
+                // The file is about to be deleted anyway.
+            }
+            try {
+                Files.deleteIfExists(_file);
+            } catch (IOException ex) {
+                // Leave the file for the system to clean up.
+            }
+        }
+
+        private final Path _file;
+        private final Closeable _out;
+    }
+
+    private static class Daemon
+    {
+        static final Thread THREAD = start();
+
+        static void ensureStarted(){
+        }
+
+        private static Thread start(){
+            Thread result = new Thread("jyield-spill-reaper")
+                {
+                    public void run(){
+                        while ( true ){
+                            try {
+                                Reference<?> reference = QUEUE.remove();
+                                if ( LIVE.remove(reference) ){
+                                    ((Registration) reference).delete();
+                                }
+                            } catch (InterruptedException ex) {
+                                // Keep reaping; this thread lives as long as the class.
+                            } catch (RuntimeException ex) {
+                                // A failure to delete one file must not stop the others.
+                            }
+                        }
+                    }
+                };
+            result.setDaemon(true);
+            result.start();
+            return result;
+        }
+    }
+
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<Object>();
+    private static final Set<Registration> LIVE =
+        Collections.newSetFromMap(new ConcurrentHashMap<Registration, Boolean>());
+}
@@ -0,0 +1,48 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.DoubleGenerator;
+import com.google.code.jyield.DoubleYieldable;
+import com.google.code.jyield.SizeHint;
+import com.google.code.jyield.YieldUtils;
+
+/**
+ * Applies a transformation to a double generator without boxing its values.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class TransformedDoubleGenerator implements DoubleGenerator, SizeHint
+{
+    /**
+     * Applies the given transformation to the given generator.
+     * @param generator A generator object.
+     * @param transformation The transformation to apply to each value.
+     */
+    public TransformedDoubleGenerator(DoubleGenerator generator, DoubleTransformation transformation){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( transformation == null ){
+            throw new IllegalArgumentException("Transformation cannot be null.");
+        }
+        _transformation = transformation;
+        _generator = generator;
+    }
+
+    public void generate(final DoubleYieldable yieldable) {
+        _generator.generate
+        (
+                new DoubleYieldable()
+                {
+                    public void yield(double value) {
+                        yieldable.yield(_transformation.transform(value));
+                    }
+                }
+        );
+    }
+
+    public long sizeHint() {
+        return YieldUtils.sizeHint(_generator);
+    }
+
+    private DoubleGenerator _generator = null;
+    private DoubleTransformation _transformation = null;
+}
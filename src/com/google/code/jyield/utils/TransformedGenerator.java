@@ -1,13 +1,21 @@
 // Michael Safyan; Copyright (C) 2010; Simplified BSD License.
 package com.google.code.jyield.utils;
 import com.google.code.jyield.Generator;
+import com.google.code.jyield.PartitionableGenerator;
+import com.google.code.jyield.SizeHint;
+import com.google.code.jyield.YieldUtils;
 import com.google.code.jyield.Yieldable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Applies a transformation to a generator object.
+ * Stacked transformed generators are fused into a single stage that applies
+ * the composed transformation.
  * @author Michael Safyan (michaelsafyan@gmail.com)
  */
-public class TransformedGenerator<T> implements Generator<T>
+public class TransformedGenerator<T> implements PartitionableGenerator<T>, SizeHint
 {
     /**
      * Applies the given transformation to the given iterable.
@@ -21,6 +29,12 @@ public class TransformedGenerator<T> implements Generator<T>
         if ( transformation == null ){
             throw new IllegalArgumentException("Transformation cannot be null.");
         }
+        if ( generator.getClass() == TransformedGenerator.class ){
+            // Fuse with the stage below rather than wrapping it.
+            TransformedGenerator<T> inner = (TransformedGenerator<T>) generator;
+            generator = inner._generator;
+            transformation = new ComposedTransformation<T>(inner._transformation, transformation);
+        }
         _transformation = transformation;
         _generator = generator;
     }
@@ -37,6 +51,28 @@ public class TransformedGenerator<T> implements Generator<T>
         );
     }
 
+    /**
+     * Splits the underlying generator, if it is partitionable, and applies
+     * the transformation to each part.
+     * @param count The maximum number of parts.
+     * @return The transformed parts, or a list of only this generator.
+     */
+    public List<Generator<T>> partition(int count) {
+        if ( !(_generator instanceof PartitionableGenerator) ){
+            return Collections.<Generator<T>>singletonList(this);
+        }
+        List<Generator<T>> parts = ((PartitionableGenerator<T>) _generator).partition(count);
+        List<Generator<T>> result = new ArrayList<Generator<T>>(parts.size());
+        for ( Generator<T> part : parts ){
+            result.add(new TransformedGenerator<T>(part, _transformation));
+        }
+        return result;
+    }
+
+    public long sizeHint() {
+        return YieldUtils.sizeHint(_generator);
+    }
+
     private Generator<T> _generator = null;
     private Transformation<T> _transformation = null;
 }
@@ -0,0 +1,48 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.IntGenerator;
+import com.google.code.jyield.IntYieldable;
+import com.google.code.jyield.SizeHint;
+import com.google.code.jyield.YieldUtils;
+
+/**
+ * Applies a transformation to an int generator without boxing its values.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class TransformedIntGenerator implements IntGenerator, SizeHint
+{
+    /**
+     * Applies the given transformation to the given generator.
+     * @param generator A generator object.
+     * @param transformation The transformation to apply to each value.
+     */
+    public TransformedIntGenerator(IntGenerator generator, IntTransformation transformation){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( transformation == null ){
+            throw new IllegalArgumentException("Transformation cannot be null.");
+        }
+        _transformation = transformation;
+        _generator = generator;
+    }
+
+    public void generate(final IntYieldable yieldable) {
+        _generator.generate
+        (
+                new IntYieldable()
+                {
+                    public void yield(int value) {
+                        yieldable.yield(_transformation.transform(value));
+                    }
+                }
+        );
+    }
+
+    public long sizeHint() {
+        return YieldUtils.sizeHint(_generator);
+    }
+
+    private IntGenerator _generator = null;
+    private IntTransformation _transformation = null;
+}
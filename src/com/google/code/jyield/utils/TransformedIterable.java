@@ -1,12 +1,16 @@
 // Michael Safyan; Copyright (C) 2010; Simplified BSD License.
 package com.google.code.jyield.utils;
+import com.google.code.jyield.SizeHint;
+import com.google.code.jyield.YieldUtils;
 import java.util.Iterator;
 
 /**
  * Applies a transformation to an iterable object.
+ * Stacked transformed iterables are fused into a single stage that applies
+ * the composed transformation.
  * @author Michael Safyan (michaelsafyan@gmail.com)
  */
-public class TransformedIterable<T> implements Iterable<T>
+public class TransformedIterable<T> implements Iterable<T>, SizeHint
 {
     /**
      * Applies the given transformation to the given iterable.
@@ -20,6 +24,12 @@ public class TransformedIterable<T> implements Iterable<T>
         if ( transformation == null ){
             throw new IllegalArgumentException("Transformation cannot be null.");
         }
+        if ( iterable.getClass() == TransformedIterable.class ){
+            // Fuse with the stage below rather than wrapping it.
+            TransformedIterable<T> inner = (TransformedIterable<T>) iterable;
+            iterable = inner._iterable;
+            transformation = new ComposedTransformation<T>(inner._transformation, transformation);
+        }
         _transformation = transformation;
         _iterable = iterable;
     }
@@ -43,6 +53,10 @@ public class TransformedIterable<T> implements Iterable<T>
         };
     }
 
+    public long sizeHint() {
+        return YieldUtils.sizeHint(_iterable);
+    }
+
     private Iterable<T> _iterable = null;
     private Transformation<T> _transformation = null;
 }
@@ -0,0 +1,48 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.LongGenerator;
+import com.google.code.jyield.LongYieldable;
+import com.google.code.jyield.SizeHint;
+import com.google.code.jyield.YieldUtils;
+
+/**
+ * Applies a transformation to a long generator without boxing its values.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class TransformedLongGenerator implements LongGenerator, SizeHint
+{
+    /**
+     * Applies the given transformation to the given generator.
+     * @param generator A generator object.
+     * @param transformation The transformation to apply to each value.
+     */
+    public TransformedLongGenerator(LongGenerator generator, LongTransformation transformation){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( transformation == null ){
+            throw new IllegalArgumentException("Transformation cannot be null.");
+        }
+        _transformation = transformation;
+        _generator = generator;
+    }
+
+    public void generate(final LongYieldable yieldable) {
+        _generator.generate
+        (
+                new LongYieldable()
+                {
+                    public void yield(long value) {
+                        yieldable.yield(_transformation.transform(value));
+                    }
+                }
+        );
+    }
+
+    public long sizeHint() {
+        return YieldUtils.sizeHint(_generator);
+    }
+
+    private LongGenerator _generator = null;
+    private LongTransformation _transformation = null;
+}
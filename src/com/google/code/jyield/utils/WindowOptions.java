@@ -0,0 +1,132 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configures when a BatchingYieldable or WindowedGenerator closes a batch.
+ * A batch is passed on as soon as any configured limit is reached.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class WindowOptions
+{
+    /**
+     * The default maximum number of values in a batch.
+     */
+    public static final int DEFAULT_MAX_COUNT = 1024;
+
+    /**
+     * Constructs options that close a batch after DEFAULT_MAX_COUNT values.
+     */
+    public WindowOptions(){
+    }
+
+    /**
+     * Constructs a copy of the given options.
+     * @param other The options to copy.
+     */
+    public WindowOptions(WindowOptions other){
+        if ( other == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        _maxCount = other._maxCount;
+        _maxDelayNanos = other._maxDelayNanos;
+        _maxSize = other._maxSize;
+        _reuseBuffers = other._reuseBuffers;
+    }
+
+    /**
+     * Reports the maximum number of values in a batch.
+     */
+    public int getMaxCount(){
+        return _maxCount;
+    }
+
+    /**
+     * Sets the maximum number of values in a batch. Buffers are allocated
+     * with this capacity, so it should not be much larger than needed.
+     * @param maxCount The maximum number of values, at least 1.
+     * @return These options.
+     */
+    public WindowOptions setMaxCount(int maxCount){
+        if ( maxCount <= 0 ){
+            throw new IllegalArgumentException("Maximum count must be >= 1.");
+        }
+        _maxCount = maxCount;
+        return this;
+    }
+
+    /**
+     * Reports how long a batch may collect values, or 0 for no limit.
+     */
+    public long getMaxDelayNanos(){
+        return _maxDelayNanos;
+    }
+
+    /**
+     * Limits how long a batch may collect values, counted from its first
+     * value. A batch that is still open when the delay passes, because the
+     * generator has stalled, is passed on by a timer thread, so the receiver
+     * may be called on that thread; the calls are never concurrent.
+     * @param delay The maximum delay, or 0 for no limit.
+     * @param unit The unit of the delay.
+     * @return These options.
+     */
+    public WindowOptions setMaxDelay(long delay, TimeUnit unit){
+        if ( unit == null ){
+            throw new IllegalArgumentException("Unit cannot be null.");
+        }
+        if ( delay < 0 ){
+            throw new IllegalArgumentException("Delay must be >= 0.");
+        }
+        _maxDelayNanos = unit.toNanos(delay);
+        return this;
+    }
+
+    /**
+     * Reports the maximum total size of a batch, or 0 for no limit.
+     */
+    public long getMaxSize(){
+        return _maxSize;
+    }
+
+    /**
+     * Limits the total size of a batch, for example in bytes, as measured by
+     * the sizer given to the BatchingYieldable or WindowedGenerator. A value
+     * that would take a batch past the limit starts a new batch; a value
+     * larger than the limit forms a batch alone.
+     * @param maxSize The maximum size, at least 1, or 0 for no limit.
+     * @return These options.
+     */
+    public WindowOptions setMaxSize(long maxSize){
+        if ( maxSize < 0 ){
+            throw new IllegalArgumentException("Maximum size must be >= 0.");
+        }
+        _maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Reports whether the same buffer is passed on for every batch.
+     */
+    public boolean getReuseBuffers(){
+        return _reuseBuffers;
+    }
+
+    /**
+     * Chooses whether the same buffer is passed on for every batch, in which
+     * case a batch is only valid until the yield that receives it returns, so
+     * the batches must not be buffered, for example by YieldUtils.toIterable.
+     * Otherwise every batch is a new list that the receiver may keep.
+     * @param reuseBuffers True to reuse one buffer; false by default.
+     * @return These options.
+     */
+    public WindowOptions setReuseBuffers(boolean reuseBuffers){
+        _reuseBuffers = reuseBuffers;
+        return this;
+    }
+
+    private int _maxCount = DEFAULT_MAX_COUNT;
+    private long _maxDelayNanos = 0;
+    private long _maxSize = 0;
+    private boolean _reuseBuffers = false;
+}
@@ -0,0 +1,68 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.Yieldable;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Generates the values of another generator in batches, closed as configured
+ * by the WindowOptions. The final, partial batch is generated once the other
+ * generator returns. Each batch is a new list unless the options turn on
+ * buffer reuse, in which case a batch must be consumed within the yield that
+ * receives it and the batches cannot be iterated through YieldUtils.toIterable.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class WindowedGenerator<T> implements Generator<List<T>>
+{
+    /**
+     * Generates batches of at most the given number of values.
+     * @param generator The generator of the values.
+     * @param maxCount The maximum number of values in a batch.
+     */
+    public WindowedGenerator(Generator<T> generator, int maxCount){
+        this(generator, new WindowOptions().setMaxCount(maxCount));
+    }
+
+    /**
+     * Generates batches as configured by the given options, which must not
+     * set a maximum size.
+     * @param generator The generator of the values.
+     * @param options The limits of each batch; these are copied.
+     */
+    public WindowedGenerator(Generator<T> generator, WindowOptions options){
+        this(generator, options, null);
+    }
+
+    /**
+     * Generates batches as configured by the given options, measuring each
+     * value with the given sizer for the maximum size of the options.
+     * @param generator The generator of the values.
+     * @param options The limits of each batch; these are copied.
+     * @param sizer The function that measures each value, or null if the options set no maximum size.
+     */
+    public WindowedGenerator(Generator<T> generator, WindowOptions options, ToLongFunction<? super T> sizer){
+        if ( generator == null ){
+            throw new IllegalArgumentException("Generator cannot be null.");
+        }
+        if ( options == null ){
+            throw new IllegalArgumentException("Options cannot be null.");
+        }
+        if ( (options.getMaxSize() > 0) && (sizer == null) ){
+            throw new IllegalArgumentException("Sizer cannot be null when a maximum size is set.");
+        }
+        _generator = generator;
+        _options = new WindowOptions(options);
+        _sizer = sizer;
+    }
+
+    public void generate(Yieldable<List<T>> yieldable){
+        BatchingYieldable<T> batches = new BatchingYieldable<T>(yieldable, _options, _sizer);
+        _generator.generate(batches);
+        batches.flush();
+    }
+
+    private final Generator<T> _generator;
+    private final WindowOptions _options;
+    private final ToLongFunction<? super T> _sizer;
+}
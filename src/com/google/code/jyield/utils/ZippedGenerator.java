@@ -0,0 +1,63 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.YieldOptions;
+import com.google.code.jyield.Yieldable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Generates lists of the corresponding values of several generators: the
+ * first values of every generator, then the second values, and so on, until
+ * any of the generators finishes. See CombinedGenerator for how the inputs
+ * are read.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class ZippedGenerator<T> extends CombinedGenerator<T, List<T>>
+{
+    /**
+     * Zips the given generators.
+     * @param inputs The generators, in order.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs") // The array is only read, by the copy that CombinedGenerator makes.
+    public ZippedGenerator(Generator<T>... inputs){
+        this(Arrays.asList(inputs));
+    }
+
+    /**
+     * Zips the given generators.
+     * @param inputs The generators, in order.
+     */
+    public ZippedGenerator(List<? extends Generator<T>> inputs){
+        this(inputs, defaultOptions());
+    }
+
+    /**
+     * Zips the given generators.
+     * @param inputs The generators, in order.
+     * @param options The options with which to convert inputs that can only push their values.
+     */
+    public ZippedGenerator(List<? extends Generator<T>> inputs, YieldOptions options){
+        super(inputs, options);
+    }
+
+    void combine(List<Iterator<T>> inputs, Yieldable<List<T>> yieldable){
+        if ( inputs.isEmpty() ){
+            return;
+        }
+        while ( true ){
+            List<T> values = new ArrayList<T>(inputs.size());
+            for ( Iterator<T> input : inputs ){
+                if ( !input.hasNext() ){
+                    return;
+                }
+                values.add(input.next());
+            }
+            yieldable.yield(Collections.unmodifiableList(values));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+
+/**
+ * Checks that the timed hasNext and next of a TimedIterator can time out
+ * and be resumed without losing a value, and that the waits are measured
+ * from the first attempt and counted against the latency SLA once per value.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class DeadlineTest
+{
+    @Test
+    public void timedOutNextIsResumedWithoutLosingTheValue() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TimedIterator<Integer> iterator =
+            YieldUtils.toTimedIterable(held(release, 3), new YieldOptions()).iterator();
+        try {
+            iterator.next(20, TimeUnit.MILLISECONDS);
+            fail("The wait did not time out.");
+        } catch (TimeoutException ex) {
+            // Expected; the generator is held back.
+        }
+        try {
+            iterator.hasNext(20, TimeUnit.MILLISECONDS);
+            fail("The wait did not time out.");
+        } catch (TimeoutException ex) {
+            // Expected; the generator is still held back.
+        }
+        release.countDown();
+        for ( int i = 0; i < 3; i++ ){
+            assertEquals(i, (int) iterator.next(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertFalse(iterator.hasNext(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        try {
+            iterator.next(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("A value was returned past the end.");
+        } catch (NoSuchElementException ex) {
+            // Expected.
+        }
+        // The wait for the first value spans both attempts that timed out.
+        assertTrue(iterator.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+
+    @Test
+    public void slowValueCountsOneBreachAcrossResumedWaits() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        YieldOptions options = new YieldOptions().setLatencySla(50, TimeUnit.MILLISECONDS);
+        TimedIterator<Integer> iterator = YieldUtils.toTimedIterable(held(release, 1), options).iterator();
+        long start = System.nanoTime();
+        int attempts = 0;
+        while ( true ){
+            if ( System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(200) ){
+                release.countDown();
+            }
+            try {
+                assertEquals(0, (int) iterator.next(20, TimeUnit.MILLISECONDS));
+                break;
+            } catch (TimeoutException ex) {
+                attempts++;
+            }
+        }
+        assertTrue(attempts > 1);
+        assertEquals(1, iterator.getSlaBreaches());
+        assertTrue(iterator.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(200));
+        iterator.close();
+    }
+
+    @Test
+    public void onlyTheStalledValueBreachesTheSla() throws Exception {
+        final CountDownLatch first = new CountDownLatch(1);
+        Generator<Integer> stalling = new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    yieldable.yield(0);
+                    first.countDown();
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    yieldable.yield(1);
+                }
+            };
+        YieldOptions options = new YieldOptions().setLatencySla(100, TimeUnit.MILLISECONDS);
+        TimedIterator<Integer> iterator = YieldUtils.toTimedIterable(stalling, options).iterator();
+        assertTrue(iterator.hasNext());
+        assertTrue(first.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, (int) iterator.next());
+        assertEquals(1, (int) iterator.next());
+        assertFalse(iterator.hasNext());
+        assertEquals(1, iterator.getSlaBreaches());
+    }
+
+    @Test
+    public void readyValuesBreachNothing() throws Exception {
+        CountDownLatch release = new CountDownLatch(0);
+        YieldOptions options = new YieldOptions().setLatencySla(1, TimeUnit.SECONDS);
+        TimedIterator<Integer> iterator = YieldUtils.toTimedIterable(held(release, 100), options).iterator();
+        int count = 0;
+        while ( iterator.hasNext(TIMEOUT_SECONDS, TimeUnit.SECONDS) ){
+            assertEquals(count++, (int) iterator.next());
+        }
+        assertEquals(100, count);
+        assertEquals(0, iterator.getSlaBreaches());
+    }
+
+    /**
+     * Yields 0, 1 and so on up to count once the latch is released.
+     */
+    private static Generator<Integer> held(final CountDownLatch release, final int count){
+        return new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    for ( int i = 0; i < count; i++ ){
+                        yieldable.yield(i);
+                    }
+                }
+            };
+    }
+
+    private static final long TIMEOUT_SECONDS = 10;
+}
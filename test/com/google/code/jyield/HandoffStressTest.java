@@ -0,0 +1,309 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Runs many values through the multi-producer queue, the ring buffer and
+ * the multicast handoff, and checks that closing or failing stops the
+ * generators on the other side.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class HandoffStressTest
+{
+    @Test
+    public void multiProducerDeliversEveryValueInProducerOrder(){
+        checkMultiProducer(new YieldOptions().setCapacity(64));
+        checkMultiProducer(new YieldOptions());
+    }
+
+    @Test
+    public void multiProducerFailureCancelsTheOthers() throws InterruptedException {
+        CountDownLatch stopped = new CountDownLatch(PRODUCERS - 1);
+        List<Generator<Integer>> generators = new ArrayList<Generator<Integer>>();
+        generators.add(failing(100));
+        for ( int i = 1; i < PRODUCERS; i++ ){
+            generators.add(endless(stopped));
+        }
+        Iterator<Integer> iterator =
+            YieldUtils.toConcurrentIterable(generators, new YieldOptions().setCapacity(16)).iterator();
+        try {
+            while ( iterator.hasNext() ){
+                iterator.next();
+            }
+            fail("The failure of the generator was not rethrown.");
+        } catch (IllegalStateException ex) {
+            assertEquals("Generator failed.", ex.getMessage());
+        }
+        assertTrue("The other generators did not stop.", stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void closingTheMultiProducerIteratorCancelsEveryProducer() throws InterruptedException {
+        CountDownLatch stopped = new CountDownLatch(PRODUCERS);
+        List<Generator<Integer>> generators = new ArrayList<Generator<Integer>>();
+        for ( int i = 0; i < PRODUCERS; i++ ){
+            generators.add(endless(stopped));
+        }
+        CloseableIterator<Integer> iterator =
+            YieldUtils.toConcurrentIterable(generators, new YieldOptions().setCapacity(16)).iterator();
+        for ( int i = 0; i < 1000; i++ ){
+            iterator.next();
+        }
+        iterator.close();
+        assertTrue("The generators did not stop.", stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void ringBufferKeepsTheOrderWithEveryWaitStrategy(){
+        for ( WaitStrategy strategy : WaitStrategy.values() ){
+            YieldOptions options = new YieldOptions().setCapacity(4).setWaitStrategy(strategy);
+            Iterator<Integer> iterator = YieldUtils.toIterable(counting(VALUES), options).iterator();
+            int expected = 0;
+            while ( iterator.hasNext() ){
+                assertEquals(strategy.toString(), expected++, (int) iterator.next());
+            }
+            assertEquals(strategy.toString(), VALUES, expected);
+        }
+    }
+
+    @Test
+    public void unboundedRingBufferGrowsAcrossSegments() throws InterruptedException {
+        for ( WaitStrategy strategy : WaitStrategy.values() ){
+            YieldOptions[] variants = {
+                new YieldOptions().setWaitStrategy(strategy),
+                new YieldOptions().setCapacity((1 << 20) + 1).setWaitStrategy(strategy)
+            };
+            for ( YieldOptions options : variants ){
+                final CountDownLatch buffered = new CountDownLatch(1);
+                Generator<Integer> generator = new Generator<Integer>()
+                    {
+                        public void generate(Yieldable<Integer> yieldable){
+                            counting(VALUES).generate(yieldable);
+                            buffered.countDown();
+                        }
+                    };
+                Iterator<Integer> iterator = YieldUtils.toIterable(generator, options).iterator();
+                // Fill many segments before reading any of them.
+                assertTrue(iterator.hasNext());
+                assertTrue(buffered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                int expected = 0;
+                while ( iterator.hasNext() ){
+                    assertEquals(strategy.toString(), expected++, (int) iterator.next());
+                }
+                assertEquals(strategy.toString(), VALUES, expected);
+            }
+        }
+    }
+
+    @Test
+    public void batchingKeepsTheOrderWithAndWithoutADelay(){
+        YieldOptions[] variants = {
+            new YieldOptions().setBatchSize(16).setCapacity(64),
+            new YieldOptions().setBatchSize(16).setCapacity(64).setMaxBatchDelay(1, TimeUnit.MILLISECONDS)
+        };
+        for ( YieldOptions options : variants ){
+            Iterator<Integer> iterator = YieldUtils.toIterable(counting(VALUES), options).iterator();
+            int expected = 0;
+            while ( iterator.hasNext() ){
+                assertEquals(expected++, (int) iterator.next());
+            }
+            assertEquals(VALUES, expected);
+        }
+    }
+
+    @Test
+    public void batchingTakesAStaleBatchAfterTheMaximumDelay() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Generator<Integer> stalling = new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    for ( int i = 0; i < 3; i++ ){
+                        yieldable.yield(i);
+                    }
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+            };
+        YieldOptions options = new YieldOptions().setBatchSize(64).setMaxBatchDelay(10, TimeUnit.MILLISECONDS);
+        TimedIterator<Integer> iterator = YieldUtils.toTimedIterable(stalling, options).iterator();
+        try {
+            for ( int i = 0; i < 3; i++ ){
+                assertEquals(i, (int) iterator.next(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+        } finally {
+            release.countDown();
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void closingTheRingBufferIteratorStopsTheGenerator() throws InterruptedException {
+        for ( WaitStrategy strategy : WaitStrategy.values() ){
+            CountDownLatch stopped = new CountDownLatch(1);
+            YieldOptions options = new YieldOptions().setCapacity(8).setWaitStrategy(strategy);
+            CloseableIterator<Integer> iterator = YieldUtils.toIterable(endless(stopped), options).iterator();
+            for ( int i = 0; i < 5; i++ ){
+                iterator.next();
+            }
+            iterator.close();
+            assertTrue(strategy + " did not stop the generator.", stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void multicastDeliversEveryValueToEveryConsumer() throws Exception {
+        List<CloseableIterator<Integer>> consumers =
+            YieldUtils.multicast(counting(VALUES), 3, new YieldOptions().setCapacity(16));
+        ExecutorService executor = Executors.newFixedThreadPool(consumers.size());
+        try {
+            List<Future<Integer>> counts = new ArrayList<Future<Integer>>();
+            for ( int i = 0; i < consumers.size(); i++ ){
+                counts.add(executor.submit(reading(consumers.get(i), Integer.MAX_VALUE, i == 0)));
+            }
+            for ( Future<Integer> count : counts ){
+                assertEquals(VALUES, (int) count.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void closedMulticastConsumerDoesNotHoldBackTheOthers() throws Exception {
+        List<CloseableIterator<Integer>> consumers =
+            YieldUtils.multicast(counting(VALUES), 3, new YieldOptions().setCapacity(16));
+        ExecutorService executor = Executors.newFixedThreadPool(consumers.size());
+        try {
+            Future<Integer> closed = executor.submit(reading(consumers.get(0), 10, false));
+            Future<Integer> first = executor.submit(reading(consumers.get(1), Integer.MAX_VALUE, false));
+            Future<Integer> second = executor.submit(reading(consumers.get(2), Integer.MAX_VALUE, true));
+            assertEquals(10, (int) closed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertEquals(VALUES, (int) first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertEquals(VALUES, (int) second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void closingEveryMulticastConsumerCancelsTheProducer() throws InterruptedException {
+        CountDownLatch stopped = new CountDownLatch(1);
+        List<CloseableIterator<Integer>> consumers =
+            YieldUtils.multicast(endless(stopped), 2, new YieldOptions().setCapacity(16));
+        for ( int i = 0; i < 100; i++ ){
+            for ( CloseableIterator<Integer> consumer : consumers ){
+                assertEquals(i, (int) consumer.next());
+            }
+        }
+        for ( CloseableIterator<Integer> consumer : consumers ){
+            consumer.close();
+        }
+        assertTrue("The generator did not stop.", stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static void checkMultiProducer(YieldOptions options){
+        List<Generator<Integer>> generators = new ArrayList<Generator<Integer>>();
+        for ( int i = 0; i < PRODUCERS; i++ ){
+            generators.add(counting(i * VALUES, VALUES));
+        }
+        int[] next = new int[PRODUCERS];
+        int total = 0;
+        for ( int value : YieldUtils.toConcurrentIterable(generators, options) ){
+            int producer = value / VALUES;
+            assertEquals("Producer " + producer + " out of order.", next[producer]++, value % VALUES);
+            total++;
+        }
+        assertEquals(PRODUCERS * VALUES, total);
+    }
+
+    /**
+     * Reads up to limit values in order, then closes the iterator.
+     * @return The number of values read.
+     */
+    private static Callable<Integer> reading(final CloseableIterator<Integer> iterator, final int limit,
+            final boolean slow){
+        return new Callable<Integer>()
+        {
+            public Integer call(){
+                int count = 0;
+                try {
+                    while ( (count < limit) && iterator.hasNext() ){
+                        assertEquals(count, (int) iterator.next());
+                        count++;
+                        if ( slow && (count % 64 == 0) ){
+                            Thread.yield();
+                        }
+                    }
+                } finally {
+                    iterator.close();
+                }
+                return count;
+            }
+        };
+    }
+
+    private static Generator<Integer> counting(int count){
+        return counting(0, count);
+    }
+
+    private static Generator<Integer> counting(final int start, final int count){
+        return new Generator<Integer>()
+        {
+            public void generate(Yieldable<Integer> yieldable){
+                for ( int i = 0; i < count; i++ ){
+                    yieldable.yield(start + i);
+                }
+            }
+        };
+    }
+
+    private static Generator<Integer> failing(final int count){
+        return new Generator<Integer>()
+        {
+            public void generate(Yieldable<Integer> yieldable){
+                for ( int i = 0; i < count; i++ ){
+                    yieldable.yield(i);
+                }
+                throw new IllegalStateException("Generator failed.");
+            }
+        };
+    }
+
+    /**
+     * Yields until cancelled, counting down the latch once it stops.
+     */
+    private static Generator<Integer> endless(final CountDownLatch stopped){
+        return new Generator<Integer>()
+        {
+            public void generate(Yieldable<Integer> yieldable){
+                try {
+                    for ( int i = 0; true; i++ ){
+                        yieldable.yield(i);
+                    }
+                } finally {
+                    stopped.countDown();
+                }
+            }
+        };
+    }
+
+    private static final int PRODUCERS = 4;
+    private static final int VALUES = 100000;
+    private static final long TIMEOUT_SECONDS = 10;
+}
@@ -0,0 +1,130 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Checks what each overflow policy does when the generator gets ahead of a
+ * bounded buffer, with single values and with batches.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class OverflowPolicyTest
+{
+    @Test
+    public void blockHoldsTheGeneratorAtTheCapacity() throws InterruptedException {
+        YieldOptions[] variants = {
+            new YieldOptions().setCapacity(CAPACITY),
+            new YieldOptions().setCapacity(CAPACITY).setBatchSize(2)
+        };
+        for ( YieldOptions options : variants ){
+            final AtomicInteger produced = new AtomicInteger();
+            Generator<Integer> generator = new Generator<Integer>()
+                {
+                    public void generate(Yieldable<Integer> yieldable){
+                        for ( int i = 0; i < VALUES; i++ ){
+                            yieldable.yield(i);
+                            produced.incrementAndGet();
+                        }
+                    }
+                };
+            Iterator<Integer> iterator = YieldUtils.toIterable(generator, options).iterator();
+            assertTrue(iterator.hasNext());
+            Thread.sleep(100);
+            // The buffer, plus the values the consumer has already taken in a batch.
+            assertTrue(produced.get() + " values were produced.", produced.get() <= 2 * CAPACITY);
+            assertEquals(range(0, VALUES), drain(iterator));
+        }
+    }
+
+    @Test
+    public void failFastFailsTheGeneratorOnceTheBufferIsFull() throws InterruptedException {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        Iterator<Integer> iterator = YieldUtils.toIterable(stopping(stopped),
+            new YieldOptions().setCapacity(CAPACITY).setOverflowPolicy(OverflowPolicy.FAIL_FAST)).iterator();
+        assertTrue(iterator.hasNext());
+        assertTrue(stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for ( int i = 0; i < CAPACITY; i++ ){
+            assertEquals(i, (int) iterator.next());
+        }
+        try {
+            iterator.hasNext();
+            fail("The overflow was not reported.");
+        } catch (IllegalStateException ex) {
+            assertEquals("Buffer capacity of " + CAPACITY + " exceeded.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void dropOldestKeepsTheNewestValues() throws InterruptedException {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        Iterator<Integer> iterator = YieldUtils.toIterable(stopping(stopped),
+            new YieldOptions().setCapacity(CAPACITY).setOverflowPolicy(OverflowPolicy.DROP_OLDEST)).iterator();
+        assertTrue(iterator.hasNext());
+        assertTrue(stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(range(VALUES - CAPACITY, VALUES), drain(iterator));
+    }
+
+    @Test
+    public void dropOldestDropsWholeBatches() throws InterruptedException {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        YieldOptions options = new YieldOptions().setCapacity(CAPACITY).setBatchSize(2)
+            .setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        Iterator<Integer> iterator = YieldUtils.toIterable(stopping(stopped), options).iterator();
+        assertTrue(iterator.hasNext());
+        assertTrue(stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        List<Integer> values = drain(iterator);
+        // The batch that hasNext took, at most, and then the newest two
+        // batches, the last of which may be partial.
+        assertTrue(values.toString(), values.size() <= CAPACITY + 2);
+        assertEquals(VALUES - 1, (int) values.get(values.size() - 1));
+        for ( int i = 1; i < values.size(); i++ ){
+            assertTrue(values.toString(), values.get(i - 1) < values.get(i));
+        }
+    }
+
+    /**
+     * Yields VALUES values, counting down the latch once it stops.
+     */
+    private static Generator<Integer> stopping(final CountDownLatch stopped){
+        return new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    try {
+                        for ( int i = 0; i < VALUES; i++ ){
+                            yieldable.yield(i);
+                        }
+                    } finally {
+                        stopped.countDown();
+                    }
+                }
+            };
+    }
+
+    private static List<Integer> drain(Iterator<Integer> iterator){
+        List<Integer> result = new ArrayList<Integer>();
+        while ( iterator.hasNext() ){
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    private static List<Integer> range(int start, int end){
+        List<Integer> result = new ArrayList<Integer>();
+        for ( int i = start; i < end; i++ ){
+            result.add(i);
+        }
+        return result;
+    }
+
+    private static final int CAPACITY = 4;
+    private static final int VALUES = 100;
+    private static final long TIMEOUT_SECONDS = 10;
+}
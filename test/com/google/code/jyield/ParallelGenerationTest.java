@@ -0,0 +1,207 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import com.google.code.jyield.utils.Range;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * Checks that YieldUtils.generateParallel delivers every value in the
+ * promised order, one call at a time unless the order is CONCURRENT, and
+ * that a failure of one part cancels the others and is rethrown.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class ParallelGenerationTest
+{
+    @Test
+    public void orderedDeliversTheValuesInSequence(){
+        Serial serial = new Serial();
+        YieldUtils.generateParallel(new Range(VALUES), serial, PARALLELISM, DeliveryOrder.ORDERED);
+        assertFalse("The yieldable was called concurrently.", serial.overlapped.get());
+        assertEquals(range(VALUES), serial.values);
+    }
+
+    @Test
+    public void unorderedDeliversEveryValueOneAtATime(){
+        Serial serial = new Serial();
+        YieldUtils.generateParallel(new Range(VALUES), serial, PARALLELISM, DeliveryOrder.UNORDERED);
+        assertFalse("The yieldable was called concurrently.", serial.overlapped.get());
+        Collections.sort(serial.values);
+        assertEquals(range(VALUES), serial.values);
+    }
+
+    @Test
+    public void concurrentDeliversEveryValue(){
+        final ConcurrentLinkedQueue<Integer> values = new ConcurrentLinkedQueue<Integer>();
+        YieldUtils.generateParallel(new Range(VALUES), new Yieldable<Integer>()
+            {
+                public void yield(Integer value){
+                    values.add(value);
+                }
+            }, PARALLELISM, DeliveryOrder.CONCURRENT);
+        List<Integer> sorted = new ArrayList<Integer>(values);
+        Collections.sort(sorted);
+        assertEquals(range(VALUES), sorted);
+    }
+
+    @Test
+    public void unpartitionableGeneratorRunsOnTheCallingThread(){
+        final List<Thread> threads = new ArrayList<Thread>();
+        Generator<Integer> generator = new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    threads.add(Thread.currentThread());
+                    new Range(10).generate(yieldable);
+                }
+            };
+        Serial serial = new Serial();
+        YieldUtils.generateParallel(generator, serial, PARALLELISM, DeliveryOrder.UNORDERED);
+        assertEquals(Collections.singletonList(Thread.currentThread()), threads);
+        assertEquals(range(10), serial.values);
+    }
+
+    @Test
+    public void failingPartCancelsTheOthers() throws InterruptedException {
+        for ( DeliveryOrder order : DeliveryOrder.values() ){
+            CountDownLatch stopped = new CountDownLatch(PARALLELISM - 1);
+            List<Generator<Integer>> parts = new ArrayList<Generator<Integer>>();
+            parts.add(failing());
+            for ( int i = 1; i < PARALLELISM; i++ ){
+                parts.add(endless(stopped));
+            }
+            try {
+                YieldUtils.generateParallel(new Parts(parts), new Concurrent(), PARALLELISM, order);
+                fail(order + ": the failure of the part was not rethrown.");
+            } catch (IllegalStateException ex) {
+                assertEquals(order.toString(), "Part failed.", ex.getMessage());
+            }
+            assertTrue(order + ": the other parts did not stop.", stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void failingYieldableCancelsEveryPart() throws InterruptedException {
+        for ( DeliveryOrder order : DeliveryOrder.values() ){
+            CountDownLatch stopped = new CountDownLatch(PARALLELISM);
+            List<Generator<Integer>> parts = new ArrayList<Generator<Integer>>();
+            for ( int i = 0; i < PARALLELISM; i++ ){
+                parts.add(endless(stopped));
+            }
+            Yieldable<Integer> failing = new Yieldable<Integer>()
+                {
+                    public void yield(Integer value){
+                        if ( value == 100 ){
+                            throw new IllegalStateException("Yieldable failed.");
+                        }
+                    }
+                };
+            try {
+                YieldUtils.generateParallel(new Parts(parts), failing, PARALLELISM, order);
+                fail(order + ": the failure of the yieldable was not rethrown.");
+            } catch (IllegalStateException ex) {
+                assertEquals(order.toString(), "Yieldable failed.", ex.getMessage());
+            }
+            assertTrue(order + ": the parts did not stop.", stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Records the values, noting whether it was ever called concurrently.
+     */
+    private static class Serial implements Yieldable<Integer>
+    {
+        public void yield(Integer value){
+            if ( _inside.getAndSet(true) ){
+                overlapped.set(true);
+            }
+            values.add(value);
+            _inside.set(false);
+        }
+
+        final List<Integer> values = new ArrayList<Integer>();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        private final AtomicBoolean _inside = new AtomicBoolean();
+    }
+
+    /**
+     * Ignores the values, from any number of threads.
+     */
+    private static class Concurrent implements Yieldable<Integer>
+    {
+        public void yield(Integer value){
+        }
+    }
+
+    /**
+     * A generator made of the given parts, which it always splits into.
+     */
+    private static class Parts implements PartitionableGenerator<Integer>
+    {
+        public Parts(List<Generator<Integer>> parts){
+            _parts = parts;
+        }
+
+        public void generate(Yieldable<Integer> yieldable){
+            for ( Generator<Integer> part : _parts ){
+                part.generate(yieldable);
+            }
+        }
+
+        public List<Generator<Integer>> partition(int count){
+            return _parts;
+        }
+
+        private final List<Generator<Integer>> _parts;
+    }
+
+    private static Generator<Integer> failing(){
+        return new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    for ( int i = 0; i < 100; i++ ){
+                        yieldable.yield(i);
+                    }
+                    throw new IllegalStateException("Part failed.");
+                }
+            };
+    }
+
+    /**
+     * Yields until cancelled, counting down the latch once it stops.
+     */
+    private static Generator<Integer> endless(final CountDownLatch stopped){
+        return new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    try {
+                        for ( int i = 0; true; i++ ){
+                            yieldable.yield(i);
+                        }
+                    } finally {
+                        stopped.countDown();
+                    }
+                }
+            };
+    }
+
+    private static List<Integer> range(int count){
+        List<Integer> result = new ArrayList<Integer>();
+        for ( int i = 0; i < count; i++ ){
+            result.add(i);
+        }
+        return result;
+    }
+
+    private static final int PARALLELISM = 4;
+    private static final int VALUES = 100000;
+    private static final long TIMEOUT_SECONDS = 10;
+}
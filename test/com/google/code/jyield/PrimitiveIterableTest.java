@@ -0,0 +1,138 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Tests the iterables that pass int, long and double values in unboxed chunks.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class PrimitiveIterableTest
+{
+    @Test
+    public void deliversEveryValueInOrder(){
+        YieldOptions options = new YieldOptions().setBatchSize(64).setCapacity(256);
+        PrimitiveIterator.OfInt ints = YieldUtils.toIntIterable(ints(1000), options).iterator();
+        PrimitiveIterator.OfLong longs = YieldUtils.toLongIterable(longs(1000), options).iterator();
+        PrimitiveIterator.OfDouble doubles = YieldUtils.toDoubleIterable(doubles(1000), options).iterator();
+        for ( int i = 0; i < 1000; i++ ){
+            assertEquals(i, ints.nextInt());
+            assertEquals(i, longs.nextLong());
+            assertEquals(i, doubles.nextDouble(), 0);
+        }
+        assertFalse(ints.hasNext());
+        assertFalse(longs.hasNext());
+        assertFalse(doubles.hasNext());
+    }
+
+    @Test
+    public void takesAStaleChunkAfterTheMaximumDelay() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        IntGenerator stalling = new IntGenerator()
+            {
+                public void generate(IntYieldable yieldable){
+                    for ( int i = 0; i < 3; i++ ){
+                        yieldable.yield(i);
+                    }
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    yieldable.yield(3);
+                }
+            };
+        YieldOptions options = new YieldOptions().setBatchSize(64).setMaxBatchDelay(10, TimeUnit.MILLISECONDS);
+        PrimitiveIterator.OfInt iterator = YieldUtils.toIntIterable(stalling, options).iterator();
+        for ( int i = 0; i < 3; i++ ){
+            assertEquals(i, iterator.nextInt());
+        }
+        release.countDown();
+        assertEquals(3, iterator.nextInt());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void interruptedHasNextKeepsTheInterrupt(){
+        PrimitiveIterator.OfInt iterator = YieldUtils.toIntIterable(idleInts(), new YieldOptions()).iterator();
+        Thread.currentThread().interrupt();
+        try {
+            assertFalse(iterator.hasNext());
+            assertTrue("The interrupt was lost.", Thread.interrupted());
+        } finally {
+            Thread.interrupted();
+            ((CloseableIterator<?>) iterator).close();
+        }
+    }
+
+    @Test
+    public void interruptedNextKeepsTheInterrupt(){
+        PrimitiveIterator.OfInt iterator = YieldUtils.toIntIterable(idleInts(), new YieldOptions()).iterator();
+        Thread.currentThread().interrupt();
+        try {
+            iterator.nextInt();
+            fail("An interrupted next returned a value.");
+        } catch (NoSuchElementException ex) {
+            assertTrue("The interrupt was lost.", Thread.interrupted());
+        } finally {
+            Thread.interrupted();
+            ((CloseableIterator<?>) iterator).close();
+        }
+    }
+
+    private static IntGenerator ints(final int count){
+        return new IntGenerator()
+            {
+                public void generate(IntYieldable yieldable){
+                    for ( int i = 0; i < count; i++ ){
+                        yieldable.yield(i);
+                    }
+                }
+            };
+    }
+
+    private static LongGenerator longs(final int count){
+        return new LongGenerator()
+            {
+                public void generate(LongYieldable yieldable){
+                    for ( int i = 0; i < count; i++ ){
+                        yieldable.yield(i);
+                    }
+                }
+            };
+    }
+
+    private static DoubleGenerator doubles(final int count){
+        return new DoubleGenerator()
+            {
+                public void generate(DoubleYieldable yieldable){
+                    for ( int i = 0; i < count; i++ ){
+                        yieldable.yield(i);
+                    }
+                }
+            };
+    }
+
+    /**
+     * Yields nothing until cancelled.
+     */
+    private static IntGenerator idleInts(){
+        return new IntGenerator()
+            {
+                public void generate(IntYieldable yieldable){
+                    try {
+                        Thread.sleep(Long.MAX_VALUE);
+                    } catch (InterruptedException ex) {
+                        // Cancelled.
+                    }
+                }
+            };
+    }
+}
@@ -0,0 +1,125 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+/**
+ * Checks that abandoning an iterator without closing it cancels its
+ * generator, so that the worker blocked in yield finishes.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class ReaperTest
+{
+    @Test
+    public void abandonedIteratorCancelsItsGenerator() throws InterruptedException {
+        CountDownLatch stopped = new CountDownLatch(1);
+        AtomicReference<Thread> worker = new AtomicReference<Thread>();
+        readAndAbandon(endless(stopped, worker), new YieldOptions().setCapacity(16));
+        awaitReaped(stopped, worker);
+    }
+
+    @Test
+    public void abandonedBatchingIteratorCancelsItsGenerator() throws InterruptedException {
+        CountDownLatch stopped = new CountDownLatch(1);
+        AtomicReference<Thread> worker = new AtomicReference<Thread>();
+        readAndAbandon(endless(stopped, worker), new YieldOptions().setCapacity(64).setBatchSize(8));
+        awaitReaped(stopped, worker);
+    }
+
+    @Test
+    public void abandonedPrimitiveIteratorCancelsItsGenerator() throws InterruptedException {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        final AtomicReference<Thread> worker = new AtomicReference<Thread>();
+        IntGenerator generator = new IntGenerator()
+            {
+                public void generate(IntYieldable yieldable){
+                    worker.set(Thread.currentThread());
+                    try {
+                        for ( int i = 0; true; i++ ){
+                            yieldable.yield(i);
+                        }
+                    } finally {
+                        stopped.countDown();
+                    }
+                }
+            };
+        readAndAbandon(generator);
+        awaitReaped(stopped, worker);
+    }
+
+    /**
+     * Reads a few values, then drops the iterator without closing it.
+     */
+    private static void readAndAbandon(Generator<Integer> generator, YieldOptions options){
+        Iterator<Integer> iterator = YieldUtils.toIterable(generator, options).iterator();
+        for ( int i = 0; i < 5; i++ ){
+            assertEquals(i, (int) iterator.next());
+        }
+    }
+
+    private static void readAndAbandon(IntGenerator generator){
+        PrimitiveIterator.OfInt iterator =
+            YieldUtils.toIntIterable(generator, new YieldOptions().setCapacity(1024)).iterator();
+        for ( int i = 0; i < 5; i++ ){
+            assertEquals(i, iterator.nextInt());
+        }
+    }
+
+    /**
+     * Collects garbage until the generator has stopped, then waits until its
+     * worker has left the generator, so that it can run other tasks.
+     */
+    private static void awaitReaped(CountDownLatch stopped, AtomicReference<Thread> worker)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while ( !stopped.await(10, TimeUnit.MILLISECONDS) ){
+            assertTrue("The abandoned generator was not cancelled.", System.nanoTime() - deadline < 0);
+            collectGarbage();
+        }
+        while ( runsGenerator(worker.get()) ){
+            assertTrue("The worker did not leave the generator.", System.nanoTime() - deadline < 0);
+            Thread.sleep(10);
+        }
+    }
+
+    private static boolean runsGenerator(Thread worker){
+        for ( StackTraceElement frame : worker.getStackTrace() ){
+            if ( frame.getClassName().startsWith(ReaperTest.class.getName()) ){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void collectGarbage(){
+        System.gc();
+        System.runFinalization();
+    }
+
+    /**
+     * Yields until cancelled, recording its thread and counting down the latch once it stops.
+     */
+    private static Generator<Integer> endless(final CountDownLatch stopped, final AtomicReference<Thread> worker){
+        return new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    worker.set(Thread.currentThread());
+                    try {
+                        for ( int i = 0; true; i++ ){
+                            yieldable.yield(i);
+                        }
+                    } finally {
+                        stopped.countDown();
+                    }
+                }
+            };
+    }
+
+    private static final long TIMEOUT_SECONDS = 10;
+}
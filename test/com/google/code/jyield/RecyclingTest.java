@@ -0,0 +1,161 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+/**
+ * Checks the points at which an iterator returns values to its recycler:
+ * next and close release the value moved past, and hasNext releases nothing.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class RecyclingTest
+{
+    @Test
+    public void nextReleasesThePreviousValue(){
+        Recorder recorder = new Recorder();
+        CloseableIterator<int[]> iterator = iterator(3, recorder);
+        int[] first = iterator.next();
+        assertTrue(recorder.recycled.isEmpty());
+        int[] second = iterator.next();
+        assertEquals(Collections.singletonList(first), recorder.recycled);
+        iterator.next();
+        assertEquals(2, recorder.recycled.size());
+        assertSame(second, recorder.recycled.get(1));
+        iterator.close();
+    }
+
+    @Test
+    public void hasNextReleasesNothing(){
+        Recorder recorder = new Recorder();
+        CloseableIterator<int[]> iterator = iterator(1, recorder);
+        int[] only = iterator.next();
+        assertFalse(iterator.hasNext());
+        assertFalse(iterator.hasNext());
+        assertTrue("hasNext released the value.", recorder.recycled.isEmpty());
+        assertEquals(0, only[0]);
+        iterator.close();
+        assertEquals(Collections.singletonList(only), recorder.recycled);
+    }
+
+    @Test
+    public void closeReleasesTheCurrentValueOnce(){
+        Recorder recorder = new Recorder();
+        CloseableIterator<int[]> iterator = iterator(10, recorder);
+        iterator.next();
+        int[] current = iterator.next();
+        iterator.close();
+        assertEquals(2, recorder.recycled.size());
+        assertSame(current, recorder.recycled.get(1));
+        iterator.close();
+        assertEquals(2, recorder.recycled.size());
+    }
+
+    @Test
+    public void timedNextReleasesThePreviousValue() throws Exception {
+        Recorder recorder = new Recorder();
+        YieldOptions options = new YieldOptions().setRecycler(recorder);
+        TimedIterator<int[]> iterator = YieldUtils.toTimedIterable(arrays(2, null), options).iterator();
+        int[] first = iterator.next(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertTrue(iterator.hasNext(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(recorder.recycled.isEmpty());
+        iterator.next(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonList(first), recorder.recycled);
+        iterator.close();
+    }
+
+    @Test
+    public void poolReusesTheRecycledValues(){
+        final List<int[]> reset = new ArrayList<int[]>();
+        RecyclingPool<int[]> pool = new RecyclingPool<int[]>(
+            new Supplier<int[]>()
+            {
+                public int[] get(){
+                    return new int[1];
+                }
+            },
+            4,
+            new Consumer<int[]>()
+            {
+                public void accept(int[] value){
+                    reset.add(value);
+                    value[0] = -1;
+                }
+            });
+        CloseableIterator<int[]> iterator = iterator(VALUES, pool);
+        int expected = 0;
+        while ( iterator.hasNext() ){
+            assertEquals(expected++, iterator.next()[0]);
+        }
+        iterator.close();
+        assertEquals(VALUES, expected);
+        assertEquals("Every value is reset once.", VALUES, reset.size());
+        assertTrue(pool.getCreatedCount() + " objects were created.", pool.getCreatedCount() < VALUES);
+        assertTrue(pool.getIdleCount() <= 4);
+    }
+
+    @Test
+    public void poolKeepsAtMostMaxIdleObjects(){
+        RecyclingPool<int[]> pool = new RecyclingPool<int[]>(new Supplier<int[]>()
+            {
+                public int[] get(){
+                    return new int[1];
+                }
+            }, 2);
+        for ( int i = 0; i < 5; i++ ){
+            pool.recycle(new int[1]);
+        }
+        assertEquals(2, pool.getIdleCount());
+        pool.acquire();
+        pool.acquire();
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(0, pool.getCreatedCount());
+        pool.acquire();
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    private static CloseableIterator<int[]> iterator(int count, Recycler<int[]> recycler){
+        RecyclingPool<int[]> pool = (recycler instanceof RecyclingPool) ? (RecyclingPool<int[]>) recycler : null;
+        YieldOptions options = new YieldOptions().setCapacity(2).setRecycler(recycler);
+        return YieldUtils.toIterable(arrays(count, pool), options).iterator();
+    }
+
+    /**
+     * Yields arrays that hold 0, 1, 2 and so on, acquired from the pool if there is one.
+     */
+    private static Generator<int[]> arrays(final int count, final RecyclingPool<int[]> pool){
+        return new Generator<int[]>()
+            {
+                public void generate(Yieldable<int[]> yieldable){
+                    for ( int i = 0; i < count; i++ ){
+                        int[] value = (pool == null) ? new int[1] : pool.acquire();
+                        value[0] = i;
+                        yieldable.yield(value);
+                    }
+                }
+            };
+    }
+
+    /**
+     * Records the values recycled, in order.
+     */
+    private static class Recorder implements Recycler<int[]>
+    {
+        public void recycle(int[] value){
+            recycled.add(value);
+        }
+
+        final List<int[]> recycled = new ArrayList<int[]>();
+    }
+
+    private static final int VALUES = 10000;
+    private static final long TIMEOUT_SECONDS = 10;
+}
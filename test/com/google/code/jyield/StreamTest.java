@@ -0,0 +1,150 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import com.google.code.jyield.utils.Range;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+/**
+ * Checks the conversion of generators to streams, the splitting of the
+ * sources that can be split, and the size estimates of the others.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class StreamTest
+{
+    @Test
+    public void rangeSplitsEvenly(){
+        Spliterator<Integer> first = new Range(0, 1000).spliterator();
+        Spliterator<Integer> second = first.trySplit();
+        assertNotNull(second);
+        assertEquals(500, first.estimateSize());
+        assertEquals(500, second.estimateSize());
+        assertTrue(first.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+    }
+
+    @Test
+    public void collectionGeneratorSplitsLikeItsCollection(){
+        Generator<Integer> generator = YieldUtils.toGenerator(range(1000));
+        Spliterator<Integer> spliterator = ((Iterable<Integer>) generator).spliterator();
+        assertNotNull(spliterator.trySplit());
+        assertEquals(range(1000), YieldUtils.toStream(generator, true).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void parallelStreamsKeepTheEncounterOrder(){
+        assertEquals(range(10000), YieldUtils.toStream(new Range(10000), true).collect(Collectors.toList()));
+        assertEquals(range(10000), YieldUtils.toStream(counting(10000), true).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void pushGeneratorStreamsOnTheCallingThread(){
+        final List<Thread> threads = new ArrayList<Thread>();
+        Generator<Integer> generator = new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    threads.add(Thread.currentThread());
+                    counting(100).generate(yieldable);
+                }
+            };
+        assertEquals(range(100), YieldUtils.toStream(generator).collect(Collectors.toList()));
+        assertEquals(1, threads.size());
+        assertEquals(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    public void closingAPartlyConsumedStreamStopsTheGenerator() throws InterruptedException {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        Generator<Integer> endless = new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    try {
+                        for ( int i = 0; true; i++ ){
+                            yieldable.yield(i);
+                        }
+                    } finally {
+                        stopped.countDown();
+                    }
+                }
+            };
+        Stream<Integer> stream = YieldUtils.toStream(endless);
+        try {
+            assertEquals(range(5), stream.limit(5).collect(Collectors.toList()));
+        } finally {
+            stream.close();
+        }
+        assertTrue("The generator did not stop.", stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void estimateSizeReportsTheSizeHint(){
+        GeneratorSpliterator<Integer> spliterator =
+            new GeneratorSpliterator<Integer>(new Hinted(10), new YieldOptions());
+        try {
+            assertEquals(10, spliterator.estimateSize());
+            assertTrue(spliterator.tryAdvance(IGNORE));
+            assertEquals(9, spliterator.estimateSize());
+            spliterator.forEachRemaining(IGNORE);
+            assertEquals(0, spliterator.estimateSize());
+        } finally {
+            spliterator.close();
+        }
+        assertEquals(Long.MAX_VALUE,
+            new GeneratorSpliterator<Integer>(counting(10), new YieldOptions()).estimateSize());
+    }
+
+    private static Generator<Integer> counting(final int count){
+        return new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    for ( int i = 0; i < count; i++ ){
+                        yieldable.yield(i);
+                    }
+                }
+            };
+    }
+
+    private static List<Integer> range(int count){
+        List<Integer> result = new ArrayList<Integer>();
+        for ( int i = 0; i < count; i++ ){
+            result.add(i);
+        }
+        return result;
+    }
+
+    /**
+     * A generator that is not iterable but knows how many values it yields.
+     */
+    private static class Hinted implements Generator<Integer>, SizeHint
+    {
+        public Hinted(int count){
+            _count = count;
+        }
+
+        public void generate(Yieldable<Integer> yieldable){
+            counting(_count).generate(yieldable);
+        }
+
+        public long sizeHint(){
+            return _count;
+        }
+
+        private final int _count;
+    }
+
+    private static final Consumer<Integer> IGNORE = new Consumer<Integer>()
+        {
+            public void accept(Integer value){
+            }
+        };
+
+    private static final long TIMEOUT_SECONDS = 10;
+}
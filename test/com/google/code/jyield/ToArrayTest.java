@@ -0,0 +1,154 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import com.google.code.jyield.utils.Range;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.function.IntFunction;
+import org.junit.Test;
+
+/**
+ * Checks that the collection sinks presize their storage from a size hint,
+ * stay correct when the hint is missing or wrong, and that the index fast
+ * path of list generators stays fail-fast.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class ToArrayTest
+{
+    @Test
+    public void hintedGeneratorFillsOneArrayOfTheRightSize(){
+        Factory factory = new Factory();
+        Integer[] result = YieldUtils.toArray((Generator<Integer>) new Range(1000), factory);
+        assertEquals(Arrays.asList(1000), factory.lengths);
+        assertSame(factory.last, result);
+        assertArrayEquals(expected(1000), result);
+    }
+
+    @Test
+    public void unhintedGeneratorGrowsAndTrimsItsArray(){
+        Factory factory = new Factory();
+        assertArrayEquals(expected(1000), YieldUtils.toArray(counting(1000), factory));
+        assertEquals(1, factory.lengths.size());
+        assertArrayEquals(expected(0), YieldUtils.toArray(counting(0), new Factory()));
+    }
+
+    @Test
+    public void wrongHintStillGivesEveryValue(){
+        assertArrayEquals(expected(100), YieldUtils.toArray(new Hinted(100, 10), new Factory()));
+        assertArrayEquals(expected(10), YieldUtils.toArray(new Hinted(10, 100), new Factory()));
+        assertEquals(Arrays.asList(expected(100)), YieldUtils.toArrayList(new Hinted(100, 10)));
+    }
+
+    @Test
+    public void collectionIsCopiedInBulk(){
+        List<Integer> list = Arrays.asList(expected(100));
+        Factory factory = new Factory();
+        assertArrayEquals(expected(100), YieldUtils.toArray(list, factory));
+        assertEquals(Arrays.asList(100), factory.lengths);
+        assertEquals(list, YieldUtils.toArrayList(YieldUtils.toGenerator(list)));
+        assertEquals(100, YieldUtils.sizeHint(YieldUtils.toGenerator(list)));
+    }
+
+    @Test
+    public void primitiveArraysUseTheHint(){
+        int[] ints = YieldUtils.toIntArray(new Range(5).asIntGenerator());
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, ints);
+        LongGenerator longs = new LongGenerator()
+            {
+                public void generate(LongYieldable yieldable){
+                    for ( long i = 0; i < 100; i++ ){
+                        yieldable.yield(i);
+                    }
+                }
+            };
+        long[] longArray = YieldUtils.toLongArray(longs);
+        assertEquals(100, longArray.length);
+        assertEquals(99L, longArray[99]);
+        DoubleGenerator doubles = new DoubleGenerator()
+            {
+                public void generate(DoubleYieldable yieldable){
+                    yieldable.yield(0.5);
+                }
+            };
+        assertArrayEquals(new double[] { 0.5 }, YieldUtils.toDoubleArray(doubles), 0);
+    }
+
+    @Test
+    public void arrayListFastPathIsFailFast(){
+        final List<Integer> list = new ArrayList<Integer>(Arrays.asList(expected(10)));
+        try {
+            YieldUtils.toGenerator(list).generate(new Yieldable<Integer>()
+                {
+                    public void yield(Integer value){
+                        if ( value == 3 ){
+                            list.add(-1);
+                        }
+                    }
+                });
+            fail("The modification of the list was not detected.");
+        } catch (ConcurrentModificationException ex) {
+            // Expected, as from the list's own iterator.
+        }
+    }
+
+    /**
+     * Creates Integer arrays, recording the lengths asked for.
+     */
+    private static class Factory implements IntFunction<Integer[]>
+    {
+        public Integer[] apply(int length){
+            lengths.add(length);
+            last = new Integer[length];
+            return last;
+        }
+
+        final List<Integer> lengths = new ArrayList<Integer>();
+        Integer[] last = null;
+    }
+
+    /**
+     * A generator whose size hint may be wrong.
+     */
+    private static class Hinted implements Generator<Integer>, SizeHint
+    {
+        public Hinted(int count, long hint){
+            _count = count;
+            _hint = hint;
+        }
+
+        public void generate(Yieldable<Integer> yieldable){
+            counting(_count).generate(yieldable);
+        }
+
+        public long sizeHint(){
+            return _hint;
+        }
+
+        private final int _count;
+        private final long _hint;
+    }
+
+    private static Generator<Integer> counting(final int count){
+        return new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    for ( int i = 0; i < count; i++ ){
+                        yieldable.yield(i);
+                    }
+                }
+            };
+    }
+
+    private static Integer[] expected(int count){
+        Integer[] result = new Integer[count];
+        for ( int i = 0; i < count; i++ ){
+            result[i] = i;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Iterator;
+import org.junit.Test;
+
+/**
+ * Tests that YieldMetrics keeps its buffer depth in step with the values
+ * that are dropped or discarded as well as those that are taken.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class YieldMetricsTest
+{
+    @Test
+    public void dropOldestCountsTheDroppedValues() throws InterruptedException {
+        YieldMetrics metrics = new YieldMetrics();
+        YieldOptions options = new YieldOptions()
+            .setCapacity(10)
+            .setOverflowPolicy(OverflowPolicy.DROP_OLDEST)
+            .setMetricsListener(metrics);
+        Iterator<Integer> iterator = YieldUtils.toIterable(counting(1000), options).iterator();
+        awaitStopped(metrics);
+        assertEquals(1000, metrics.getYielded());
+        assertEquals(990, metrics.getDiscarded());
+        assertEquals(10, metrics.getBufferDepth());
+        int taken = 0;
+        while ( iterator.hasNext() ){
+            assertEquals(990 + taken, (int) iterator.next());
+            taken++;
+        }
+        assertEquals(10, taken);
+        assertEquals(0, metrics.getBufferDepth());
+    }
+
+    @Test
+    public void dropOldestCountsEveryValueOfADroppedBatch() throws InterruptedException {
+        YieldMetrics metrics = new YieldMetrics();
+        YieldOptions options = new YieldOptions()
+            .setCapacity(12)
+            .setBatchSize(4)
+            .setOverflowPolicy(OverflowPolicy.DROP_OLDEST)
+            .setMetricsListener(metrics);
+        Iterator<Integer> iterator = YieldUtils.toIterable(counting(1000), options).iterator();
+        awaitStopped(metrics);
+        long taken = 0;
+        while ( iterator.hasNext() ){
+            iterator.next();
+            taken++;
+        }
+        assertEquals(1000, metrics.getYielded());
+        assertEquals(taken, metrics.getConsumed());
+        assertEquals(1000 - taken, metrics.getDiscarded());
+        assertEquals(0, metrics.getBufferDepth());
+    }
+
+    @Test
+    public void closingEarlyDiscardsTheBufferedValues() throws InterruptedException {
+        YieldMetrics metrics = new YieldMetrics();
+        YieldOptions options = new YieldOptions().setMetricsListener(metrics);
+        CloseableIterator<Integer> iterator = YieldUtils.toIterable(counting(100), options).iterator();
+        awaitStopped(metrics);
+        iterator.next();
+        iterator.close();
+        awaitDepth(metrics, 0);
+        assertEquals(100, metrics.getYielded());
+        assertEquals(1, metrics.getConsumed());
+        assertEquals(99, metrics.getDiscarded());
+    }
+
+    @Test
+    public void closingEarlyDiscardsTheValuesOfABlockedGenerator() throws InterruptedException {
+        YieldMetrics metrics = new YieldMetrics();
+        YieldOptions options = new YieldOptions().setCapacity(8).setMetricsListener(metrics);
+        CloseableIterator<Integer> iterator = YieldUtils.toIterable(counting(Integer.MAX_VALUE), options).iterator();
+        for ( int i = 0; i < 3; i++ ){
+            iterator.next();
+        }
+        iterator.close();
+        awaitStopped(metrics);
+        awaitDepth(metrics, 0);
+        assertEquals(3, metrics.getConsumed());
+        assertEquals(metrics.getYielded() - 3, metrics.getDiscarded());
+    }
+
+    @Test
+    public void resetKeepsTheBufferDepth() throws InterruptedException {
+        YieldMetrics metrics = new YieldMetrics();
+        YieldOptions options = new YieldOptions()
+            .setCapacity(10)
+            .setOverflowPolicy(OverflowPolicy.DROP_OLDEST)
+            .setMetricsListener(metrics);
+        Iterator<Integer> iterator = YieldUtils.toIterable(counting(50), options).iterator();
+        awaitStopped(metrics);
+        metrics.reset();
+        assertEquals(10, metrics.getBufferDepth());
+        assertEquals(0, metrics.getDiscarded());
+        while ( iterator.hasNext() ){
+            iterator.next();
+        }
+        assertEquals(0, metrics.getBufferDepth());
+    }
+
+    private static Generator<Integer> counting(final int count){
+        return new Generator<Integer>()
+        {
+            public void generate(Yieldable<Integer> yieldable){
+                for ( int i = 0; i < count; i++ ){
+                    yieldable.yield(i);
+                }
+            }
+        };
+    }
+
+    private static void awaitStopped(YieldMetrics metrics) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while ( (metrics.getWorkersStarted() == 0) || (metrics.getActiveWorkers() > 0) ){
+            assertTrue("The generator did not stop.", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitDepth(YieldMetrics metrics, long depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while ( metrics.getBufferDepth() != depth ){
+            assertTrue("The buffer depth stayed at " + metrics.getBufferDepth() + ".",
+                System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static final long TIMEOUT_MILLIS = 10000;
+}
@@ -0,0 +1,285 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import com.google.code.jyield.CloseableIterator;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.YieldOptions;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.Yieldable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Tests the CachedGenerator and GeneratorCache classes.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class CachedGeneratorTest
+{
+    @Test
+    public void replaysAfterACompleteRun(){
+        Counting counting = new Counting(100);
+        CachedGenerator<Integer> cached = new CachedGenerator<Integer>(counting);
+        assertEquals(range(100), YieldUtils.toArrayList(cached));
+        assertTrue(cached.isCached());
+        assertEquals(range(100), YieldUtils.toArrayList(cached));
+        assertEquals(1, counting.runs.get());
+    }
+
+    @Test
+    public void partialRunIsNotCached(){
+        Counting counting = new Counting(100);
+        CachedGenerator<Integer> cached = new CachedGenerator<Integer>(counting);
+        final List<Integer> seen = new ArrayList<Integer>();
+        try {
+            cached.generate(new Yieldable<Integer>()
+                {
+                    public void yield(Integer value){
+                        if ( seen.size() == 10 ){
+                            throw new IllegalStateException("Stop.");
+                        }
+                        seen.add(value);
+                    }
+                });
+            fail("The consumer's failure was not rethrown.");
+        } catch (IllegalStateException ex) {
+            assertEquals("Stop.", ex.getMessage());
+        }
+        assertFalse(cached.isCached());
+        assertEquals(range(100), YieldUtils.toArrayList(cached));
+        assertEquals(2, counting.runs.get());
+        assertTrue(cached.isCached());
+    }
+
+    @Test
+    public void cancelledRunIsNotCached(){
+        Counting counting = new Counting(Integer.MAX_VALUE);
+        CachedGenerator<Integer> cached = new CachedGenerator<Integer>(counting);
+        CloseableIterator<Integer> iterator =
+            YieldUtils.toIterable(cached, new YieldOptions().setCapacity(4)).iterator();
+        for ( int i = 0; i < 10; i++ ){
+            assertEquals(i, (int) iterator.next());
+        }
+        iterator.close();
+        assertFalse(cached.isCached());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedRecordings(){
+        GeneratorCache cache = new GeneratorCache(10);
+        CachedGenerator<Integer> first = new CachedGenerator<Integer>(new Counting(5), cache);
+        CachedGenerator<Integer> second = new CachedGenerator<Integer>(new Counting(5), cache);
+        CachedGenerator<Integer> third = new CachedGenerator<Integer>(new Counting(5), cache);
+        YieldUtils.toArrayList(first);
+        YieldUtils.toArrayList(second);
+        assertEquals(10, cache.size());
+        YieldUtils.toArrayList(first);
+        YieldUtils.toArrayList(third);
+        assertTrue(first.isCached());
+        assertFalse(second.isCached());
+        assertTrue(third.isCached());
+        assertEquals(10, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertFalse(first.isCached());
+    }
+
+    @Test
+    public void keepsTheNewestRecordingEvenIfItIsTooLarge(){
+        GeneratorCache cache = new GeneratorCache(10);
+        CachedGenerator<Integer> small = new CachedGenerator<Integer>(new Counting(5), cache);
+        CachedGenerator<Integer> large = new CachedGenerator<Integer>(new Counting(20), cache);
+        YieldUtils.toArrayList(small);
+        YieldUtils.toArrayList(large);
+        assertFalse(small.isCached());
+        assertTrue(large.isCached());
+        assertEquals(20, cache.size());
+    }
+
+    @Test
+    public void spillsToDiskAndReadsBack(){
+        int before = spillFiles();
+        Counting counting = new Counting(1000);
+        CachedGenerator<Integer> cached = new CachedGenerator<Integer>(counting, 10, INTEGERS);
+        assertEquals(range(1000), YieldUtils.toArrayList(cached));
+        assertEquals(before + 1, spillFiles());
+        assertEquals(range(1000), YieldUtils.toArrayList(cached));
+        assertEquals(1, counting.runs.get());
+        cached.invalidate();
+        assertEquals(before, spillFiles());
+    }
+
+    @Test
+    public void deletesTheFileOfADroppedGenerator() throws InterruptedException {
+        int before = spillFiles();
+        spillAndDrop();
+        assertEquals(before + 1, spillFiles());
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while ( spillFiles() != before ){
+            assertTrue("The file was not deleted.", System.currentTimeMillis() < deadline);
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void invalidateDoesNotDisturbARunInProgress() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+        final CachedGenerator<Integer> cached = new CachedGenerator<Integer>(new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    runs.incrementAndGet();
+                    for ( int i = 0; i < 10; i++ ){
+                        if ( i == 5 ){
+                            started.countDown();
+                            await(resume);
+                        }
+                        yieldable.yield(i);
+                    }
+                }
+            });
+        final List<Integer> values = new ArrayList<Integer>();
+        Thread thread = new Thread()
+            {
+                public void run(){
+                    values.addAll(YieldUtils.toArrayList(cached));
+                }
+            };
+        thread.start();
+        assertTrue(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        cached.invalidate();
+        resume.countDown();
+        thread.join(TIMEOUT_MILLIS);
+        assertEquals(range(10), values);
+        assertTrue(cached.isCached());
+        assertEquals(range(10), YieldUtils.toArrayList(cached));
+        assertEquals(1, runs.get());
+    }
+
+    @Test(timeout = 60000)
+    public void invalidateRacingRunsKeepsTheCacheConsistent() throws InterruptedException {
+        final GeneratorCache cache = new GeneratorCache(12);
+        final List<CachedGenerator<Integer>> generators = new ArrayList<CachedGenerator<Integer>>();
+        for ( int i = 0; i < 4; i++ ){
+            generators.add(new CachedGenerator<Integer>(new Counting(5), cache));
+        }
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for ( int t = 0; t < 4; t++ ){
+            final boolean invalidating = (t == 0);
+            final Random random = new Random(t);
+            threads.add(new Thread()
+                {
+                    public void run(){
+                        try {
+                            for ( int i = 0; i < 5000; i++ ){
+                                CachedGenerator<Integer> generator = generators.get(random.nextInt(generators.size()));
+                                if ( invalidating ){
+                                    generator.invalidate();
+                                }else{
+                                    assertEquals(range(5), YieldUtils.toArrayList(generator));
+                                }
+                            }
+                        } catch (Throwable ex) {
+                            synchronized (failures){
+                                failures.add(ex);
+                            }
+                        }
+                    }
+                });
+        }
+        for ( Thread thread : threads ){
+            thread.start();
+        }
+        for ( Thread thread : threads ){
+            thread.join();
+        }
+        assertEquals(new ArrayList<Throwable>(), failures);
+        long cachedValues = 0;
+        for ( CachedGenerator<Integer> generator : generators ){
+            if ( generator.isCached() ){
+                cachedValues += 5;
+            }
+        }
+        assertEquals(cachedValues, cache.size());
+        assertTrue(cache.size() <= 12);
+    }
+
+    private static void spillAndDrop(){
+        CachedGenerator<Integer> cached = new CachedGenerator<Integer>(new Counting(100), 10, INTEGERS);
+        YieldUtils.toArrayList(cached);
+    }
+
+    private static int spillFiles(){
+        File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles();
+        int result = 0;
+        for ( File file : files ){
+            if ( file.getName().startsWith("jyield-cache") ){
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> range(int count){
+        List<Integer> result = new ArrayList<Integer>();
+        for ( int i = 0; i < count; i++ ){
+            result.add(i);
+        }
+        return result;
+    }
+
+    private static void await(CountDownLatch latch){
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Yields the integers from 0, counting how many times it runs.
+     */
+    private static class Counting implements Generator<Integer>
+    {
+        public Counting(int count){
+            _count = count;
+        }
+
+        public void generate(Yieldable<Integer> yieldable){
+            runs.incrementAndGet();
+            for ( int i = 0; i < _count; i++ ){
+                yieldable.yield(i);
+            }
+        }
+
+        final AtomicInteger runs = new AtomicInteger();
+        private final int _count;
+    }
+
+    private static final Serializer<Integer> INTEGERS = new Serializer<Integer>()
+        {
+            public void write(Integer value, DataOutput out) throws IOException {
+                out.writeInt(value);
+            }
+
+            public Integer read(DataInput in) throws IOException {
+                return in.readInt();
+            }
+        };
+
+    private static final long TIMEOUT_MILLIS = 10000;
+}
@@ -0,0 +1,74 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import com.google.code.jyield.Continuation;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.ResumableGenerator;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.Yieldable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests how the combined generators read their inputs.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class CombinedGeneratorTest
+{
+    @Test
+    public void resumableInputIsSteppedOnTheCallingThread(){
+        List<Thread> threads = new ArrayList<Thread>();
+        Generator<Integer> interleaved = new InterleavedGenerator<Integer>(Arrays.asList(
+            new Recording(0, threads), new Recording(100, threads)));
+        assertEquals(Arrays.asList(0, 100, 1, 101, 2, 102), YieldUtils.toArrayList(interleaved));
+        assertEquals(8, threads.size());
+        for ( Thread thread : threads ){
+            assertSame(Thread.currentThread(), thread);
+        }
+    }
+
+    /**
+     * A resumable generator of three values from the given start, which
+     * records the thread that runs each step or the whole generator.
+     */
+    private static class Recording implements ResumableGenerator<Integer>
+    {
+        public Recording(int start, List<Thread> threads){
+            _start = start;
+            _threads = threads;
+        }
+
+        public Continuation<Integer> start(){
+            return new Continuation<Integer>()
+                {
+                    public boolean resume(Yieldable<Integer> yieldable){
+                        synchronized (_threads){
+                            _threads.add(Thread.currentThread());
+                        }
+                        if ( _next == 3 ){
+                            return false;
+                        }
+                        yieldable.yield(_start + _next++);
+                        return true;
+                    }
+
+                    private int _next = 0;
+                };
+        }
+
+        public void generate(Yieldable<Integer> yieldable){
+            synchronized (_threads){
+                _threads.add(Thread.currentThread());
+            }
+            for ( int i = 0; i < 3; i++ ){
+                yieldable.yield(_start + i);
+            }
+        }
+
+        private final int _start;
+        private final List<Thread> _threads;
+    }
+}
@@ -0,0 +1,366 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.Yieldable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Tests the GeneratorPublisher and PublisherGenerator classes against the
+ * rules of the Reactive Streams specification that they implement by hand.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class GeneratorPublisherTest
+{
+    @After
+    public void shutDown(){
+        _executor.shutdownNow();
+    }
+
+    @Test
+    public void demandBoundsOnNext() throws InterruptedException {
+        for ( Generator<Integer> generator : both(Integer.MAX_VALUE) ){
+            Recorder recorder = new Recorder();
+            new GeneratorPublisher<Integer>(generator, _executor).subscribe(recorder);
+            recorder.subscription().request(3);
+            recorder.awaitValues(3);
+            Thread.sleep(50);
+            assertEquals(3, recorder.values.size());
+            recorder.subscription().request(2);
+            recorder.awaitValues(5);
+            Thread.sleep(50);
+            assertEquals(5, recorder.values.size());
+            recorder.subscription().cancel();
+        }
+    }
+
+    @Test
+    public void nonPositiveRequestSignalsOnError() throws InterruptedException {
+        for ( long n : new long[] { 0, -1 } ){
+            for ( Generator<Integer> generator : both(Integer.MAX_VALUE) ){
+                Recorder recorder = new Recorder();
+                new GeneratorPublisher<Integer>(generator, _executor).subscribe(recorder);
+                recorder.subscription().request(n);
+                assertTrue(recorder.awaitTermination());
+                assertTrue(String.valueOf(recorder.failure), recorder.failure instanceof IllegalArgumentException);
+            }
+        }
+    }
+
+    @Test
+    public void completesEveryValue() throws InterruptedException {
+        for ( Generator<Integer> generator : both(100) ){
+            Recorder recorder = new Recorder();
+            new GeneratorPublisher<Integer>(generator, _executor).subscribe(recorder);
+            recorder.subscription().request(Long.MAX_VALUE);
+            assertTrue(recorder.awaitTermination());
+            assertNull(recorder.failure);
+            assertEquals(range(100), recorder.values);
+        }
+    }
+
+    @Test
+    public void emptyGeneratorCompletesWithoutDemand() throws InterruptedException {
+        for ( Generator<Integer> generator : both(0) ){
+            Recorder recorder = new Recorder();
+            new GeneratorPublisher<Integer>(generator, _executor).subscribe(recorder);
+            assertTrue(recorder.awaitTermination());
+            assertNull(recorder.failure);
+        }
+    }
+
+    @Test
+    public void requestFromOnSubscribeWaitsForOnSubscribeToReturn() throws InterruptedException {
+        for ( Generator<Integer> generator : both(10) ){
+            final AtomicBoolean subscribed = new AtomicBoolean();
+            final AtomicBoolean early = new AtomicBoolean();
+            Recorder recorder = new Recorder()
+                {
+                    public void onSubscribe(Subscription subscription){
+                        subscription.request(Long.MAX_VALUE);
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                        subscribed.set(true);
+                        super.onSubscribe(subscription);
+                    }
+
+                    public void onNext(Integer value){
+                        if ( !subscribed.get() ){
+                            early.set(true);
+                        }
+                        super.onNext(value);
+                    }
+                };
+            new GeneratorPublisher<Integer>(generator, _executor).subscribe(recorder);
+            assertTrue(recorder.awaitTermination());
+            assertFalse("onNext was called before onSubscribe returned.", early.get());
+            assertEquals(range(10), recorder.values);
+        }
+    }
+
+    @Test
+    public void cancelStopsABlockedPushGenerator() throws InterruptedException {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        Generator<Integer> endless = new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    try {
+                        for ( int i = 0; true; i++ ){
+                            yieldable.yield(i);
+                        }
+                    } finally {
+                        stopped.countDown();
+                    }
+                }
+            };
+        Recorder recorder = new Recorder();
+        new GeneratorPublisher<Integer>(endless, _executor).subscribe(recorder);
+        recorder.subscription().request(1);
+        recorder.awaitValues(1);
+        recorder.subscription().cancel();
+        assertTrue("The generator did not stop.", stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(recorder.terminated.await(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void onNextIsNeverCalledConcurrentlyOnTheDrainPath() throws InterruptedException {
+        final int requesters = 4;
+        final int requests = 2000;
+        Recorder recorder = new Recorder();
+        new GeneratorPublisher<Integer>(new Range(Integer.MAX_VALUE), _executor).subscribe(recorder);
+        final Subscription subscription = recorder.subscription();
+        List<Thread> threads = new ArrayList<Thread>();
+        for ( int t = 0; t < requesters; t++ ){
+            threads.add(new Thread()
+                {
+                    public void run(){
+                        for ( int i = 0; i < requests; i++ ){
+                            subscription.request(1);
+                        }
+                    }
+                });
+        }
+        for ( Thread thread : threads ){
+            thread.start();
+        }
+        for ( Thread thread : threads ){
+            thread.join();
+        }
+        recorder.awaitValues(requesters * requests);
+        subscription.cancel();
+        assertFalse("onNext was called concurrently.", recorder.overlapped.get());
+        assertEquals(range(requesters * requests), recorder.values);
+    }
+
+    @Test
+    public void publisherGeneratorKeepsTheOutstandingDemandWithinTheBatch(){
+        Metered<Integer> publisher = new Metered<Integer>(
+            new GeneratorPublisher<Integer>(counting(10000), _executor));
+        PublisherGenerator<Integer> generator = new PublisherGenerator<Integer>(publisher, 16);
+        assertEquals(range(10000), YieldUtils.toArrayList(generator));
+        assertTrue("Outstanding demand reached " + publisher.maxOutstanding.get() + ".",
+            publisher.maxOutstanding.get() <= 16);
+        assertFalse(publisher.cancelled.get());
+    }
+
+    @Test
+    public void publisherGeneratorCancelsOnEarlyExit() throws InterruptedException {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        Generator<Integer> endless = new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    try {
+                        for ( int i = 0; true; i++ ){
+                            yieldable.yield(i);
+                        }
+                    } finally {
+                        stopped.countDown();
+                    }
+                }
+            };
+        Metered<Integer> publisher = new Metered<Integer>(new GeneratorPublisher<Integer>(endless, _executor));
+        PublisherGenerator<Integer> generator = new PublisherGenerator<Integer>(publisher, 16);
+        final AtomicInteger seen = new AtomicInteger();
+        try {
+            generator.generate(new Yieldable<Integer>()
+                {
+                    public void yield(Integer value){
+                        if ( seen.incrementAndGet() == 5 ){
+                            throw new IllegalStateException("Stop.");
+                        }
+                    }
+                });
+            fail("The consumer's failure was not rethrown.");
+        } catch (IllegalStateException ex) {
+            assertEquals("Stop.", ex.getMessage());
+        }
+        assertTrue(publisher.cancelled.get());
+        assertTrue("The generator did not stop.", stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Returns a push generator and a resumable generator of the same values.
+     */
+    private static List<Generator<Integer>> both(int count){
+        List<Generator<Integer>> result = new ArrayList<Generator<Integer>>();
+        result.add(counting(count));
+        result.add(new Range(count));
+        return result;
+    }
+
+    private static Generator<Integer> counting(final int count){
+        return new Generator<Integer>()
+            {
+                public void generate(Yieldable<Integer> yieldable){
+                    for ( int i = 0; i < count; i++ ){
+                        yieldable.yield(i);
+                    }
+                }
+            };
+    }
+
+    private static List<Integer> range(int count){
+        List<Integer> result = new ArrayList<Integer>();
+        for ( int i = 0; i < count; i++ ){
+            result.add(i);
+        }
+        return result;
+    }
+
+    /**
+     * Records the signals of a subscription.
+     */
+    private static class Recorder implements Subscriber<Integer>
+    {
+        public void onSubscribe(Subscription subscription){
+            _subscription = subscription;
+            _subscribed.countDown();
+        }
+
+        public void onNext(Integer value){
+            if ( _inside.getAndSet(true) ){
+                overlapped.set(true);
+            }
+            synchronized (values){
+                values.add(value);
+                values.notifyAll();
+            }
+            _inside.set(false);
+        }
+
+        public void onError(Throwable failure){
+            this.failure = failure;
+            terminated.countDown();
+        }
+
+        public void onComplete(){
+            terminated.countDown();
+        }
+
+        Subscription subscription() throws InterruptedException {
+            assertTrue(_subscribed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            return _subscription;
+        }
+
+        void awaitValues(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            synchronized (values){
+                while ( values.size() < count ){
+                    long remaining = deadline - System.currentTimeMillis();
+                    assertTrue("Only " + values.size() + " values arrived.", remaining > 0);
+                    values.wait(remaining);
+                }
+            }
+        }
+
+        boolean awaitTermination() throws InterruptedException {
+            return terminated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        final List<Integer> values = new ArrayList<Integer>();
+        final CountDownLatch terminated = new CountDownLatch(1);
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        volatile Throwable failure = null;
+        private final CountDownLatch _subscribed = new CountDownLatch(1);
+        private final AtomicBoolean _inside = new AtomicBoolean();
+        private volatile Subscription _subscription = null;
+    }
+
+    /**
+     * A publisher that measures the demand its subscriber leaves outstanding.
+     */
+    private static class Metered<T> implements Publisher<T>
+    {
+        public Metered(Publisher<T> publisher){
+            _publisher = publisher;
+        }
+
+        public void subscribe(final Subscriber<? super T> subscriber){
+            _publisher.subscribe(new Subscriber<T>()
+                {
+                    public void onSubscribe(final Subscription subscription){
+                        subscriber.onSubscribe(new Subscription()
+                            {
+                                public void request(long n){
+                                    long outstanding = _requested.addAndGet(n) - _delivered.get();
+                                    long max;
+                                    do {
+                                        max = maxOutstanding.get();
+                                    } while ( (outstanding > max) && !maxOutstanding.compareAndSet(max, outstanding) );
+                                    subscription.request(n);
+                                }
+
+                                public void cancel(){
+                                    cancelled.set(true);
+                                    subscription.cancel();
+                                }
+                            });
+                    }
+
+                    public void onNext(T value){
+                        _delivered.incrementAndGet();
+                        subscriber.onNext(value);
+                    }
+
+                    public void onError(Throwable failure){
+                        subscriber.onError(failure);
+                    }
+
+                    public void onComplete(){
+                        subscriber.onComplete();
+                    }
+                });
+        }
+
+        final AtomicLong maxOutstanding = new AtomicLong();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        private final Publisher<T> _publisher;
+        private final AtomicLong _requested = new AtomicLong();
+        private final AtomicLong _delivered = new AtomicLong();
+    }
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final ExecutorService _executor = Executors.newFixedThreadPool(4);
+}
@@ -0,0 +1,204 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import static org.junit.Assert.assertEquals;
+import com.google.code.jyield.DeliveryOrder;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.PartitionableGenerator;
+import com.google.code.jyield.YieldUtils;
+import com.google.code.jyield.Yieldable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that the mapped file generators yield every record exactly once,
+ * in order, however the file is split into regions and segments, including
+ * records that cross a region or segment boundary.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class MappedFileGeneratorTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void delimitedRecordsSurviveEverySplit() throws IOException {
+        for ( boolean trailing : new boolean[] { false, true } ){
+            List<String> records = randomRecords(200, 40);
+            Path path = write(join(records, "\n", trailing));
+            for ( int segmentSize : SEGMENT_SIZES ){
+                for ( boolean reuseViews : new boolean[] { false, true } ){
+                    String label = "trailing " + trailing + ", segment " + segmentSize + ", views " + reuseViews;
+                    checkEverySplit(label, records,
+                        new DelimitedRecordGenerator(path, (byte) '\n', reuseViews, segmentSize));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void delimitedRecordsMayBeEmpty() throws IOException {
+        List<String> records = Arrays.asList("", "a", "", "", "bc");
+        for ( boolean trailing : new boolean[] { false, true } ){
+            Path path = write(join(records, ",", trailing));
+            checkEverySplit("trailing " + trailing, records, new DelimitedRecordGenerator(path, (byte) ',', false, 3));
+        }
+    }
+
+    @Test
+    public void emptyFileHasNoRecords() throws IOException {
+        Path path = write("");
+        checkEverySplit("empty file", new ArrayList<String>(), new DelimitedRecordGenerator(path, (byte) '\n'));
+        checkEverySplit("empty file", new ArrayList<String>(), new FixedWidthRecordGenerator(path, 4));
+    }
+
+    @Test
+    public void fixedWidthRecordsSurviveEverySplit() throws IOException {
+        for ( int extra : new int[] { 0, 3 } ){
+            StringBuilder content = new StringBuilder();
+            List<String> records = new ArrayList<String>();
+            for ( int i = 0; i < 300; i++ ){
+                String record = String.format("%05d", i);
+                records.add(record);
+                content.append(record);
+            }
+            if ( extra > 0 ){
+                // The final record is shorter.
+                records.add("xyz".substring(0, extra));
+                content.append("xyz", 0, extra);
+            }
+            Path path = write(content.toString());
+            for ( int segmentSize : SEGMENT_SIZES ){
+                for ( boolean reuseViews : new boolean[] { false, true } ){
+                    String label = "extra " + extra + ", segment " + segmentSize + ", views " + reuseViews;
+                    checkEverySplit(label, records, new FixedWidthRecordGenerator(path, 5, reuseViews, segmentSize));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void linesSurviveEverySplit() throws IOException {
+        List<String> lines = randomRecords(200, 30);
+        // Multi-byte characters, and lines that end with "\r\n".
+        lines.set(7, "café über 中文");
+        StringBuilder content = new StringBuilder();
+        for ( int i = 0; i < lines.size(); i++ ){
+            content.append(lines.get(i)).append((i % 3 == 0) ? "\r\n" : "\n");
+        }
+        Path path = write(content.toString());
+        for ( boolean reuseViews : new boolean[] { false, true } ){
+            LineGenerator generator = new LineGenerator(path, StandardCharsets.UTF_8, reuseViews);
+            assertEquals(lines, strings(generator));
+            for ( int count : REGION_COUNTS ){
+                List<String> values = new ArrayList<String>();
+                for ( Generator<CharSequence> region : generator.partition(count) ){
+                    values.addAll(strings(region));
+                }
+                assertEquals("views " + reuseViews + ", " + count + " regions", lines, values);
+            }
+        }
+    }
+
+    @Test
+    public void regionsRunInParallelInOrder() throws IOException {
+        List<String> records = randomRecords(2000, 40);
+        Path path = write(join(records, "\n", true));
+        final List<String> values = new ArrayList<String>();
+        YieldUtils.generateParallel(new DelimitedRecordGenerator(path, (byte) '\n', false, 256),
+            new Yieldable<ByteBuffer>()
+            {
+                public void yield(ByteBuffer record){
+                    values.add(StandardCharsets.UTF_8.decode(record).toString());
+                }
+            }, 4, DeliveryOrder.ORDERED);
+        assertEquals(records, values);
+    }
+
+    /**
+     * Checks that the generator, and its regions for each of the counts
+     * run one after another, yield exactly the given records.
+     */
+    private static void checkEverySplit(String label, List<String> records,
+            PartitionableGenerator<ByteBuffer> generator){
+        assertEquals(label, records, decode(generator));
+        for ( int count : REGION_COUNTS ){
+            List<String> values = new ArrayList<String>();
+            for ( Generator<ByteBuffer> region : generator.partition(count) ){
+                values.addAll(decode(region));
+            }
+            assertEquals(label + ", " + count + " regions", records, values);
+        }
+    }
+
+    private static List<String> decode(Generator<ByteBuffer> generator){
+        final List<String> result = new ArrayList<String>();
+        generator.generate(new Yieldable<ByteBuffer>()
+            {
+                public void yield(ByteBuffer record){
+                    result.add(StandardCharsets.UTF_8.decode(record).toString());
+                }
+            });
+        return result;
+    }
+
+    private static List<String> strings(Generator<CharSequence> generator){
+        final List<String> result = new ArrayList<String>();
+        generator.generate(new Yieldable<CharSequence>()
+            {
+                public void yield(CharSequence line){
+                    result.add(line.toString());
+                }
+            });
+        return result;
+    }
+
+    /**
+     * Creates records of random letters, some of them empty.
+     */
+    private static List<String> randomRecords(int count, int maxLength){
+        Random random = new Random(count);
+        List<String> result = new ArrayList<String>();
+        for ( int i = 0; i < count; i++ ){
+            char[] record = new char[random.nextInt(maxLength + 1)];
+            for ( int j = 0; j < record.length; j++ ){
+                record[j] = (char) ('a' + random.nextInt(26));
+            }
+            result.add(new String(record));
+        }
+        // The last record of a file without a trailing delimiter cannot be empty.
+        result.set(count - 1, "end");
+        return result;
+    }
+
+    private static String join(List<String> records, String delimiter, boolean trailing){
+        StringBuilder result = new StringBuilder();
+        for ( int i = 0; i < records.size(); i++ ){
+            if ( i > 0 ){
+                result.append(delimiter);
+            }
+            result.append(records.get(i));
+        }
+        if ( trailing ){
+            result.append(delimiter);
+        }
+        return result.toString();
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(folder.newFile().toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Small segments map the file many times over, so keep the runs few.
+    private static final int[] SEGMENT_SIZES = { 7, 64, 1 << 16 };
+    private static final int[] REGION_COUNTS = { 1, 2, 3, 5, 8, 13, 40 };
+}
@@ -0,0 +1,80 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import static org.junit.Assert.assertEquals;
+import com.google.code.jyield.YieldUtils;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.junit.Test;
+
+/**
+ * Tests the Pipeline class.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class PipelineTest
+{
+    @Test
+    public void limitBeforeFlatMapKeepsTheWholeExpansion(){
+        Pipeline<Integer> pipeline = Pipeline.fromIterable(Arrays.asList(10, 20, 30))
+            .limit(1)
+            .flatMap(new Function<Integer, List<Integer>>()
+                {
+                    public List<Integer> apply(Integer x){
+                        return Arrays.asList(x, x + 1, x + 2);
+                    }
+                });
+        assertEquals(Arrays.asList(10, 11, 12), YieldUtils.toArrayList(pipeline));
+    }
+
+    @Test
+    public void limitAfterFlatMapTruncatesTheExpansion(){
+        Pipeline<Integer> pipeline = Pipeline.fromIterable(Arrays.asList(10, 20, 30))
+            .flatMap(new Function<Integer, List<Integer>>()
+                {
+                    public List<Integer> apply(Integer x){
+                        return Arrays.asList(x, x + 1, x + 2);
+                    }
+                })
+            .limit(4);
+        assertEquals(Arrays.asList(10, 11, 12, 20), YieldUtils.toArrayList(pipeline));
+    }
+
+    @Test
+    public void limitBeforeFilterAppliesToTheUnfilteredValues(){
+        Pipeline<Integer> pipeline = Pipeline.fromIterable(Arrays.asList(1, 2, 3, 4, 5, 6))
+            .limit(3)
+            .filter(new Predicate<Integer>()
+                {
+                    public boolean test(Integer x){
+                        return (x % 2) == 0;
+                    }
+                });
+        assertEquals(Arrays.asList(2), YieldUtils.toArrayList(pipeline));
+    }
+
+    @Test
+    public void limitBeforeFilterThatDropsTheLastValue(){
+        Pipeline<Integer> pipeline = Pipeline.fromIterable(Arrays.asList(2, 3, 4, 6))
+            .limit(2)
+            .filter(new Predicate<Integer>()
+                {
+                    public boolean test(Integer x){
+                        return (x % 2) == 0;
+                    }
+                });
+        assertEquals(Arrays.asList(2), YieldUtils.toArrayList(pipeline));
+    }
+
+    @Test
+    public void limitStopsAnInfiniteSource(){
+        Pipeline<Integer> pipeline = Pipeline.from(new Range(0, Integer.MAX_VALUE)).skip(5).limit(3);
+        assertEquals(Arrays.asList(5, 6, 7), YieldUtils.toArrayList(pipeline));
+    }
+
+    @Test
+    public void zeroLimitYieldsNothing(){
+        Pipeline<Integer> pipeline = Pipeline.fromIterable(Arrays.asList(1, 2, 3)).limit(0);
+        assertEquals(Arrays.<Integer>asList(), YieldUtils.toArrayList(pipeline));
+    }
+}
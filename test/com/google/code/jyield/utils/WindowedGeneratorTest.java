@@ -0,0 +1,176 @@
+// Michael Safyan; Copyright (C) 2010; Simplified BSD License.
+package com.google.code.jyield.utils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import com.google.code.jyield.Generator;
+import com.google.code.jyield.Yieldable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import org.junit.Test;
+
+/**
+ * Checks when BatchingYieldable and WindowedGenerator close a batch: at the
+ * maximum count, the maximum size or the maximum delay, and once the
+ * generator returns with a partial batch.
+ * @author Michael Safyan (michaelsafyan@gmail.com)
+ */
+public class WindowedGeneratorTest
+{
+    @Test
+    public void countClosesTheBatchesAndTheFinalBatchIsPartial(){
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2, 3), Arrays.asList(4, 5, 6, 7), Arrays.asList(8, 9)),
+            batches(new WindowedGenerator<Integer>(new Range(10), 4)));
+    }
+
+    @Test
+    public void noEmptyBatchIsGenerated(){
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2, 3), Arrays.asList(4, 5, 6, 7)),
+            batches(new WindowedGenerator<Integer>(new Range(8), 4)));
+        assertEquals(Collections.emptyList(), batches(new WindowedGenerator<Integer>(new Range(0), 4)));
+    }
+
+    @Test
+    public void buffersAreReusedOnlyIfAsked(){
+        for ( boolean reuse : new boolean[] { true, false } ){
+            final List<List<Integer>> received = new ArrayList<List<Integer>>();
+            new WindowedGenerator<Integer>(new Range(10), new WindowOptions().setMaxCount(4).setReuseBuffers(reuse))
+                .generate(new Yieldable<List<Integer>>()
+                    {
+                        public void yield(List<Integer> batch){
+                            received.add(batch);
+                        }
+                    });
+            assertEquals(3, received.size());
+            if ( reuse ){
+                assertSame(received.get(0), received.get(2));
+                assertTrue("A reused buffer is cleared once passed on.", received.get(0).isEmpty());
+            }else{
+                assertNotSame(received.get(0), received.get(1));
+                assertEquals(Arrays.asList(8, 9), received.get(2));
+            }
+        }
+    }
+
+    @Test
+    public void sizeClosesTheBatchBeforeAValueThatWouldOverflowIt(){
+        Generator<String> words = new Generator<String>()
+            {
+                public void generate(Yieldable<String> yieldable){
+                    for ( String word : new String[] { "abc", "defg", "hi", "jklmnopqrstu", "v", "wxyz" } ){
+                        yieldable.yield(word);
+                    }
+                }
+            };
+        ToLongFunction<String> length = new ToLongFunction<String>()
+            {
+                public long applyAsLong(String word){
+                    return word.length();
+                }
+            };
+        WindowOptions options = new WindowOptions().setMaxSize(8);
+        assertEquals(
+            Arrays.asList(Arrays.asList("abc", "defg"), Arrays.asList("hi"), Arrays.asList("jklmnopqrstu"),
+                Arrays.asList("v", "wxyz")),
+            batches(new WindowedGenerator<String>(words, options, length)));
+    }
+
+    @Test
+    public void sizeClosesAFullBatchAtOnce(){
+        ToLongFunction<Integer> one = new ToLongFunction<Integer>()
+            {
+                public long applyAsLong(Integer value){
+                    return 1;
+                }
+            };
+        WindowOptions options = new WindowOptions().setMaxSize(3);
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(3, 4)),
+            batches(new WindowedGenerator<Integer>(new Range(5), options, one)));
+    }
+
+    @Test
+    public void delaySeparatesValuesThatAreFarApart() throws InterruptedException {
+        final List<List<Integer>> received = new ArrayList<List<Integer>>();
+        BatchingYieldable<Integer> batches = new BatchingYieldable<Integer>(new Yieldable<List<Integer>>()
+            {
+                public void yield(List<Integer> batch){
+                    synchronized (received){
+                        received.add(new ArrayList<Integer>(batch));
+                    }
+                }
+            }, new WindowOptions().setMaxDelay(20, TimeUnit.MILLISECONDS));
+        batches.yield(0);
+        batches.yield(1);
+        Thread.sleep(100);
+        batches.yield(2);
+        batches.flush();
+        synchronized (received){
+            assertEquals(Arrays.asList(Arrays.asList(0, 1), Arrays.asList(2)), received);
+        }
+    }
+
+    @Test
+    public void delayClosesTheBatchOfAStalledGenerator() throws InterruptedException {
+        final CountDownLatch passed = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        BatchingYieldable<Integer> batches = new BatchingYieldable<Integer>(new Yieldable<List<Integer>>()
+            {
+                public void yield(List<Integer> batch){
+                    assertEquals(Arrays.asList(0), batch);
+                    threads.add(Thread.currentThread());
+                    passed.countDown();
+                }
+            }, new WindowOptions().setMaxDelay(20, TimeUnit.MILLISECONDS));
+        batches.yield(0);
+        assertTrue("The stale batch was not passed on.", passed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        batches.flush();
+        assertEquals(1, threads.size());
+        assertNotSame(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    public void failureOnTheTimerIsRethrownByTheNextYield() throws InterruptedException {
+        final CountDownLatch failed = new CountDownLatch(1);
+        BatchingYieldable<Integer> batches = new BatchingYieldable<Integer>(new Yieldable<List<Integer>>()
+            {
+                public void yield(List<Integer> batch){
+                    failed.countDown();
+                    throw new IllegalStateException("Receiver failed.");
+                }
+            }, new WindowOptions().setMaxDelay(20, TimeUnit.MILLISECONDS));
+        batches.yield(0);
+        assertTrue(failed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        try {
+            // The failure is recorded just after the receiver throws.
+            while ( System.nanoTime() - deadline < 0 ){
+                batches.yield(1);
+                Thread.sleep(1);
+            }
+            fail("The failure of the receiver was not rethrown.");
+        } catch (IllegalStateException ex) {
+            assertEquals("Receiver failed.", ex.getMessage());
+        }
+    }
+
+    private static <T> List<List<T>> batches(Generator<List<T>> generator){
+        final List<List<T>> result = new ArrayList<List<T>>();
+        generator.generate(new Yieldable<List<T>>()
+            {
+                public void yield(List<T> batch){
+                    // The buffer is reused by default, so copy it.
+                    result.add(new ArrayList<T>(batch));
+                }
+            });
+        return result;
+    }
+
+    private static final long TIMEOUT_SECONDS = 10;
+}